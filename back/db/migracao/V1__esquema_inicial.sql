@@ -0,0 +1,31 @@
+-- Esquema base usado pelo ClienteDAO e pelo AluguelDAO.
+-- IF NOT EXISTS permite adotar bancos criados antes das migrações.
+
+CREATE TABLE IF NOT EXISTS cliente (
+    id_cliente BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Nome       VARCHAR(100) NOT NULL,
+    Telefone   VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS quadra (
+    id_quadra BIGINT        NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    cobertura VARCHAR(45)   NOT NULL,
+    tamanho   VARCHAR(45)   NOT NULL,
+    preco     DECIMAL(10,2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS locacao (
+    id_locacao        BIGINT        NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Quadra_id_quadra  BIGINT        NOT NULL,
+    Cliente_idCliente BIGINT        NOT NULL,
+    datalocacao       DATE          NOT NULL,
+    preco             DECIMAL(10,2) NOT NULL,
+    CONSTRAINT fk_locacao_quadra FOREIGN KEY (Quadra_id_quadra) REFERENCES quadra (id_quadra),
+    CONSTRAINT fk_locacao_cliente FOREIGN KEY (Cliente_idCliente) REFERENCES cliente (id_cliente)
+);
+
+-- Quadras oferecidas (as mesmas do formulário de locações do front)
+INSERT IGNORE INTO quadra (id_quadra, cobertura, tamanho, preco) VALUES
+    (1, 'Saibro', 'Oficial Simples', 75.00),
+    (2, 'Sintético', 'Oficial Dupla', 90.00),
+    (3, 'Sintético', 'Oficial Dupla', 90.00);
@@ -0,0 +1,19 @@
+-- Sincronização delta do GET /Aluguel?since=N
+
+-- Sequência global de versões de alteração (uma linha por entidade)
+CREATE TABLE IF NOT EXISTS versao_sequencia (
+    nome  VARCHAR(32) NOT NULL PRIMARY KEY,
+    valor BIGINT      NOT NULL
+);
+
+INSERT IGNORE INTO versao_sequencia (nome, valor) VALUES ('locacao', 0);
+
+-- Cada locação guarda a versão da sua última alteração
+ALTER TABLE locacao ADD COLUMN versao_alteracao BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX idx_locacao_versao_alteracao ON locacao (versao_alteracao);
+
+-- Tombstones das locações excluídas
+CREATE TABLE IF NOT EXISTS locacao_exclusao (
+    versao_alteracao BIGINT NOT NULL PRIMARY KEY,
+    id_locacao       BIGINT NOT NULL
+);
@@ -0,0 +1,7 @@
+-- Índices das consultas quentes do AluguelDAO
+
+-- clienteJaPossuiLocacao: SELECT COUNT(*) FROM locacao WHERE Cliente_idCliente = ?
+CREATE INDEX idx_locacao_cliente ON locacao (Cliente_idCliente);
+
+-- buscarPorQuadraId e agenda da quadra por data
+CREATE INDEX idx_locacao_quadra_data ON locacao (Quadra_id_quadra, datalocacao);
@@ -0,0 +1,3 @@
+-- Controle de concorrência otimista do PUT /cliente/:id (ETag / If-Match).
+-- A locação usa a versao_alteracao (V2), que já muda a cada escrita da linha.
+ALTER TABLE cliente ADD COLUMN versao BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,20 @@
+-- Arquivo das locações antigas (movidas em lotes por ArquivamentoLocacoes).
+-- Mesmas colunas da locacao, para o INSERT ... SELECT e o UNION ALL do
+-- GET /Aluguel?incluirArquivo=true.
+CREATE TABLE IF NOT EXISTS locacao_arquivo (
+    id_locacao        BIGINT        NOT NULL PRIMARY KEY,
+    Quadra_id_quadra  BIGINT        NOT NULL,
+    Cliente_idCliente BIGINT        NOT NULL,
+    datalocacao       DATE          NOT NULL,
+    preco             DECIMAL(10,2) NOT NULL,
+    versao_alteracao  BIGINT        NOT NULL DEFAULT 0,
+    arquivada_em      TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_locacao_arquivo_quadra FOREIGN KEY (Quadra_id_quadra) REFERENCES quadra (id_quadra),
+    CONSTRAINT fk_locacao_arquivo_cliente FOREIGN KEY (Cliente_idCliente) REFERENCES cliente (id_cliente)
+);
+
+CREATE INDEX idx_locacao_arquivo_cliente ON locacao_arquivo (Cliente_idCliente);
+CREATE INDEX idx_locacao_arquivo_quadra_data ON locacao_arquivo (Quadra_id_quadra, datalocacao);
+
+-- Busca dos candidatos ao arquivamento (datalocacao < horizonte, em ordem de id)
+CREATE INDEX idx_locacao_data ON locacao (datalocacao, id_locacao);
@@ -1,28 +1,75 @@
 package api;
 
 import static spark.Spark.*;
+import static dao.AluguelDAO.CONSULTAS_QUENTES;
+import static dao.AluguelDAO.PROJECAO_LOCACAO;
+import static dao.ClienteDAO.PROJECAO_CLIENTE;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.sql.Date;
+import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
+import auditoria.DiarioMutacoes;
+import auditoria.LeitorDiario;
+import binario.EscritorBinario;
+import binario.FormatoBinario;
 import dao.AluguelDAO;
+import dao.AluguelRepositorio;
+import dao.ArquivamentoLocacoes;
+import dao.CarregadorLote;
 import dao.ClienteDAO;
+import dao.ClienteRepositorio;
+import dao.FiltroAluguel;
+import dao.Mutacoes;
+import dao.VersaoDivergenteException;
+import dao.memoria.AluguelRepositorioMemoria;
+import dao.memoria.ArmazenamentoMemoria;
+import dao.memoria.ClienteRepositorioMemoria;
 import model.Aluguel;
+import model.AluguelDetalhado;
 import model.Cliente;
+import model.SincronizacaoAluguel;
+import monitoramento.EstatisticasConsultas;
+import monitoramento.EventoRequisicao;
+import monitoramento.EventoSerializacao;
+import monitoramento.Rastreamento;
+import trafego.CapturaTrafego;
 
 import com.google.gson.Gson;
+import util.Configuracao;
+import util.ConnectionFactory;
+import util.ContextoRequisicao;
 import util.GsonUtil;
+import util.MigracaoBanco;
+import util.PrazoExcedidoException;
 
 
 public class ApiQuadra {
 
-    // Instância do DAO.
-    private static final ClienteDAO dao = new ClienteDAO();
-    private static final AluguelDAO AluguelDAO = new AluguelDAO();
+    // Repositórios (MySQL ou memória), definidos em configurarArmazenamento()
+    private static ClienteRepositorio dao;
+    private static AluguelRepositorio AluguelDAO;
+
+    // Buscas por ID em lote sobre os repositórios acima (ver CarregadorLote)
+    private static CarregadorLote<Cliente> carregadorClientes;
+    private static CarregadorLote<Aluguel> carregadorAlugueis;
+
+    // Motor em memória (null quando o armazenamento é o MySQL)
+    private static ArmazenamentoMemoria armazenamentoMemoria;
     
     // O GSON configurado é obtido de forma centralizada
     private static final Gson gson = GsonUtil.getGson();
@@ -30,6 +77,16 @@ public class ApiQuadra {
     // constante para garantir que todas as respostas sejam JSON
     private static final String APPLICATION_JSON = GsonUtil.APPLICATION_JSON;
 
+    // Marca, na requisição, que ela entrou na contagem do CicloDeVida
+    private static final String ATRIBUTO_EM_ANDAMENTO = "cicloDeVida.emAndamento";
+    private static final String ATRIBUTO_GERACOES_CACHE = "cache.geracoes";
+
+    // Marca d'água da sincronização no GET /Aluguel completo (ver CacheRespostas)
+    static final String CABECALHO_VERSAO_SINCRONIZACAO = "X-Versao-Sincronizacao";
+
+    // Diário de mutações (null quando desativado)
+    private static DiarioMutacoes diario;
+
     // ======================================//
     // HABILITAÇÃO DO CORS 
     // (Esta função NÃO é alterada, apenas a sua chamada é movida)
@@ -55,33 +112,567 @@ public class ApiQuadra {
             // Especificamos a origem do React
             response.header("Access-Control-Allow-Origin", "http://localhost:3000"); 
             response.header("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE");
-            response.header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+            response.header("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Operador, If-Match");
+            response.header("Access-Control-Expose-Headers", "ETag, " + CABECALHO_VERSAO_SINCRONIZACAO);
             // Garante que todas as respostas do Spark sejam JSON
             response.type(APPLICATION_JSON); 
         });
     }
     
+    // ======================================//
+    // RASTREAMENTO (ver monitoramento.Rastreamento)
+    // Registrado antes dos outros filtros, para medir a requisição inteira.
+    // X-Request-Id: o do pedido (se válido) ou um novo; volta na resposta.
+    // Server-Timing: fila, conexao, banco, serializacao e total, em ms.
+    // Eventos JFR (quadra.Requisicao, quadra.Comando, quadra.Conexao, quadra.Serializacao)
+    // só custam algo com uma gravação ativa: -XX:StartFlightRecording=filename=api.jfr
+    // ======================================//
+    private static void configurarRastreamento() {
+
+        before((request, response) -> EventoRequisicao.iniciar());
+        afterAfter((request, response) ->
+                EventoRequisicao.encerrar(request.requestMethod(), request.pathInfo(), response.status()));
+
+        if (!Rastreamento.ATIVO) {
+            return;
+        }
+
+        before((request, response) -> {
+            String id = request.headers("X-Request-Id");
+            if (!Rastreamento.idValido(id)) {
+                id = Rastreamento.novoId();
+            }
+
+            // O Jetty marca (em ms) quando leu a requisição: o que passou até aqui foi fila
+            org.eclipse.jetty.server.Request base = org.eclipse.jetty.server.Request.getBaseRequest(request.raw());
+            long filaMs = base != null ? System.currentTimeMillis() - base.getTimeStamp() : 0;
+
+            Rastreamento.iniciar(id, request.requestMethod(), request.pathInfo(), filaMs);
+
+            response.header("X-Request-Id", id);
+            response.header("Access-Control-Expose-Headers",
+                    "ETag, " + CABECALHO_VERSAO_SINCRONIZACAO + ", X-Request-Id, Server-Timing");
+            response.header("Timing-Allow-Origin", "http://localhost:3000");
+        });
+
+        // Respostas escritas direto no HttpServletResponse (cache, exportação) já
+        // gravaram o Server-Timing; as demais são enviadas pelo Spark depois daqui
+        afterAfter((request, response) -> {
+            Rastreamento.serverTiming(response.raw());
+            Rastreamento.encerrar(response.status());
+        });
+    }
+
+    // ======================================//
+    // CICLO DE VIDA
+    // Conta as requisições em andamento e, durante o desligamento, recusa as
+    // novas com 503 (/saude e /pronto continuam respondendo).
+    // ======================================//
+    private static void configurarCicloDeVida() {
+
+        before((request, response) -> {
+            String caminho = request.pathInfo();
+            if ("/saude".equals(caminho) || "/pronto".equals(caminho)) {
+                return;
+            }
+
+            if (CicloDeVida.isEncerrando()) {
+                response.type(APPLICATION_JSON);
+                response.header("Connection", "close");
+                response.header("Retry-After", "1");
+                halt(503, "{\"mensagem\": \"Servidor em desligamento.\"}");
+            }
+
+            CicloDeVida.entrar();
+            request.attribute(ATRIBUTO_EM_ANDAMENTO, Boolean.TRUE);
+        });
+
+        afterAfter((request, response) -> {
+            if (request.attribute(ATRIBUTO_EM_ANDAMENTO) != null) {
+                CicloDeVida.sair();
+            }
+        });
+    }
+
+    // Desligamento coordenado (SIGTERM): prontidão falha, requisições em andamento
+    // terminam (até -Ddesligamento.drenagemMs), o diário e o snapshot são gravados
+    // e só então os pools e o Jetty param.
+    private static void encerrar() {
+
+        System.out.println("Desligamento iniciado (" + CicloDeVida.getEmAndamento() + " requisições em andamento).");
+        CicloDeVida.iniciarEncerramento();
+
+        try {
+            // Dá tempo ao balanceador de ver o /pronto em 503 antes de drenar
+            Thread.sleep(Long.getLong("desligamento.esperaProntidaoMs", 0));
+
+            if (!CicloDeVida.aguardarDrenagem(Long.getLong("desligamento.drenagemMs", 10000))) {
+                System.err.println("Desligamento: " + CicloDeVida.getEmAndamento()
+                        + " requisições não terminaram dentro do prazo.");
+            }
+
+            ArquivamentoLocacoes.parar();
+            Rastreamento.fechar(1000);
+            CapturaTrafego.fechar(1000);
+
+            if (diario != null) {
+                diario.fechar(2000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (armazenamentoMemoria != null) {
+            try {
+                armazenamentoMemoria.fechar();
+            } catch (IOException e) {
+                System.err.println("Desligamento: erro ao gravar o snapshot em memória: " + e.getMessage());
+            }
+        } else {
+            ConnectionFactory.fechar();
+        }
+
+        stop();
+        awaitStop();
+        System.out.println("Desligamento concluído.");
+    }
+
+    // ======================================//
+    // PRAZO DAS REQUISIÇÕES
+    // Cada requisição recebe um orçamento de tempo (por rota, ou menor via
+    // X-Request-Timeout). Os comandos no banco usam o tempo restante como
+    // timeout e são cancelados no servidor; a resposta é 504.
+    // ======================================//
+    private static void configurarPrazos() {
+
+        before((request, response) -> {
+            ContextoRequisicao contexto = ContextoRequisicao.iniciar(request.requestMethod(), request.pathInfo(),
+                    request.headers("X-Request-Timeout"));
+
+            // Operador registrado na auditoria. O X-Operador é declarado pelo cliente, sem
+            // autenticação: vale como indicação, e o IP de origem (visto pelo servidor) vai junto
+            String operador = request.headers("X-Operador");
+            contexto.setOperador(operador != null && !operador.isBlank()
+                    ? operador.trim() + " (" + request.ip() + ")" : request.ip());
+        });
+
+        // afterAfter roda sempre, inclusive após exceções: libera o ThreadLocal
+        afterAfter((request, response) -> ContextoRequisicao.encerrar());
+
+        exception(PrazoExcedidoException.class, (e, request, response) -> {
+            System.err.println("Prazo excedido em " + request.requestMethod() + " " + request.pathInfo() + ": " + e.getMessage());
+            response.status(504);
+            response.type(APPLICATION_JSON);
+            response.body("{\"mensagem\": \"A requisição excedeu o tempo limite.\"}");
+        });
+    }
+
+    // ======================================//
+    // ARMAZENAMENTO
+    // -Darmazenamento=mysql (padrão) ou -Darmazenamento=memoria (quiosques offline,
+    // testes e benchmarks; snapshot em -Dmemoria.arquivo a cada -Dmemoria.snapshotMs)
+    // ======================================//
+    private static void configurarArmazenamento() {
+
+        String tipo = System.getProperty("armazenamento", "mysql");
+
+        switch (tipo) {
+            case "mysql":
+                dao = new ClienteDAO();
+                AluguelDAO = new AluguelDAO();
+                break;
+
+            case "memoria":
+                armazenamentoMemoria = new ArmazenamentoMemoria(
+                        Paths.get(System.getProperty("memoria.arquivo", "dados-memoria.bin")));
+                try {
+                    armazenamentoMemoria.iniciar(Long.getLong("memoria.snapshotMs", 30000));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Não foi possível carregar o armazenamento em memória.", e);
+                }
+                dao = new ClienteRepositorioMemoria(armazenamentoMemoria);
+                AluguelDAO = new AluguelRepositorioMemoria(armazenamentoMemoria);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Armazenamento desconhecido: " + tipo + " (use mysql ou memoria).");
+        }
+
+        carregadorClientes = new CarregadorLote<>("cliente", dao::buscarPorIds);
+        carregadorAlugueis = new CarregadorLote<>("locacao", AluguelDAO::buscarPorIds);
+
+        System.out.println("Armazenamento: " + tipo + ".");
+    }
+
+    // ======================================//
+    // DIÁRIO DE MUTAÇÕES (AUDITORIA)
+    // Toda escrita confirmada nos DAOs vira um registro no diário em disco.
+    // Desative com -Ddiario.ativo=false
+    // ======================================//
+    private static void configurarDiario() {
+
+        if (!Boolean.parseBoolean(System.getProperty("diario.ativo", "true"))) {
+            return;
+        }
+
+        try {
+            diario = DiarioMutacoes.abrir(
+                    Paths.get(System.getProperty("diario.diretorio", "diario")),
+                    Integer.getInteger("diario.segmentoBytes", 64 * 1024 * 1024),
+                    Long.getLong("diario.commitMs", 10));
+        } catch (IOException e) {
+            throw new IllegalStateException("Não foi possível abrir o diário de mutações.", e);
+        }
+
+        Mutacoes.registrar(mutacao -> {
+            ContextoRequisicao contexto = ContextoRequisicao.atual();
+            diario.registrar(mutacao, contexto != null ? contexto.getOperador() : "sistema");
+        });
+    }
+
+    // ======================================//
+    // ROTAS ADMINISTRATIVAS (/admin/*)
+    // Expõem dados pessoais (diário) e o texto dos comandos SQL: desligadas por padrão
+    // (404). Com -Dadmin.ativo=true, só aceitam conexões locais (loopback) ou, com
+    // -Dadmin.token=..., quem enviar "Authorization: Bearer <token>" (de qualquer origem;
+    // atrás de um proxy reverso no mesmo host todo acesso parece local: use o token).
+    // ======================================//
+    private static void configurarAdmin() {
+
+        boolean ativo = Boolean.parseBoolean(System.getProperty("admin.ativo", "false"));
+        String token = System.getProperty("admin.token", "").trim();
+        byte[] esperado = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+
+        before("/admin/*", (request, response) -> {
+            if (!ativo) {
+                halt(404, "{\"mensagem\": \"Rotas administrativas desativadas.\"}");
+            }
+            if (!token.isEmpty()) {
+                String autorizacao = request.headers("Authorization");
+                if (autorizacao == null
+                        || !MessageDigest.isEqual(esperado, autorizacao.trim().getBytes(StandardCharsets.UTF_8))) {
+                    response.header("WWW-Authenticate", "Bearer");
+                    halt(401, "{\"mensagem\": \"Token administrativo ausente ou inválido.\"}");
+                }
+            } else if (!isLocal(request.ip())) {
+                halt(403, "{\"mensagem\": \"Rotas administrativas aceitam só conexões locais.\"}");
+            }
+        });
+    }
+
+    private static boolean isLocal(String ip) {
+        try {
+            return ip != null && InetAddress.getByName(ip).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    // ======================================//
+    // CAPTURA DE TRÁFEGO (ver trafego.CapturaTrafego)
+    // Grava as requisições, com os dados pessoais pseudonimizados, para reprodução
+    // com trafego.ReprodutorTrafego. Antes do cache: os acertos também entram.
+    // Ative com -Dcaptura.ativo=true
+    // ======================================//
+    private static void configurarCaptura() {
+
+        if (!CapturaTrafego.ATIVO) {
+            return;
+        }
+
+        before((request, response) -> {
+            String caminho = request.pathInfo();
+            if ("/saude".equals(caminho) || "/pronto".equals(caminho) || caminho.startsWith("/admin/")) {
+                return;
+            }
+            // O Spark guarda o corpo lido: a rota ainda consegue lê-lo
+            CapturaTrafego.registrar(request.requestMethod(), caminho, request.queryString(),
+                    request.headers("Accept"), request.contentType(), request.headers("If-Match"),
+                    request.bodyAsBytes());
+        });
+    }
+
+    // ======================================//
+    // CACHE DAS RESPOSTAS (ver CacheRespostas)
+    // Acerto: os bytes guardados vão direto para a resposta, sem banco nem Gson.
+    // Falha: a rota responde normalmente e o filtro "after" guarda o corpo.
+    // Desative com -Dcache.ativo=false
+    // ======================================//
+    private static void configurarCacheRespostas() {
+
+        if (!Boolean.parseBoolean(System.getProperty("cache.ativo", "true"))) {
+            return;
+        }
+
+        Mutacoes.registrar(CacheRespostas::invalidar);
+
+        // Com réplicas, a resposta pode ter vindo de uma leitura atrasada (ver CacheRespostas)
+        boolean leituraEmReplicas = armazenamentoMemoria == null && !ConnectionFactory.getReplicas().isEmpty();
+
+        before((request, response) -> {
+            // O formato binário não passa pelo cache (a chave não inclui o Accept)
+            if (!"GET".equals(request.requestMethod()) || !CacheRespostas.isCacheavel(request.pathInfo())
+                    || aceitaBinario(request)) {
+                return;
+            }
+
+            CacheRespostas.Entrada entrada = CacheRespostas.buscar(request.pathInfo(), request.queryString());
+            if (entrada != null) {
+                CacheRespostas.escrever(entrada, aceitaGzip(request), response.raw());
+                halt();
+            }
+            ContextoRequisicao contexto = ContextoRequisicao.atual();
+            if (leituraEmReplicas && contexto != null && CacheRespostas.isRecemAlterada(request.pathInfo())) {
+                contexto.fixarNoPrimario();
+            }
+            request.attribute(ATRIBUTO_GERACOES_CACHE, CacheRespostas.geracoes());
+        });
+
+        after((request, response) -> {
+            long[] geracoes = request.attribute(ATRIBUTO_GERACOES_CACHE);
+            if (geracoes == null || response.status() != 200 || response.body() == null) {
+                return;
+            }
+
+            ContextoRequisicao contexto = ContextoRequisicao.atual();
+            boolean lidaDeReplica = leituraEmReplicas && (contexto == null || !contexto.isFixadoNoPrimario());
+            CacheRespostas.Entrada entrada = CacheRespostas.guardar(request.pathInfo(), request.queryString(),
+                    response.body(), response.raw().getHeader(CABECALHO_VERSAO_SINCRONIZACAO), geracoes, lidaDeReplica);
+            CacheRespostas.escrever(entrada, aceitaGzip(request), response.raw());
+        });
+    }
+
+    private static boolean aceitaGzip(Request request) {
+        String aceita = request.headers("Accept-Encoding");
+        return aceita != null && aceita.contains("gzip");
+    }
+
+    // ======================================//
+    // FORMATO BINÁRIO (ver binario.FormatoBinario)
+    // As listagens respondem no formato binário quando o Accept pede
+    // application/x-quadra-bin; o ?fields= continua só em JSON.
+    // ======================================//
+    private static boolean aceitaBinario(Request request) {
+        return FormatoBinario.aceito(request.headers("Accept"));
+    }
+
+    @SuppressWarnings("try") // o trecho só delimita o tempo medido
+    private static byte[] binario(Response response, Supplier<byte[]> codificacao) {
+        response.type(FormatoBinario.TIPO_MIME);
+        response.header("Vary", "Accept, Accept-Encoding");
+        EventoSerializacao evento = EventoSerializacao.iniciar();
+        byte[] mensagem;
+        try (Rastreamento.Trecho trecho = Rastreamento.trecho(Rastreamento.SERIALIZACAO, "Formato binário")) {
+            mensagem = codificacao.get();
+        }
+        evento.encerrar(FormatoBinario.TIPO_MIME, mensagem);
+        return mensagem;
+    }
+
+    // Gson das respostas, com o tempo de codificação no rastreamento e no JFR
+    @SuppressWarnings("try") // o trecho só delimita o tempo medido
+    private static String json(Object objeto) {
+        EventoSerializacao evento = EventoSerializacao.iniciar();
+        String texto;
+        try (Rastreamento.Trecho trecho = Rastreamento.trecho(Rastreamento.SERIALIZACAO, "JSON")) {
+            texto = gson.toJson(objeto);
+        }
+        evento.encerrar(APPLICATION_JSON, texto);
+        return texto;
+    }
+
+    private static Object listaAlugueis(Request request, Response response, List<Aluguel> alugueis) {
+        return aceitaBinario(request) ? binario(response, () -> EscritorBinario.alugueis(alugueis)) : json(alugueis);
+    }
+
+    // ======================================//
+    // CONCORRÊNCIA OTIMISTA (ETag / If-Match)
+    // O GET por ID devolve a versão da linha no ETag; o PUT precisa mandá-la de
+    // volta no If-Match. Sem If-Match: 428. Versão diferente da atual: 412.
+    // ======================================//
+    private static String etag(Long versao) {
+        return "\"" + (versao != null ? versao : 0) + "\"";
+    }
+
+    // Versão pedida no If-Match ("7", W/"7" ou * = qualquer versão -> null).
+    // Lança IllegalArgumentException (400) para valores inválidos.
+    private static Long versaoDoIfMatch(String ifMatch) {
+
+        String valor = ifMatch.trim();
+        if ("*".equals(valor)) {
+            return null;
+        }
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match inválido: use o ETag devolvido pelo GET.");
+        }
+    }
+
+    private static final String MENSAGEM_SEM_IF_MATCH =
+            "{\"mensagem\": \"Envie o cabeçalho If-Match com o ETag da última leitura.\"}";
+
+    // ======================================//
+    // FILTROS DO GET /Aluguel
+    // Retorna null quando nenhum filtro foi informado.
+    // Lança IllegalArgumentException (400) para valores inválidos.
+    // ======================================//
+    private static FiltroAluguel lerFiltroAluguel(Request request) {
+
+        String idCliente = request.queryParams("idCliente");
+        String idQuadra = request.queryParams("idQuadra");
+        String dataInicio = request.queryParams("dataInicio");
+        String dataFim = request.queryParams("dataFim");
+        String aposId = request.queryParams("aposId");
+        String limite = request.queryParams("limite");
+        String ids = request.queryParams("ids");
+
+        if (idCliente == null && idQuadra == null && dataInicio == null
+                && dataFim == null && aposId == null && limite == null && ids == null) {
+            return null;
+        }
+
+        FiltroAluguel filtro = new FiltroAluguel();
+        if (idCliente != null) filtro.setIdCliente(Long.parseLong(idCliente));
+        if (idQuadra != null) filtro.setIdQuadra(Long.parseLong(idQuadra));
+        if (dataInicio != null) filtro.setDataInicio(Date.valueOf(dataInicio));
+        if (dataFim != null) filtro.setDataFim(Date.valueOf(dataFim));
+        if (aposId != null) filtro.setAposId(Long.parseLong(aposId));
+        if (limite != null) filtro.setLimite(Integer.parseInt(limite));
+        if (ids != null) filtro.setIds(lerIds(ids));
+        return filtro;
+    }
+
+    // "1,2,3" -> [1, 2, 3]; NumberFormatException (um IllegalArgumentException) se inválido
+    private static List<Long> lerIds(String ids) {
+        List<Long> lista = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.trim().isEmpty()) {
+                lista.add(Long.parseLong(id.trim()));
+            }
+        }
+        return lista;
+    }
+
     public static void main(String[] args) {
 
         // ===============================================
-        // 1. CONFIGURAÇÃO DE PORTA (DEVE VIR PRIMEIRO!)
+        // 0. CONFIGURAÇÃO EXTERNA (api.properties, variáveis QUADRA_*, -D)
         // ===============================================
-        port(4567); // Resolve o erro 'IllegalStateException'
+        Configuracao.carregar();
+
+        // ===============================================
+        // 1. CONFIGURAÇÃO DE PORTA E DO JETTY (DEVE VIR PRIMEIRO!)
+        // ===============================================
+        int porta = Integer.getInteger("servidor.porta", 4567);
+        String host = System.getProperty("servidor.host", "0.0.0.0");
+        port(porta); // Resolve o erro 'IllegalStateException'
+        ipAddress(host);
+        ServidorJetty.registrar(host, porta);
+
+        // ===============================================
+        // 1.1 ARMAZENAMENTO E MIGRAÇÕES DO BANCO (falha aqui impede a subida da API)
+        // Migrações só no MySQL; desative com -Dmigracao.ativa=false
+        // ===============================================
+        configurarArmazenamento();
+
+        if (armazenamentoMemoria == null && Boolean.parseBoolean(System.getProperty("migracao.ativa", "true"))) {
+            MigracaoBanco.executar();
+            MigracaoBanco.verificarPlanos(CONSULTAS_QUENTES);
+        }
 
         // ===============================================
         // 2. CONFIGURAÇÃO DO CORS (DEVE VIR ANTES DAS ROTAS)
         // ===============================================
+        configurarRastreamento();
+        configurarCicloDeVida();
         configureCORS(); 
+        configurarPrazos();
+        configurarAdmin();
+        configurarDiario();
+        configurarCaptura();
+        configurarCacheRespostas();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(ApiQuadra::encerrar, "desligamento"));
         
         // ===============================================
         // 3. DEFINIÇÃO DAS ROTAS (A LÓGICA DE CADA ROTA É MANTIDA)
         // ===============================================
 
+        // GET /saude - Processo vivo (liveness)
+        get("/saude", (request, response) -> "{\"status\": \"ok\"}");
+
+        // GET /pronto - Pronto para receber tráfego (readiness): 503 até o fim do aquecimento
+        get("/pronto", (request, response) -> {
+            CicloDeVida.Estado estado = CicloDeVida.getEstado();
+            if (estado != CicloDeVida.Estado.PRONTO) {
+                response.status(503);
+            }
+            return "{\"status\": \"" + estado.name().toLowerCase() + "\"}";
+        });
+
         // GET /cliente - Buscar todos
+        // GET /cliente?ids=1,2,3 - Vários por ID (uma consulta)
+        // GET /cliente?fields=nome,telefone - Só os campos pedidos (combina com ids)
         get("/cliente", new Route() {
             @Override
             public Object handle(Request request, Response response) {
-                return gson.toJson(dao.buscarTodos());
+                String ids = request.queryParams("ids");
+                String fields = request.queryParams("fields");
+
+                if (ids == null && fields == null) {
+                    List<Cliente> clientes = dao.buscarTodos();
+                    return aceitaBinario(request) ? binario(response, () -> EscritorBinario.clientes(clientes)) : json(clientes);
+                }
+
+                try {
+                    List<Long> lista = null;
+                    if (ids != null) {
+                        lista = lerIds(ids);
+                        if (lista.isEmpty() || lista.size() > FiltroAluguel.LIMITE_MAXIMO) {
+                            throw new IllegalArgumentException("Informe entre 1 e " + FiltroAluguel.LIMITE_MAXIMO + " IDs.");
+                        }
+                    }
+                    if (fields == null && aceitaBinario(request)) {
+                        List<Cliente> clientes = new ArrayList<>(dao.buscarPorIds(lista).values());
+                        clientes.sort((a, b) -> Long.compare(a.getID(), b.getID()));
+                        return binario(response, () -> EscritorBinario.clientes(clientes));
+                    }
+                    return json(dao.buscarProjetado(PROJECAO_CLIENTE.selecionar(fields), lista));
+                } catch (IllegalArgumentException e) {
+                    response.status(400);
+                    return "{\"mensagem\": \"Parâmetro de consulta inválido: " + e.getMessage() + "\"}";
+                }
+            }
+        });
+
+        // GET /cliente/busca?q=&limite= - Busca por prefixo do nome ou pelo telefone
+        // Registrada antes de /cliente/:id para não ser capturada por ela.
+        get("/cliente/busca", (request, response) -> {
+            String q = request.queryParams("q");
+
+            if (q == null || q.trim().isEmpty()) {
+                response.status(400);
+                return "{\"mensagem\": \"Informe o parâmetro 'q'.\"}";
+            }
+
+            try {
+                String limite = request.queryParams("limite");
+                int k = limite == null ? 10 : Integer.parseInt(limite);
+                if (k < 1 || k > 50) {
+                    throw new NumberFormatException();
+                }
+                return json(dao.buscarPorTermo(q, k));
+            } catch (NumberFormatException e) {
+                response.status(400);
+                return "{\"mensagem\": \"O limite deve estar entre 1 e 50.\"}";
             }
         });
 
@@ -91,10 +682,11 @@ public class ApiQuadra {
             public Object handle(Request request, Response response) {
                 try {
                     Long id = Long.parseLong(request.params(":id"));
-                    Cliente cliente = dao.buscarPorId(id);
+                    Cliente cliente = carregadorClientes.buscar(id);
 
                     if (cliente != null) {
-                        return gson.toJson(cliente);
+                        response.header("ETag", etag(cliente.getVersao()));
+                        return json(cliente);
                     } else {
                         response.status(404); // Not Found
                         return "{\"mensagem\": \"Cliente com ID " + id + " não encontrado\"}";
@@ -115,7 +707,10 @@ public class ApiQuadra {
                     dao.inserir(novoCliente);
 
                     response.status(201); // Created
-                    return gson.toJson(novoCliente);
+                    response.header("ETag", etag(novoCliente.getVersao()));
+                    return json(novoCliente);
+                } catch (PrazoExcedidoException e) {
+                    throw e; // tratado como 504 em configurarPrazos()
                 } catch (Exception e) {
                     response.status(500);
                     System.err.println("Erro ao processar requisição POST: " + e.getMessage());
@@ -132,6 +727,13 @@ public class ApiQuadra {
                 try {
                     Long id = Long.parseLong(request.params(":id"));
 
+                    String ifMatch = request.headers("If-Match");
+                    if (ifMatch == null) {
+                        response.status(428); // Precondition Required
+                        return MENSAGEM_SEM_IF_MATCH;
+                    }
+                    Long versaoEsperada = versaoDoIfMatch(ifMatch);
+
                     if (dao.buscarPorId(id) == null) {
                         response.status(404);
                         return "{\"mensagem\": \"Cliente não encontrado para atualização.\"}";
@@ -140,14 +742,23 @@ public class ApiQuadra {
                     Cliente clienteParaAtualizar = gson.fromJson(request.body(), Cliente.class);
                     clienteParaAtualizar.setID(id); // garante que o ID da URL seja usado
 
-                    dao.atualizar(clienteParaAtualizar);
+                    dao.atualizar(clienteParaAtualizar, versaoEsperada);
 
                     response.status(200); // OK
-                    return gson.toJson(clienteParaAtualizar);
+                    response.header("ETag", etag(clienteParaAtualizar.getVersao()));
+                    return json(clienteParaAtualizar);
 
                 } catch (NumberFormatException e) {
                     response.status(400); // Bad Request
                     return "{\"mensagem\": \"Formato de ID inválido.\"}";
+                } catch (IllegalArgumentException e) {
+                    response.status(400);
+                    return "{\"mensagem\": \"" + e.getMessage() + "\"}";
+                } catch (VersaoDivergenteException e) {
+                    response.status(412); // Precondition Failed
+                    return "{\"mensagem\": \"O cliente foi alterado por outra pessoa. Recarregue e tente novamente.\"}";
+                } catch (PrazoExcedidoException e) {
+                    throw e; // tratado como 504 em configurarPrazos()
                 } catch (Exception e) {
                     response.status(500);
                     System.err.println("Erro ao processar requisição PUT: " + e.getMessage());
@@ -181,6 +792,8 @@ public class ApiQuadra {
                     // Adicionada para o erro 409
                     response.status(409);
                     return "{\"mensagem\": \"Não é possível excluir este cliente pois ele possui locações vinculadas.\"}";
+                } catch (PrazoExcedidoException e) {
+                    throw e; // tratado como 504 em configurarPrazos()
                 } catch (Exception e) {
                     response.status(500);
                     return "{\"mensagem\": \"Erro ao deletar cliente.\"}";
@@ -190,18 +803,106 @@ public class ApiQuadra {
 
         // SESSÃO DOS ALUGUEIS (Rotas /Aluguel com 'A' maiúsculo)
 
-        // GET /Aluguel - Buscar todos
-        get("/Aluguel", (request, response) -> gson.toJson(AluguelDAO.buscarTodos()));
+        // GET /Aluguel - Buscar todos; X-Versao-Sincronizacao traz a versão da mesma leitura,
+        //               para o primeiro ?since= (sem lacuna nem repetição)
+        // GET /Aluguel?since=N - Apenas as alterações posteriores à versão N
+        // GET /Aluguel?idCliente=&idQuadra=&dataInicio=&dataFim=&aposId=&limite= - Filtros e paginação
+        // GET /Aluguel?incluirArquivo=true - Inclui as locações já arquivadas (aceita os mesmos filtros)
+        // GET /Aluguel?ids=1,2,3 - Vários por ID (combina com os filtros)
+        // GET /Aluguel?fields=id_locacao,dataLocacao - Só os campos pedidos (não vale com incluirArquivo)
+        get("/Aluguel", (request, response) -> {
+            String since = request.queryParams("since");
+
+            try {
+                if (since != null) {
+                    SincronizacaoAluguel sincronizacao = AluguelDAO.buscarAlteracoesDesde(Long.parseLong(since));
+                    return aceitaBinario(request)
+                            ? binario(response, () -> EscritorBinario.sincronizacao(sincronizacao))
+                            : json(sincronizacao);
+                }
+
+                FiltroAluguel filtro = lerFiltroAluguel(request);
+                if (Boolean.parseBoolean(request.queryParams("incluirArquivo"))) {
+                    return listaAlugueis(request, response,
+                            AluguelDAO.buscarComArquivo(filtro != null ? filtro : new FiltroAluguel()));
+                }
+                String fields = request.queryParams("fields");
+                if (fields != null) {
+                    return json(AluguelDAO.buscarProjetado(
+                            PROJECAO_LOCACAO.selecionar(fields), filtro != null ? filtro : new FiltroAluguel()));
+                }
+                if (filtro == null) {
+                    SincronizacaoAluguel todos = AluguelDAO.buscarTodos();
+                    response.header(CABECALHO_VERSAO_SINCRONIZACAO, String.valueOf(todos.getVersao()));
+                    return listaAlugueis(request, response, todos.getAlterados());
+                }
+                return listaAlugueis(request, response, AluguelDAO.buscar(filtro));
+
+            } catch (IllegalArgumentException e) {
+                response.status(400);
+                return "{\"mensagem\": \"Parâmetro de consulta inválido: " + e.getMessage() + "\"}";
+            }
+        });
+
+        // GET /Aluguel/detalhado - Locações com nome do cliente e dados da quadra (um único JOIN)
+        // Aceita os mesmos filtros e a mesma paginação do GET /Aluguel.
+        // Registrada antes de /Aluguel/:id para não ser capturada por ela.
+        get("/Aluguel/detalhado", (request, response) -> {
+            try {
+                FiltroAluguel filtro = lerFiltroAluguel(request);
+                List<AluguelDetalhado> detalhados = AluguelDAO.buscarDetalhado(filtro != null ? filtro : new FiltroAluguel());
+                return aceitaBinario(request) ? binario(response, () -> EscritorBinario.detalhados(detalhados)) : json(detalhados);
+            } catch (IllegalArgumentException e) {
+                response.status(400);
+                return "{\"mensagem\": \"Parâmetro de consulta inválido: " + e.getMessage() + "\"}";
+            }
+        });
+
+        // GET /Aluguel/export.ndjson - Histórico completo (com o arquivo), uma locação por linha, em fluxo
+        // Filtros opcionais idCliente, idQuadra, dataInicio e dataFim; ?aposId=N retoma
+        // uma exportação interrompida depois do último id_locacao recebido (nas duas tabelas).
+        // ?incluirArquivo=false deixa de fora as locações arquivadas.
+        // Registrada antes de /Aluguel/:id para não ser capturada por ela.
+        get("/Aluguel/export.ndjson", (request, response) -> {
+            FiltroAluguel filtro;
+            try {
+                filtro = lerFiltroAluguel(request);
+                if (filtro == null) {
+                    filtro = new FiltroAluguel();
+                } else if (filtro.getLimite() != null || filtro.getIds() != null) {
+                    throw new IllegalArgumentException("limite e ids não se aplicam à exportação.");
+                }
+            } catch (IllegalArgumentException e) {
+                response.status(400);
+                return "{\"mensagem\": \"Parâmetro de consulta inválido: " + e.getMessage() + "\"}";
+            }
+
+            try {
+                boolean incluirArquivo = !"false".equalsIgnoreCase(request.queryParams("incluirArquivo"));
+                if (!ExportacaoLocacoes.exportar(AluguelDAO, filtro, incluirArquivo, request.raw(), response.raw())) {
+                    response.status(503);
+                    response.header("Retry-After", "30");
+                    return "{\"mensagem\": \"Limite de exportações simultâneas atingido. Tente novamente.\"}";
+                }
+                return "";
+            } catch (SQLException e) {
+                System.err.println("Erro ao exportar locacoes: " + e.getMessage());
+                response.status(500);
+                response.type(APPLICATION_JSON);
+                return "{\"mensagem\": \"Erro ao exportar as locações.\"}";
+            }
+        });
 
         // GET /Aluguel/:id - Buscar por ID (presume-se que o ID é o id_locacao)
         get("/Aluguel/:id", (Request request, Response response) -> {
             try {
                 Long idLocacao = Long.parseLong(request.params(":id"));
 
-                List<Aluguel> aluguel = AluguelDAO.buscarPorId(idLocacao);
+                Aluguel aluguel = carregadorAlugueis.buscar(idLocacao);
 
-                if (!aluguel.isEmpty()) {
-                    return gson.toJson(aluguel.get(0)); 
+                if (aluguel != null) {
+                    response.header("ETag", etag(aluguel.getVersaoAlteracao()));
+                    return json(aluguel);
                 } else {
                     response.status(404);
                     return "{\"mensagem\": \"Aluguel com ID " + idLocacao + " não encontrado\"}";
@@ -219,7 +920,10 @@ public class ApiQuadra {
                 AluguelDAO.inserir(novoAluguel);
 
                 response.status(201); // Created
-                return gson.toJson(novoAluguel);
+                response.header("ETag", etag(novoAluguel.getVersaoAlteracao()));
+                return json(novoAluguel);
+            } catch (PrazoExcedidoException e) {
+                throw e; // tratado como 504 em configurarPrazos()
             } catch (RuntimeException e) {
                  // Captura o erro customizado do DAO (ex: cliente já possui locação)
                 response.status(400); 
@@ -236,6 +940,13 @@ public class ApiQuadra {
         put("/Aluguel/:id", (request, response) -> {
             try {
                 Long id = Long.parseLong(request.params(":id")); 
+
+                String ifMatch = request.headers("If-Match");
+                if (ifMatch == null) {
+                    response.status(428); // Precondition Required
+                    return MENSAGEM_SEM_IF_MATCH;
+                }
+                Long versaoEsperada = versaoDoIfMatch(ifMatch);
                 
                 if (AluguelDAO.buscarPorId(id).isEmpty()) {
                     response.status(404);
@@ -245,14 +956,23 @@ public class ApiQuadra {
                 Aluguel aluguelParaAtualizar = gson.fromJson(request.body(), Aluguel.class);
                 aluguelParaAtualizar.setId_locacao(id); // Usa o ID da URL
 
-                AluguelDAO.atualizar(aluguelParaAtualizar);
+                AluguelDAO.atualizar(aluguelParaAtualizar, versaoEsperada);
 
                 response.status(200); // OK
-                return gson.toJson(aluguelParaAtualizar);
+                response.header("ETag", etag(aluguelParaAtualizar.getVersaoAlteracao()));
+                return json(aluguelParaAtualizar);
 
             } catch (NumberFormatException e) {
                 response.status(400); // Bad Request
                 return "{\"mensagem\": \"Formato de ID inválido.\"}";
+            } catch (IllegalArgumentException e) {
+                response.status(400);
+                return "{\"mensagem\": \"" + e.getMessage() + "\"}";
+            } catch (VersaoDivergenteException e) {
+                response.status(412); // Precondition Failed
+                return "{\"mensagem\": \"A locação foi alterada por outra pessoa. Recarregue e tente novamente.\"}";
+            } catch (PrazoExcedidoException e) {
+                throw e; // tratado como 504 em configurarPrazos()
             } catch (Exception e) {
                 response.status(500);
                 System.err.println("Erro ao processar requisição PUT: " + e.getMessage());
@@ -283,12 +1003,89 @@ public class ApiQuadra {
                 // Adicionada para o erro 409
                 response.status(409);
                 return "{\"mensagem\": \"Não é possível excluir este aluguel pois ele está vinculado a outros registros.\"}";
+            } catch (PrazoExcedidoException e) {
+                throw e; // tratado como 504 em configurarPrazos()
             } catch (Exception e) {
                 response.status(500);
                 return "{\"mensagem\": \"Erro ao deletar aluguel: " + e.getMessage() + "\"}";
             }
         });
 
-        System.out.println("API de Quadras iniciada na porta 4567.");
+        // ===============================================
+        // 4. ROTAS ADMINISTRATIVAS
+        // ===============================================
+
+        // GET /admin/diario.ndjson - Exporta o diário de mutações, um registro por linha
+        get("/admin/diario.ndjson", (request, response) -> {
+            if (diario == null) {
+                response.status(404);
+                return "{\"mensagem\": \"Diário de mutações desativado.\"}";
+            }
+
+            // O que já foi enfileirado entra na exportação. Com falhas de gravação o diário
+            // íntegro continua sendo exportado e as lacunas vão nos cabeçalhos:
+            // X-Diario-Registros-Perdidos (total), X-Diario-Lacunas ("sequência:registros"
+            // perdidos depois de cada sequência, as mais recentes) e X-Diario-Erro (último
+            // lote falhou). Registros de um lote cujo force() falhou podem aparecer sem confirmação
+            diario.descarregar(1000);
+
+            if (diario.getNaoGravados() > 0) {
+                response.header("X-Diario-Registros-Perdidos", String.valueOf(diario.getNaoGravados()));
+                response.header("X-Diario-Lacunas", diario.getLacunas().stream()
+                        .map(String::valueOf).collect(Collectors.joining(",")));
+            }
+            if (diario.getErro() != null) {
+                response.header("X-Diario-Erro", diario.getErro().replaceAll("[^\\x20-\\x7e]", "?"));
+            }
+
+            response.type("application/x-ndjson");
+            LeitorDiario.exportarNdjson(diario.getDiretorio(), response.raw().getOutputStream());
+            return "";
+        });
+
+        // GET /admin/queries?top=20&ordem=total - Comandos SQL mais custosos, por impressão digital
+        // (ordem: total, max, p99 ou contagem; ver monitoramento.EstatisticasConsultas).
+        // Mostra o texto dos comandos (o esquema do banco): protegida por configurarAdmin()
+        get("/admin/queries", (request, response) -> {
+            try {
+                String top = request.queryParams("top");
+                int limite = top != null ? Integer.parseInt(top) : 20;
+                if (limite < 1) {
+                    throw new IllegalArgumentException("top deve ser maior que zero.");
+                }
+                return json(EstatisticasConsultas.relatorio(limite, request.queryParams("ordem")));
+            } catch (IllegalArgumentException e) {
+                response.status(400);
+                return "{\"mensagem\": \"Parâmetro de consulta inválido: " + e.getMessage() + "\"}";
+            }
+        });
+
+        // DELETE /admin/queries - Zera as estatísticas (ex: antes de um teste de carga); idem
+        delete("/admin/queries", (request, response) -> {
+            EstatisticasConsultas.zerar();
+            response.status(204);
+            return "";
+        });
+
+        System.out.println("API de Quadras iniciada na porta " + porta + ".");
+
+        // Locações antigas vão para o arquivo em segundo plano (ver ArquivamentoLocacoes)
+        ArquivamentoLocacoes.iniciar(AluguelDAO);
+
+        // ===============================================
+        // 5. AQUECIMENTO (em segundo plano; /pronto responde 503 até terminar)
+        // Desative com -Daquecimento.ativo=false
+        // ===============================================
+        if (Boolean.parseBoolean(System.getProperty("aquecimento.ativo", "true"))) {
+            Thread aquecimento = new Thread(() -> {
+                awaitInitialization();
+                Aquecimento.executar(dao, AluguelDAO, armazenamentoMemoria == null, port());
+                CicloDeVida.marcarPronto();
+            }, "aquecimento");
+            aquecimento.setDaemon(true);
+            aquecimento.start();
+        } else {
+            CicloDeVida.marcarPronto();
+        }
     }
 }
\ No newline at end of file
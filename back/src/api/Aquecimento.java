@@ -0,0 +1,209 @@
+package api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+import dao.AluguelDAO;
+import dao.AluguelRepositorio;
+import dao.ClienteRepositorio;
+import dao.FiltroAluguel;
+import model.Aluguel;
+import model.AluguelDetalhado;
+import model.Cliente;
+import model.SincronizacaoAluguel;
+import util.ConnectionFactory;
+import util.GsonUtil;
+import util.PoolConexoes;
+
+// Aquecimento depois de cada deploy, antes de o GET /pronto responder 200:
+// 1. abre as conexões mínimas dos pools e prepara as consultas quentes em cada uma;
+// 2. pré-carrega os dados de referência (índices de clientes e de locações ativas,
+//    locações recentes com cliente e quadra);
+// 3. serializa objetos sintéticos (adaptadores do Gson + JIT);
+// 4. faz chamadas HTTP de leitura à própria API (filtros, rotas, Jetty).
+// É "melhor esforço": uma falha é registrada e a instância fica pronta mesmo assim.
+final class Aquecimento {
+
+    // Conexões abertas por pool na subida. -Daquecimento.conexoes=N
+    private static final int CONEXOES = Integer.getInteger("aquecimento.conexoes", 2);
+
+    // Repetições da serialização sintética. -Daquecimento.iteracoes=N
+    private static final int ITERACOES = Integer.getInteger("aquecimento.iteracoes", 2000);
+
+    // Chamadas HTTP à própria API. -Daquecimento.requisicoes=N
+    private static final int REQUISICOES = Integer.getInteger("aquecimento.requisicoes", 200);
+
+    // Dias de locações pré-carregadas
+    private static final int DIAS_RECENTES = 30;
+
+    // Rotas de leitura chamadas no aquecimento (nenhuma escreve)
+    private static final List<String> ROTAS = Arrays.asList(
+            "/cliente/busca?q=a&limite=10",
+            "/Aluguel?limite=20",
+            "/Aluguel/detalhado?limite=20",
+            "/Aluguel/1");
+
+    // Destino do resultado da serialização sintética
+    private static volatile int sumidouro;
+
+    private Aquecimento() {
+    }
+
+    static void executar(ClienteRepositorio clientes, AluguelRepositorio alugueis, boolean usaMysql, int porta) {
+
+        long inicio = System.nanoTime();
+
+        if (usaMysql) {
+            etapa("pools de conexão", Aquecimento::aquecerPools);
+        }
+        etapa("dados de referência", () -> preCarregar(clientes, alugueis));
+        etapa("serialização", Aquecimento::aquecerSerializacao);
+        etapa("rotas HTTP", () -> chamarRotas(porta));
+
+        System.out.println("Aquecimento concluído em " + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+    }
+
+    @FunctionalInterface
+    private interface Etapa {
+        void executar() throws Exception;
+    }
+
+    private static void etapa(String nome, Etapa etapa) {
+        long inicio = System.nanoTime();
+        try {
+            etapa.executar();
+            System.out.println("Aquecimento: " + nome + " em " + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        } catch (Exception e) {
+            System.err.println("Aquecimento: falha em " + nome + ": " + e.getMessage());
+        }
+    }
+
+    // ======================================//
+    // 1. POOLS E CONSULTAS PREPARADAS
+    // Com cachePrepStmts/useServerPrepStmts na db.url, o driver guarda as consultas
+    // preparadas aqui no cache de cada conexão.
+    // ======================================//
+    private static void aquecerPools() throws SQLException {
+
+        List<PoolConexoes> pools = new ArrayList<>();
+        pools.add(ConnectionFactory.getPrimario());
+        pools.addAll(ConnectionFactory.getReplicas());
+
+        for (PoolConexoes pool : pools) {
+            pool.preencher(CONEXOES);
+
+            // Empresta todas ao mesmo tempo, para passar por cada conexão física
+            List<Connection> emprestadas = new ArrayList<>();
+            try {
+                for (int i = 0; i < Math.min(CONEXOES, pool.getTamanhoMaximo()); i++) {
+                    emprestadas.add(pool.obter());
+                }
+                for (Connection conn : emprestadas) {
+                    for (String sql : AluguelDAO.CONSULTAS_QUENTES) {
+                        conn.prepareStatement(sql).close(); // só preparar
+                    }
+                }
+            } finally {
+                for (Connection conn : emprestadas) {
+                    conn.close();
+                }
+            }
+        }
+    }
+
+    // ======================================//
+    // 2. DADOS DE REFERÊNCIA
+    // ======================================//
+    private static void preCarregar(ClienteRepositorio clientes, AluguelRepositorio alugueis) {
+
+        // Carrega o índice da busca de clientes
+        clientes.buscarPorTermo("a", 1);
+
+        // Carrega o índice de clientes com locação ativa (regra do POST /Aluguel)
+        alugueis.clienteJaPossuiLocacao(0L);
+
+        // Locações recentes com cliente e quadra (páginas de dados e caminho do JOIN)
+        FiltroAluguel filtro = new FiltroAluguel();
+        filtro.setDataInicio(Date.valueOf(LocalDate.now().minusDays(DIAS_RECENTES)));
+        filtro.setLimite(FiltroAluguel.LIMITE_MAXIMO);
+        alugueis.buscarDetalhado(filtro);
+    }
+
+    // ======================================//
+    // 3. SERIALIZAÇÃO SINTÉTICA
+    // ======================================//
+    private static void aquecerSerializacao() {
+
+        Gson gson = GsonUtil.getGson();
+        Date hoje = Date.valueOf(LocalDate.now());
+
+        List<Aluguel> alugueis = new ArrayList<>();
+        List<AluguelDetalhado> detalhados = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            alugueis.add(new Aluguel(i, 1L, i, hoje, 75.0, i));
+
+            AluguelDetalhado detalhado = new AluguelDetalhado();
+            detalhado.setId_locacao(i);
+            detalhado.setDataLocacao(hoje);
+            detalhado.setPreco(90.0);
+            detalhado.setIdCliente(i);
+            detalhado.setNomeCliente("Cliente " + i);
+            detalhado.setTelefoneCliente("11999990000");
+            detalhado.setIdQuadra(2L);
+            detalhado.setCoberturaQuadra("Sintético");
+            detalhado.setTamanhoQuadra("Oficial Dupla");
+            detalhado.setPrecoQuadra(90.0);
+            detalhados.add(detalhado);
+        }
+        SincronizacaoAluguel sincronizacao = new SincronizacaoAluguel(20L, alugueis, Arrays.asList(3L, 7L));
+        Cliente cliente = new Cliente(1L, "Cliente 1", "11999990000");
+
+        // Ida e volta: os corpos de POST/PUT passam pelo fromJson
+        String corpoAluguel = "{\"idQuadra\":1,\"idCliente\":1,\"dataLocacao\":\"" + hoje + "\",\"preco\":75.0}";
+        String corpoCliente = gson.toJson(cliente);
+
+        int total = 0;
+        for (int i = 0; i < ITERACOES; i++) {
+            total += gson.toJson(alugueis).length();
+            total += gson.toJson(detalhados).length();
+            total += gson.toJson(sincronizacao).length();
+            total += gson.fromJson(corpoAluguel, Aluguel.class).getIdCliente().intValue();
+            total += gson.fromJson(corpoCliente, Cliente.class).getNome().length();
+        }
+
+        // Usa o resultado para o JIT não descartar o laço
+        sumidouro = total;
+    }
+
+    // ======================================//
+    // 4. CHAMADAS HTTP À PRÓPRIA API
+    // ======================================//
+    private static void chamarRotas(int porta) throws Exception {
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+
+        for (int i = 0; i < REQUISICOES; i++) {
+            String rota = ROTAS.get(i % ROTAS.size());
+            HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + rota))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("X-Operador", "aquecimento")
+                    .GET()
+                    .build();
+            cliente.send(requisicao, HttpResponse.BodyHandlers.discarding());
+        }
+    }
+}
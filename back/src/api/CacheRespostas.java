@@ -0,0 +1,226 @@
+package api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import dao.Mutacao;
+import monitoramento.EventoSerializacao;
+import monitoramento.Rastreamento;
+
+// Cache das respostas já codificadas das listagens (GET /cliente, GET /Aluguel,
+// GET /Aluguel/detalhado), por rota e query string, em JSON puro e em gzip.
+// - O gzip é feito no primeiro pedido que aceita gzip (e guardado na entrada): um
+//   miss que nem entra no cache, ou que só é lido em JSON puro, não comprime nada.
+// - Invalidação pelas escritas dos DAOs (Mutacoes): cliente limpa /cliente e
+//   /Aluguel/detalhado; locacao limpa /Aluguel e /Aluguel/detalhado.
+// - Cada entrada guarda as gerações de clientes/locações lidas antes da consulta;
+//   se uma escrita acontecer no meio, a entrada é descartada (nunca fica velha).
+// - Com réplicas de leitura, a consulta que repõe uma entrada logo depois de uma
+//   escrita vai ao primário (a réplica pode ainda não ter a escrita); entradas lidas
+//   de réplica valem no máximo -Dcache.ttlReplicaMs.
+// - Um acerto escreve o byte[] guardado direto no HttpServletResponse: com a
+//   resposta já enviada, o Spark não serializa (nem comprime) de novo.
+final class CacheRespostas {
+
+    static final int CLIENTES = 1;
+    static final int LOCACOES = 2;
+
+    private static final int MAXIMO_ENTRADAS_POR_ROTA = Integer.getInteger("cache.maxEntradasPorRota", 256);
+    private static final int MAXIMO_BYTES_POR_ENTRADA = Integer.getInteger("cache.maxBytesPorEntrada", 8 * 1024 * 1024);
+
+    // Por quanto tempo depois de uma escrita as reposições leem do primário (atraso tolerado das réplicas)
+    private static final long JANELA_PRIMARIO_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("cache.janelaPrimarioMs", 10000));
+
+    // Validade das entradas lidas de uma réplica
+    private static final long TTL_REPLICA_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("cache.ttlReplicaMs", 30000));
+
+    // Rota -> dependências (CLIENTES | LOCACOES)
+    private static final Map<String, Integer> ROTAS = Map.of(
+            "/cliente", CLIENTES,
+            "/Aluguel", LOCACOES,
+            "/Aluguel/detalhado", CLIENTES | LOCACOES);
+
+    // Rota -> query string ("" quando não há) -> resposta
+    private static final Map<String, ConcurrentHashMap<String, Entrada>> entradas = new ConcurrentHashMap<>();
+
+    private static final AtomicLong geracaoClientes = new AtomicLong();
+    private static final AtomicLong geracaoLocacoes = new AtomicLong();
+
+    // Instante (System.nanoTime) da última escrita em cada entidade
+    private static volatile long ultimaEscritaClientes = System.nanoTime() - JANELA_PRIMARIO_NANOS;
+    private static volatile long ultimaEscritaLocacoes = System.nanoTime() - JANELA_PRIMARIO_NANOS;
+
+    private CacheRespostas() {
+    }
+
+    static final class Entrada {
+        final byte[] json;
+        private volatile byte[] gzip; // null até o primeiro pedido com gzip
+        final long geracaoClientes;
+        final long geracaoLocacoes;
+        final long expiraNanos; // 0 = não expira (lida do primário)
+        final String versaoSincronizacao; // X-Versao-Sincronizacao da resposta (ou null)
+
+        Entrada(byte[] json, String versaoSincronizacao, long geracaoClientes, long geracaoLocacoes,
+                long expiraNanos) {
+            this.json = json;
+            this.versaoSincronizacao = versaoSincronizacao;
+            this.geracaoClientes = geracaoClientes;
+            this.geracaoLocacoes = geracaoLocacoes;
+            this.expiraNanos = expiraNanos;
+        }
+
+        // Comprime uma vez só, mesmo com vários acertos simultâneos
+        byte[] gzip() throws IOException {
+            byte[] comprimido = gzip;
+            if (comprimido == null) {
+                synchronized (this) {
+                    comprimido = gzip;
+                    if (comprimido == null) {
+                        comprimido = comprimir(json);
+                        gzip = comprimido;
+                    }
+                }
+            }
+            return comprimido;
+        }
+
+        boolean isExpirada() {
+            return expiraNanos != 0 && System.nanoTime() - expiraNanos >= 0;
+        }
+    }
+
+    static boolean isCacheavel(String rota) {
+        return ROTAS.containsKey(rota);
+    }
+
+    static Entrada buscar(String rota, String query) {
+        Map<String, Entrada> porQuery = entradas.get(rota);
+        if (porQuery == null) {
+            return null;
+        }
+        String chave = query != null ? query : "";
+        Entrada entrada = porQuery.get(chave);
+        if (entrada != null && entrada.isExpirada()) {
+            porQuery.remove(chave, entrada);
+            return null;
+        }
+        return entrada;
+    }
+
+    // true se alguma entidade da rota foi escrita há menos de cache.janelaPrimarioMs:
+    // a reposição deve ler do primário
+    static boolean isRecemAlterada(String rota) {
+        int dependencias = ROTAS.get(rota);
+        long agora = System.nanoTime();
+        return ((dependencias & CLIENTES) != 0 && agora - ultimaEscritaClientes < JANELA_PRIMARIO_NANOS)
+                || ((dependencias & LOCACOES) != 0 && agora - ultimaEscritaLocacoes < JANELA_PRIMARIO_NANOS);
+    }
+
+    // Gerações atuais, lidas antes da consulta ao banco: {clientes, locações}
+    static long[] geracoes() {
+        return new long[] { geracaoClientes.get(), geracaoLocacoes.get() };
+    }
+
+    // Codifica e guarda a resposta, a menos que uma escrita tenha acontecido desde "geracoes"
+    // (a versão da sincronização vai junto: ela e o corpo vêm da mesma leitura)
+    static Entrada guardar(String rota, String query, String corpo, String versaoSincronizacao, long[] geracoes,
+            boolean lidaDeReplica) {
+
+        byte[] json = corpo.getBytes(StandardCharsets.UTF_8);
+        long expira = lidaDeReplica ? (System.nanoTime() + TTL_REPLICA_NANOS) | 1 : 0;
+        Entrada entrada = new Entrada(json, versaoSincronizacao, geracoes[0], geracoes[1], expira);
+
+        if (json.length > MAXIMO_BYTES_POR_ENTRADA || !valida(rota, entrada)) {
+            return entrada;
+        }
+
+        ConcurrentHashMap<String, Entrada> porQuery = entradas.computeIfAbsent(rota, r -> new ConcurrentHashMap<>());
+        if (porQuery.size() >= MAXIMO_ENTRADAS_POR_ROTA) {
+            return entrada;
+        }
+
+        String chave = query != null ? query : "";
+        porQuery.put(chave, entrada);
+
+        // A invalidação pode ter limpado o mapa entre a verificação e o put
+        if (!valida(rota, entrada)) {
+            porQuery.remove(chave, entrada);
+        }
+        return entrada;
+    }
+
+    // Escreve a representação aceita pelo cliente (gzip ou JSON puro) e envia a resposta
+    static void escrever(Entrada entrada, boolean aceitaGzip, HttpServletResponse resposta) throws IOException {
+
+        byte[] bytes = aceitaGzip ? entrada.gzip() : entrada.json;
+
+        resposta.setHeader("Vary", "Accept, Accept-Encoding");
+        if (entrada.versaoSincronizacao != null) {
+            resposta.setHeader(ApiQuadra.CABECALHO_VERSAO_SINCRONIZACAO, entrada.versaoSincronizacao);
+        }
+        if (aceitaGzip) {
+            resposta.setHeader("Content-Encoding", "gzip");
+        }
+        resposta.setContentLength(bytes.length);
+        Rastreamento.serverTiming(resposta);
+
+        ServletOutputStream saida = resposta.getOutputStream();
+        saida.write(bytes);
+        resposta.flushBuffer();
+    }
+
+    // Chamado por Mutacoes depois de cada escrita confirmada
+    static void invalidar(Mutacao mutacao) {
+
+        int afetadas;
+        if ("cliente".equals(mutacao.getEntidade())) {
+            ultimaEscritaClientes = System.nanoTime();
+            geracaoClientes.incrementAndGet();
+            afetadas = CLIENTES;
+        } else if ("locacao".equals(mutacao.getEntidade())) {
+            ultimaEscritaLocacoes = System.nanoTime();
+            geracaoLocacoes.incrementAndGet();
+            afetadas = LOCACOES;
+        } else {
+            return;
+        }
+
+        for (Map.Entry<String, Integer> rota : ROTAS.entrySet()) {
+            if ((rota.getValue() & afetadas) != 0) {
+                Map<String, Entrada> porQuery = entradas.get(rota.getKey());
+                if (porQuery != null) {
+                    porQuery.clear();
+                }
+            }
+        }
+    }
+
+    private static boolean valida(String rota, Entrada entrada) {
+        int dependencias = ROTAS.get(rota);
+        return ((dependencias & CLIENTES) == 0 || entrada.geracaoClientes == geracaoClientes.get())
+                && ((dependencias & LOCACOES) == 0 || entrada.geracaoLocacoes == geracaoLocacoes.get());
+    }
+
+    @SuppressWarnings("try") // o trecho só delimita o tempo medido
+    private static byte[] comprimir(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        EventoSerializacao evento = EventoSerializacao.iniciar();
+        try (Rastreamento.Trecho trecho = Rastreamento.trecho(Rastreamento.SERIALIZACAO, "gzip do cache");
+                GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        }
+        byte[] comprimido = bytes.toByteArray();
+        evento.encerrar("gzip", comprimido);
+        return comprimido;
+    }
+}
@@ -0,0 +1,75 @@
+package api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Estado da instância da API, exposto em GET /pronto para o balanceador.
+// AQUECENDO -> PRONTO (fim do aquecimento) -> ENCERRANDO (desligamento).
+// Também conta as requisições em andamento, para o desligamento esperar por elas.
+public final class CicloDeVida {
+
+    public enum Estado {
+        AQUECENDO, PRONTO, ENCERRANDO
+    }
+
+    private static volatile Estado estado = Estado.AQUECENDO;
+
+    // Contador distribuído (LongAdder): cada thread do Jetty incrementa sem disputar a mesma linha de cache
+    private static final LongAdder emAndamento = new LongAdder();
+
+    private CicloDeVida() {
+    }
+
+    public static Estado getEstado() {
+        return estado;
+    }
+
+    public static boolean isPronto() {
+        return estado == Estado.PRONTO;
+    }
+
+    public static boolean isEncerrando() {
+        return estado == Estado.ENCERRANDO;
+    }
+
+    // Só sai de AQUECENDO: um desligamento em andamento não volta a ficar pronto
+    static synchronized void marcarPronto() {
+        if (estado == Estado.AQUECENDO) {
+            estado = Estado.PRONTO;
+        }
+    }
+
+    // A partir daqui o /pronto responde 503 e novas requisições são recusadas
+    static synchronized void iniciarEncerramento() {
+        estado = Estado.ENCERRANDO;
+    }
+
+    // ======================================//
+    // REQUISIÇÕES EM ANDAMENTO
+    // ======================================//
+    static void entrar() {
+        emAndamento.increment();
+    }
+
+    static void sair() {
+        emAndamento.decrement();
+    }
+
+    public static long getEmAndamento() {
+        return emAndamento.sum();
+    }
+
+    // Espera as requisições em andamento terminarem; false se o tempo acabar antes
+    static boolean aguardarDrenagem(long timeoutMs) throws InterruptedException {
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        while (emAndamento.sum() > 0) {
+            if (System.nanoTime() - limite >= 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
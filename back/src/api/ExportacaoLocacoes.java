@@ -0,0 +1,95 @@
+package api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.Gson;
+
+import dao.AluguelRepositorio;
+import dao.FiltroAluguel;
+import model.Aluguel;
+import monitoramento.Rastreamento;
+import util.GsonUtil;
+
+// Exportação do histórico de locações em NDJSON (GET /Aluguel/export.ndjson).
+// - Uma locação por linha, do resultado em fluxo (AluguelRepositorio.exportar) direto
+//   para o socket: sem Content-Length o Jetty usa chunked, e a memória do servidor não
+//   cresce com o tamanho do histórico.
+// - Descarrega a cada -Dexportacao.linhasPorFlush linhas (padrão 500): o cliente recebe
+//   os registros enquanto a leitura continua e sabe o último id_locacao recebido.
+// - Inclui as locações já arquivadas (locacao_arquivo), intercaladas em ordem de
+//   id_locacao com as da tabela quente; ?incluirArquivo=false exporta só a quente.
+// - Retomada: ?aposId=<último id_locacao recebido> continua depois dele, nas duas
+//   tabelas (o id não muda ao arquivar, e a ordem é a mesma). Repita o incluirArquivo.
+// - Cada exportação prende uma conexão do pool até terminar: no máximo
+//   -Dexportacao.simultaneas (padrão 2) ao mesmo tempo.
+// - Falha depois do início do envio: a conexão é abortada sem o chunk final, e o
+//   cliente vê o corte em vez de um arquivo incompleto que parece inteiro.
+final class ExportacaoLocacoes {
+
+    static final String TIPO_MIME = "application/x-ndjson";
+
+    private static final int LINHAS_POR_FLUSH = Integer.getInteger("exportacao.linhasPorFlush", 500);
+
+    private static final Semaphore simultaneas = new Semaphore(Integer.getInteger("exportacao.simultaneas", 2));
+
+    private ExportacaoLocacoes() {
+    }
+
+    // false se o limite de exportações simultâneas foi atingido (nada foi escrito).
+    // Falha antes do início do envio é propagada com o buffer limpo, para a rota responder o erro.
+    static boolean exportar(AluguelRepositorio repositorio, FiltroAluguel filtro, boolean incluirArquivo,
+            HttpServletRequest requisicao, HttpServletResponse resposta) throws SQLException, IOException {
+
+        if (!simultaneas.tryAcquire()) {
+            return false;
+        }
+
+        long inicio = System.nanoTime();
+        long[] linhas = { 0 };
+
+        try {
+            resposta.setStatus(200);
+            resposta.setContentType(TIPO_MIME + "; charset=UTF-8");
+            resposta.setHeader("Cache-Control", "no-store");
+            // o primeiro flush envia os cabeçalhos: o Server-Timing cobre só o que vem antes
+            Rastreamento.serverTiming(resposta);
+
+            Gson gson = GsonUtil.getGson();
+            Writer saida = new BufferedWriter(
+                    new OutputStreamWriter(resposta.getOutputStream(), StandardCharsets.UTF_8), 16 * 1024);
+
+            repositorio.exportar(filtro, incluirArquivo, aluguel -> {
+                gson.toJson(aluguel, Aluguel.class, saida);
+                saida.write('\n');
+                // flush do Writer também descarrega o ServletOutputStream: vira um chunk
+                if (++linhas[0] % LINHAS_POR_FLUSH == 0) {
+                    saida.flush();
+                }
+            });
+            saida.flush();
+
+            System.out.println("Exportação NDJSON: " + linhas[0] + " locações em "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (!resposta.isCommitted()) {
+                resposta.resetBuffer();
+                throw e;
+            }
+            System.err.println("Exportação NDJSON interrompida após " + linhas[0] + " locações: " + e.getMessage());
+            org.eclipse.jetty.server.Request.getBaseRequest(requisicao).getHttpChannel().abort(e);
+        } finally {
+            simultaneas.release();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+package api;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+// Jetty embutido do Spark montado com parâmetros externos (ver util.Configuracao):
+//   jetty.threads.minimo / jetty.threads.maximo   pool de threads (padrão: núcleos / 200)
+//   jetty.threads.ociosidade.ms                   tempo até uma thread ociosa sair
+//   jetty.fila                                    fila de tarefas (0 = sem limite)
+//   jetty.aceitadores / jetty.seletores           -1 = cálculo automático do Jetty
+//   jetty.ociosidade.ms                           keep-alive: conexão ociosa é fechada
+//   jetty.cabecalho.bytes                         tamanho máximo dos cabeçalhos
+//   jetty.h2c                                     HTTP/2 sem TLS (precisa do jetty-http2-server)
+// O conector criado aqui substitui o padrão do Spark (o EmbeddedJettyServer só cria
+// o seu quando o Server vem sem conectores).
+final class ServidorJetty implements JettyServerFactory {
+
+    private static final String CLASSE_H2C = "org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory";
+
+    private final String host;
+    private final int porta;
+
+    private ServidorJetty(String host, int porta) {
+        this.host = host;
+        this.porta = porta;
+    }
+
+    // Registra a fábrica no Spark; precisa vir antes da primeira rota
+    static void registrar(String host, int porta) {
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), new EmbeddedJettyFactory(new ServidorJetty(host, porta)));
+    }
+
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        return create(null);
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+
+        int nucleos = Runtime.getRuntime().availableProcessors();
+
+        int maximo = Integer.getInteger("jetty.threads.maximo", 200);
+        int minimo = Math.min(maximo, Integer.getInteger("jetty.threads.minimo", Math.max(8, nucleos)));
+        int ociosidadeThreads = Integer.getInteger("jetty.threads.ociosidade.ms", 60000);
+        int fila = Integer.getInteger("jetty.fila", 0);
+
+        QueuedThreadPool pool = fila > 0
+                ? new QueuedThreadPool(maximo, minimo, ociosidadeThreads, new BlockingArrayQueue<>(fila, fila, fila))
+                : new QueuedThreadPool(maximo, minimo, ociosidadeThreads);
+        pool.setName("jetty-api");
+
+        Server server = new Server(pool);
+
+        HttpConfiguration http = new HttpConfiguration();
+        http.setRequestHeaderSize(Integer.getInteger("jetty.cabecalho.bytes", 8192));
+        http.setSendServerVersion(false);
+
+        HttpConnectionFactory http1 = new HttpConnectionFactory(http);
+        ConnectionFactory h2c = Boolean.getBoolean("jetty.h2c") ? criarH2c(http) : null;
+
+        ServerConnector conector = h2c != null
+                ? new ServerConnector(server, Integer.getInteger("jetty.aceitadores", -1),
+                        Integer.getInteger("jetty.seletores", -1), http1, h2c)
+                : new ServerConnector(server, Integer.getInteger("jetty.aceitadores", -1),
+                        Integer.getInteger("jetty.seletores", -1), http1);
+        conector.setHost(host);
+        conector.setPort(porta);
+        conector.setIdleTimeout(Long.getLong("jetty.ociosidade.ms", 30000));
+        server.addConnector(conector);
+
+        System.out.println("Jetty: " + nucleos + " núcleos, threads " + minimo + ".." + maximo
+                + " (ociosidade " + ociosidadeThreads + " ms, fila " + (fila > 0 ? fila : "sem limite") + ")"
+                + ", aceitadores " + conector.getAcceptors()
+                + ", seletores " + conector.getSelectorManager().getSelectorCount()
+                + ", keep-alive " + conector.getIdleTimeout() + " ms"
+                + ", cabeçalho " + http.getRequestHeaderSize() + " bytes"
+                + ", protocolos " + conector.getProtocols() + ".");
+        return server;
+    }
+
+    // O jetty-http2-server não está no lib/: carregado por reflexão quando presente
+    private static ConnectionFactory criarH2c(HttpConfiguration http) {
+        try {
+            return (ConnectionFactory) Class.forName(CLASSE_H2C)
+                    .getConstructor(HttpConfiguration.class)
+                    .newInstance(http);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Jetty: jetty.h2c=true, mas o jetty-http2-server não está no classpath; seguindo só com HTTP/1.1.");
+            return null;
+        }
+    }
+}
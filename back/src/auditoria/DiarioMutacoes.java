@@ -0,0 +1,325 @@
+package auditoria;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+import com.google.gson.Gson;
+
+import dao.Mutacao;
+import util.GsonUtil;
+
+// Diário de mutações (auditoria) gravado em arquivos mapeados em memória.
+// - As threads das requisições só enfileiram (fila sem lock) e seguem em frente.
+// - Uma única thread escritora grava os registros no segmento atual e faz um único
+//   force() (fsync) por lote: várias escritas pagam um fsync só (group commit).
+// - Cada registro: int tamanho | int CRC32C do payload | payload (ver RegistroDiario).
+//   Tamanho 0 marca o fim dos dados do segmento (o arquivo nasce zerado).
+// - Segmento cheio: o escritor passa para o próximo arquivo (diario-00000002.seg, ...).
+// - Um lote que falha (gravação ou force) não conta como gravado: vira uma lacuna
+//   (getLacunas: depois de qual sequência e quantos registros) e descarregar() devolve
+//   false para a janela em que a falha aconteceu. O erro vale até o próximo lote gravado
+//   (getErro): o diário volta a ser confirmado sem precisar reiniciar a API.
+// O operador de cada registro é o que a ApiQuadra informa: o cabeçalho X-Operador é
+// declarado pelo cliente (não autenticado) e vai junto com o IP de origem.
+public class DiarioMutacoes {
+
+    static final int CABECALHO = 8;
+    static final String PREFIXO = "diario-";
+    static final String SUFIXO = ".seg";
+
+    // Registros gravados antes de cada force()
+    private static final int LOTE_MAXIMO = 1024;
+
+    // Lacunas guardadas para a exportação (as mais antigas saem; o total fica em naoGravados)
+    private static final int LACUNAS_MAXIMO = 64;
+
+    private static final Gson gson = GsonUtil.getGson();
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final long intervaloNanos;
+
+    private final ConcurrentLinkedQueue<RegistroDiario> fila = new ConcurrentLinkedQueue<>();
+    private final AtomicLong enfileirados = new AtomicLong();
+    private volatile long gravados = 0;
+    private volatile long naoGravados = 0;
+    private volatile String erro;
+    private final ArrayDeque<Lacuna> lacunas = new ArrayDeque<>();
+    private final Object monitorDescarga = new Object();
+
+    private final Thread escritor;
+    private volatile boolean ativo = true;
+
+    // Estado usado só pela thread escritora
+    private FileChannel canal;
+    private MappedByteBuffer segmento;
+    private int numeroSegmento;
+    private long proximaSequencia;
+    private final CRC32C crc = new CRC32C();
+
+    private DiarioMutacoes(Path diretorio, int tamanhoSegmento, long intervaloMs) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.escritor = new Thread(this::laco, "diario-mutacoes");
+        this.escritor.setDaemon(true);
+    }
+
+    // Abre o diário, continuando do fim do último segmento válido
+    public static DiarioMutacoes abrir(Path diretorio, int tamanhoSegmento, long intervaloMs) throws IOException {
+
+        Files.createDirectories(diretorio);
+
+        DiarioMutacoes diario = new DiarioMutacoes(diretorio, tamanhoSegmento, intervaloMs);
+        diario.recuperar();
+        diario.escritor.start();
+
+        System.out.println("Diário de mutações em " + diretorio.toAbsolutePath()
+                + " (segmento " + diario.numeroSegmento + ", próxima sequência " + diario.proximaSequencia + ").");
+        return diario;
+    }
+
+    // ======================================//
+    // ENFILEIRAMENTO (threads das requisições)
+    // ======================================//
+    public void registrar(Mutacao mutacao, String operador) {
+
+        if (!ativo) {
+            return;
+        }
+
+        RegistroDiario registro = new RegistroDiario(0, System.currentTimeMillis(),
+                mutacao.getOperacao().name(), mutacao.getEntidade(),
+                mutacao.getId() != null ? mutacao.getId() : 0,
+                operador, mutacao.getDetalhe(),
+                mutacao.getAntes() != null ? gson.toJson(mutacao.getAntes()) : null,
+                mutacao.getDepois() != null ? gson.toJson(mutacao.getDepois()) : null);
+
+        fila.offer(registro);
+        enfileirados.incrementAndGet();
+        LockSupport.unpark(escritor);
+    }
+
+    // Espera até que tudo o que foi enfileirado até agora tenha sido processado.
+    // false se o tempo acabou, se algum lote falhou durante a espera ou se o último lote
+    // falhou (lacunas antigas ficam em getLacunas, não travam as próximas descargas)
+    public boolean descarregar(long timeoutMs) throws InterruptedException {
+
+        long alvo = enfileirados.get();
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        synchronized (monitorDescarga) {
+            long perdidosAntes = naoGravados;
+            while (gravados + naoGravados < alvo) {
+                long restante = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+                if (restante <= 0) {
+                    return false;
+                }
+                LockSupport.unpark(escritor);
+                monitorDescarga.wait(restante);
+            }
+            return naoGravados == perdidosAntes && erro == null;
+        }
+    }
+
+    // Falha do último lote (null depois que um lote volta a ser gravado)
+    public String getErro() {
+        return erro;
+    }
+
+    // Lacunas mais recentes, da mais antiga para a mais nova
+    public List<Lacuna> getLacunas() {
+        synchronized (monitorDescarga) {
+            return new ArrayList<>(lacunas);
+        }
+    }
+
+    // Registros enfileirados que não chegaram confirmados ao disco
+    public long getNaoGravados() {
+        return naoGravados;
+    }
+
+    // Grava o que estiver pendente e encerra a thread escritora
+    public void fechar(long timeoutMs) throws InterruptedException {
+        descarregar(timeoutMs);
+        ativo = false;
+        LockSupport.unpark(escritor);
+        escritor.join(timeoutMs);
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    // ======================================//
+    // THREAD ESCRITORA
+    // ======================================//
+    private void laco() {
+
+        while (ativo || !fila.isEmpty()) {
+            int lote = 0;
+            long aposSequencia = proximaSequencia - 1;
+            RegistroDiario registro;
+
+            try {
+                // conta antes de gravar: numa falha, o registro que falhou entra no lote
+                while (lote < LOTE_MAXIMO && (registro = fila.poll()) != null) {
+                    lote++;
+                    gravar(registro);
+                }
+
+                if (lote > 0) {
+                    segmento.force();
+                    erro = null;
+                    concluir(lote, 0);
+                } else {
+                    LockSupport.parkNanos(intervaloNanos);
+                }
+
+            } catch (IOException | RuntimeException e) {
+                // Não derruba a API: o lote (inclusive o registro que falhou) vira uma lacuna
+                // depois da última sequência confirmada e o próximo lote tenta de novo
+                System.err.println("Erro ao gravar diário de mutações (" + lote + " registros perdidos): " + e.getMessage());
+                e.printStackTrace();
+                erro = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                synchronized (monitorDescarga) {
+                    if (lacunas.size() == LACUNAS_MAXIMO) {
+                        lacunas.removeFirst();
+                    }
+                    lacunas.addLast(new Lacuna(aposSequencia, lote, System.currentTimeMillis()));
+                }
+                concluir(0, lote);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // encerrando
+        }
+    }
+
+    private void concluir(int gravadosNoLote, int naoGravadosNoLote) {
+        synchronized (monitorDescarga) {
+            gravados += gravadosNoLote;
+            naoGravados += naoGravadosNoLote;
+            monitorDescarga.notifyAll();
+        }
+    }
+
+    private void gravar(RegistroDiario registro) throws IOException {
+
+        byte[] payload = registro.comSequencia(proximaSequencia).codificar();
+        int total = CABECALHO + payload.length;
+
+        if (total > tamanhoSegmento - CABECALHO) {
+            throw new IOException("Registro de " + total + " bytes maior que o segmento do diário.");
+        }
+
+        // Sempre sobra espaço para o marcador de fim (tamanho 0)
+        if (segmento.remaining() < total + 4) {
+            segmento.force();
+            canal.close();
+            abrirSegmento(numeroSegmento + 1, 0);
+        }
+
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+
+        segmento.putInt(payload.length);
+        segmento.putInt((int) crc.getValue());
+        segmento.put(payload);
+
+        proximaSequencia++;
+    }
+
+    // ======================================//
+    // RECUPERAÇÃO: acha o fim válido do último segmento
+    // ======================================//
+    private void recuperar() throws IOException {
+
+        List<Path> segmentos = LeitorDiario.listarSegmentos(diretorio);
+
+        if (segmentos.isEmpty()) {
+            proximaSequencia = 1;
+            abrirSegmento(1, 0);
+            return;
+        }
+
+        Path ultimo = segmentos.get(segmentos.size() - 1);
+        int numero = LeitorDiario.numeroDoSegmento(ultimo);
+
+        long[] ultimaSequencia = { 0 };
+        int fim;
+        try (FileChannel leitura = FileChannel.open(ultimo, StandardOpenOption.READ)) {
+            ByteBuffer dados = leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size());
+            fim = LeitorDiario.percorrer(dados, registro -> ultimaSequencia[0] = registro.getSequencia());
+        }
+
+        // Segmento vazio: a sequência continua do anterior
+        if (ultimaSequencia[0] == 0 && segmentos.size() > 1) {
+            LeitorDiario.lerSegmento(segmentos.get(segmentos.size() - 2),
+                    registro -> ultimaSequencia[0] = registro.getSequencia());
+        }
+
+        proximaSequencia = ultimaSequencia[0] + 1;
+        abrirSegmento(numero, fim);
+    }
+
+    private void abrirSegmento(int numero, int posicao) throws IOException {
+
+        Path arquivo = diretorio.resolve(String.format("%s%08d%s", PREFIXO, numero, SUFIXO));
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(tamanhoSegmento, canal.size()));
+        segmento.position(posicao);
+        numeroSegmento = numero;
+    }
+
+    // ======================================//
+    // LACUNA: registros perdidos depois de uma sequência
+    // ======================================//
+    public static class Lacuna {
+
+        private final long aposSequencia;
+        private final int registros;
+        private final long instanteMs;
+
+        Lacuna(long aposSequencia, int registros, long instanteMs) {
+            this.aposSequencia = aposSequencia;
+            this.registros = registros;
+            this.instanteMs = instanteMs;
+        }
+
+        public long getAposSequencia() {
+            return aposSequencia;
+        }
+
+        public int getRegistros() {
+            return registros;
+        }
+
+        public long getInstanteMs() {
+            return instanteMs;
+        }
+
+        // "sequência:registros", o formato do cabeçalho X-Diario-Lacunas
+        @Override
+        public String toString() {
+            return aposSequencia + ":" + registros;
+        }
+    }
+}
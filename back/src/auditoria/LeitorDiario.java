@@ -0,0 +1,192 @@
+package auditoria;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+// Leitura do diário de mutações: percorre os segmentos em ordem validando o CRC
+// de cada registro. Serve para exportar em NDJSON e para reconstruir o estado.
+//
+// Uso pela linha de comando:
+//   java auditoria.LeitorDiario <diretorio> ndjson   -> um registro JSON por linha
+//   java auditoria.LeitorDiario <diretorio> estado   -> último estado de cada entidade
+public class LeitorDiario {
+
+    private static final Pattern NOME_SEGMENTO = Pattern.compile(
+            Pattern.quote(DiarioMutacoes.PREFIXO) + "(\\d+)" + Pattern.quote(DiarioMutacoes.SUFIXO));
+
+    private static final Gson gson = new Gson();
+
+    // ======================================//
+    // SEGMENTOS
+    // ======================================//
+    static List<Path> listarSegmentos(Path diretorio) throws IOException {
+
+        List<Path> segmentos = new ArrayList<>();
+        if (!Files.isDirectory(diretorio)) {
+            return segmentos;
+        }
+
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.filter(p -> NOME_SEGMENTO.matcher(p.getFileName().toString()).matches())
+                    .sorted((a, b) -> Integer.compare(numeroDoSegmento(a), numeroDoSegmento(b)))
+                    .forEach(segmentos::add);
+        }
+        return segmentos;
+    }
+
+    static int numeroDoSegmento(Path arquivo) {
+        Matcher m = NOME_SEGMENTO.matcher(arquivo.getFileName().toString());
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Arquivo fora do padrão do diário: " + arquivo);
+        }
+        return Integer.parseInt(m.group(1));
+    }
+
+    // Percorre os registros válidos do buffer e devolve a posição onde eles acabam
+    // (tamanho 0, registro truncado ou CRC divergente = fim dos dados).
+    static int percorrer(ByteBuffer dados, Consumer<RegistroDiario> consumidor) {
+
+        CRC32C crc = new CRC32C();
+        int posicao = 0;
+
+        while (posicao + DiarioMutacoes.CABECALHO <= dados.limit()) {
+            int tamanho = dados.getInt(posicao);
+            int esperado = dados.getInt(posicao + 4);
+
+            if (tamanho <= 0 || posicao + DiarioMutacoes.CABECALHO + tamanho > dados.limit()) {
+                break;
+            }
+
+            ByteBuffer payload = dados.duplicate();
+            payload.position(posicao + DiarioMutacoes.CABECALHO).limit(posicao + DiarioMutacoes.CABECALHO + tamanho);
+
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != esperado) {
+                break;
+            }
+
+            consumidor.accept(RegistroDiario.decodificar(payload));
+            posicao += DiarioMutacoes.CABECALHO + tamanho;
+        }
+        return posicao;
+    }
+
+    static void lerSegmento(Path arquivo, Consumer<RegistroDiario> consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            percorrer(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()), consumidor);
+        }
+    }
+
+    // ======================================//
+    // LEITURA
+    // ======================================//
+    public static void ler(Path diretorio, Consumer<RegistroDiario> consumidor) throws IOException {
+        for (Path segmento : listarSegmentos(diretorio)) {
+            lerSegmento(segmento, consumidor);
+        }
+    }
+
+    // Um objeto JSON por linha, na ordem do diário
+    public static void exportarNdjson(Path diretorio, OutputStream saida) throws IOException {
+
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        IOException[] erro = { null };
+
+        ler(diretorio, registro -> {
+            if (erro[0] != null) {
+                return;
+            }
+            try {
+                escritor.write(gson.toJson(paraJson(registro)));
+                escritor.write('\n');
+            } catch (IOException e) {
+                erro[0] = e;
+            }
+        });
+
+        escritor.flush();
+        if (erro[0] != null) {
+            throw erro[0];
+        }
+    }
+
+    // Estado final de cada entidade ("cliente:7" -> JSON do último "depois").
+    // Entidades excluídas ficam fora do mapa.
+    public static Map<String, String> reconstruirEstado(Path diretorio) throws IOException {
+
+        Map<String, String> estado = new LinkedHashMap<>();
+
+        ler(diretorio, registro -> {
+            String chave = registro.getEntidade() + ":" + registro.getId();
+            if (registro.getDepois() == null) {
+                estado.remove(chave);
+            } else {
+                estado.put(chave, registro.getDepois());
+            }
+        });
+        return estado;
+    }
+
+    static JsonObject paraJson(RegistroDiario registro) {
+
+        JsonObject json = new JsonObject();
+        json.addProperty("sequencia", registro.getSequencia());
+        json.addProperty("instante", Instant.ofEpochMilli(registro.getInstanteMs()).toString());
+        json.addProperty("operacao", registro.getOperacao());
+        json.addProperty("entidade", registro.getEntidade());
+        json.addProperty("id", registro.getId());
+        json.addProperty("operador", registro.getOperador());
+        json.addProperty("detalhe", registro.getDetalhe());
+        if (registro.getAntes() != null) {
+            json.add("antes", JsonParser.parseString(registro.getAntes()));
+        }
+        if (registro.getDepois() != null) {
+            json.add("depois", JsonParser.parseString(registro.getDepois()));
+        }
+        return json;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1) {
+            System.err.println("Uso: LeitorDiario <diretorio> [ndjson|estado]");
+            System.exit(1);
+        }
+
+        Path diretorio = Paths.get(args[0]);
+        String modo = args.length > 1 ? args[1] : "ndjson";
+
+        if ("estado".equals(modo)) {
+            for (Map.Entry<String, String> entrada : reconstruirEstado(diretorio).entrySet()) {
+                System.out.println(entrada.getKey() + "\t" + entrada.getValue());
+            }
+        } else {
+            exportarNdjson(diretorio, System.out);
+        }
+    }
+}
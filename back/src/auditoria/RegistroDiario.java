@@ -0,0 +1,159 @@
+package auditoria;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Um registro do diário de mutações: quem alterou o quê, quando, e o estado antes/depois.
+// Formato binário do payload (big-endian):
+//   long sequencia | long instanteMs | byte operacao | texto entidade | long id
+//   | texto operador | texto detalhe | texto antes(JSON) | texto depois(JSON)
+// "texto" = int tamanho (-1 para null) + bytes UTF-8.
+public class RegistroDiario {
+
+    private final long sequencia;
+    private final long instanteMs;
+    private final String operacao;
+    private final String entidade;
+    private final long id;
+    private final String operador;
+    private final String detalhe;
+    private final String antes;
+    private final String depois;
+
+    public RegistroDiario(long sequencia, long instanteMs, String operacao, String entidade, long id,
+            String operador, String detalhe, String antes, String depois) {
+        this.sequencia = sequencia;
+        this.instanteMs = instanteMs;
+        this.operacao = operacao;
+        this.entidade = entidade;
+        this.id = id;
+        this.operador = operador;
+        this.detalhe = detalhe;
+        this.antes = antes;
+        this.depois = depois;
+    }
+
+    // Mesmo registro com a sequência definitiva (atribuída pelo escritor)
+    RegistroDiario comSequencia(long novaSequencia) {
+        return new RegistroDiario(novaSequencia, instanteMs, operacao, entidade, id, operador, detalhe, antes, depois);
+    }
+
+    // ======================================//
+    // CODIFICAÇÃO
+    // ======================================//
+    byte[] codificar() {
+
+        byte[] bEntidade = bytes(entidade);
+        byte[] bOperador = bytes(operador);
+        byte[] bDetalhe = bytes(detalhe);
+        byte[] bAntes = bytes(antes);
+        byte[] bDepois = bytes(depois);
+
+        int tamanho = 8 + 8 + 1 + 8
+                + tamanhoTexto(bEntidade) + tamanhoTexto(bOperador) + tamanhoTexto(bDetalhe)
+                + tamanhoTexto(bAntes) + tamanhoTexto(bDepois);
+
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        buffer.putLong(sequencia);
+        buffer.putLong(instanteMs);
+        buffer.put((byte) codigoOperacao(operacao));
+        putTexto(buffer, bEntidade);
+        buffer.putLong(id);
+        putTexto(buffer, bOperador);
+        putTexto(buffer, bDetalhe);
+        putTexto(buffer, bAntes);
+        putTexto(buffer, bDepois);
+        return buffer.array();
+    }
+
+    static RegistroDiario decodificar(ByteBuffer buffer) {
+        long sequencia = buffer.getLong();
+        long instanteMs = buffer.getLong();
+        String operacao = nomeOperacao(buffer.get());
+        String entidade = getTexto(buffer);
+        long id = buffer.getLong();
+        String operador = getTexto(buffer);
+        String detalhe = getTexto(buffer);
+        String antes = getTexto(buffer);
+        String depois = getTexto(buffer);
+        return new RegistroDiario(sequencia, instanteMs, operacao, entidade, id, operador, detalhe, antes, depois);
+    }
+
+    private static final String[] OPERACOES = { "INSERIR", "ATUALIZAR", "DELETAR" };
+
+    private static int codigoOperacao(String operacao) {
+        for (int i = 0; i < OPERACOES.length; i++) {
+            if (OPERACOES[i].equals(operacao)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Operação desconhecida: " + operacao);
+    }
+
+    private static String nomeOperacao(byte codigo) {
+        return OPERACOES[codigo];
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanhoTexto(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putTexto(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getTexto(ByteBuffer buffer) {
+        int tamanho = buffer.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    public long getInstanteMs() {
+        return instanteMs;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public String getEntidade() {
+        return entidade;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getOperador() {
+        return operador;
+    }
+
+    public String getDetalhe() {
+        return detalhe;
+    }
+
+    public String getAntes() {
+        return antes;
+    }
+
+    public String getDepois() {
+        return depois;
+    }
+}
@@ -0,0 +1,175 @@
+package binario;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Aluguel;
+import model.AluguelDetalhado;
+import model.Cliente;
+import model.SincronizacaoAluguel;
+
+// Codificador do FormatoBinario. O corpo é escrito primeiro (montando a tabela de
+// textos); depois cabeçalho, tabela e corpo são copiados para o buffer final,
+// do tamanho exato da mensagem.
+public final class EscritorBinario {
+
+    private ByteBuffer corpo = ByteBuffer.allocate(4096);
+    private final Map<String, Integer> indiceTextos = new HashMap<>();
+    private final List<byte[]> textos = new ArrayList<>();
+    private long idAnterior;
+
+    private EscritorBinario() {
+    }
+
+    public static byte[] clientes(List<Cliente> clientes) {
+        EscritorBinario escritor = new EscritorBinario();
+        escritor.varint(clientes.size());
+        for (Cliente cliente : clientes) {
+            escritor.id(cliente.getID());
+            escritor.texto(cliente.getNome());
+            escritor.texto(cliente.getTelefone());
+            escritor.varint(valor(cliente.getVersao()));
+        }
+        return escritor.finalizar(FormatoBinario.CLIENTES);
+    }
+
+    public static byte[] alugueis(List<Aluguel> alugueis) {
+        EscritorBinario escritor = new EscritorBinario();
+        escritor.listaAlugueis(alugueis);
+        return escritor.finalizar(FormatoBinario.ALUGUEIS);
+    }
+
+    public static byte[] detalhados(List<AluguelDetalhado> detalhados) {
+        EscritorBinario escritor = new EscritorBinario();
+        escritor.varint(detalhados.size());
+        for (AluguelDetalhado d : detalhados) {
+            escritor.id(d.getId_locacao());
+            escritor.data(d.getDataLocacao());
+            escritor.preco(d.getPreco());
+            escritor.varint(valor(d.getIdCliente()));
+            escritor.texto(d.getNomeCliente());
+            escritor.texto(d.getTelefoneCliente());
+            escritor.varint(valor(d.getIdQuadra()));
+            escritor.texto(d.getCoberturaQuadra());
+            escritor.texto(d.getTamanhoQuadra());
+            escritor.preco(d.getPrecoQuadra());
+        }
+        return escritor.finalizar(FormatoBinario.DETALHADOS);
+    }
+
+    public static byte[] sincronizacao(SincronizacaoAluguel sincronizacao) {
+        EscritorBinario escritor = new EscritorBinario();
+        escritor.varint(valor(sincronizacao.getVersao()));
+        escritor.listaAlugueis(sincronizacao.getAlterados());
+
+        escritor.idAnterior = 0;
+        escritor.varint(sincronizacao.getRemovidos().size());
+        for (Long removido : sincronizacao.getRemovidos()) {
+            escritor.id(removido);
+        }
+        return escritor.finalizar(FormatoBinario.SINCRONIZACAO);
+    }
+
+    // ======================================//
+    // CAMPOS
+    // ======================================//
+    private void listaAlugueis(List<Aluguel> alugueis) {
+        idAnterior = 0;
+        varint(alugueis.size());
+        for (Aluguel aluguel : alugueis) {
+            id(aluguel.getId_locacao());
+            varint(valor(aluguel.getIdQuadra()));
+            varint(valor(aluguel.getIdCliente()));
+            data(aluguel.getDataLocacao());
+            preco(aluguel.getPreco());
+            varint(valor(aluguel.getVersaoAlteracao()));
+        }
+    }
+
+    private void id(Long id) {
+        long atual = valor(id);
+        zigzag(atual - idAnterior);
+        idAnterior = atual;
+    }
+
+    private void data(Date data) {
+        zigzag(data != null ? data.toLocalDate().toEpochDay() : 0);
+    }
+
+    private void preco(Double preco) {
+        zigzag(preco != null ? Math.round(preco * 100) : 0);
+    }
+
+    private void texto(String texto) {
+        if (texto == null) {
+            varint(0);
+            return;
+        }
+        Integer indice = indiceTextos.get(texto);
+        if (indice == null) {
+            indice = textos.size();
+            indiceTextos.put(texto, indice);
+            textos.add(texto.getBytes(StandardCharsets.UTF_8));
+        }
+        varint(indice + 1);
+    }
+
+    private void zigzag(long valor) {
+        varint((valor << 1) ^ (valor >> 63));
+    }
+
+    private void varint(long valor) {
+        garantir(10);
+        escreverVarint(corpo, valor);
+    }
+
+    // ======================================//
+    // MONTAGEM
+    // ======================================//
+    private byte[] finalizar(byte tipo) {
+
+        ByteBuffer tabela = ByteBuffer.allocate(10 + textos.stream().mapToInt(t -> t.length + 5).sum());
+        escreverVarint(tabela, textos.size());
+        for (byte[] texto : textos) {
+            escreverVarint(tabela, texto.length);
+            tabela.put(texto);
+        }
+
+        tabela.flip();
+        corpo.flip();
+
+        ByteBuffer mensagem = ByteBuffer.allocate(4 + tabela.remaining() + corpo.remaining());
+        mensagem.put(FormatoBinario.ASSINATURA_1).put(FormatoBinario.ASSINATURA_2)
+                .put(FormatoBinario.VERSAO).put(tipo);
+        mensagem.put(tabela);
+        mensagem.put(corpo);
+        return mensagem.array();
+    }
+
+    // Dobra o buffer do corpo quando faltar espaço
+    private void garantir(int bytes) {
+        if (corpo.remaining() < bytes) {
+            ByteBuffer maior = ByteBuffer.allocate(Math.max(corpo.capacity() * 2, corpo.position() + bytes));
+            corpo.flip();
+            maior.put(corpo);
+            corpo = maior;
+        }
+    }
+
+    private static void escreverVarint(ByteBuffer buffer, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            buffer.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        buffer.put((byte) valor);
+    }
+
+    private static long valor(Long numero) {
+        return numero != null ? numero : 0;
+    }
+}
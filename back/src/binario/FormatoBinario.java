@@ -0,0 +1,43 @@
+package binario;
+
+// Formato binário das listagens (Accept: application/x-quadra-bin), para os
+// quiosques que sincronizam todas as locações. Versão 1:
+//
+//   mensagem      = 'Q' 'B' | byte versão | byte tipo | tabela | corpo
+//   tabela        = varint n | n x (varint bytes | UTF-8)
+//   texto         = varint índice na tabela + 1 (0 = null); cada texto aparece uma vez
+//   varint        = inteiro sem sinal em grupos de 7 bits (LEB128)
+//   zz            = varint com sinal em zigzag (0, -1, 1, -2...)
+//   ids           = zz diferença para o id anterior da lista (o primeiro, para 0)
+//   data          = zz dias desde 1970-01-01
+//   preço         = zz centavos
+//
+//   CLIENTES      = varint n | n x (ids id | texto nome | texto telefone | varint versao)
+//   ALUGUEIS      = varint n | n x aluguel
+//   aluguel       = ids id_locacao | varint idQuadra | varint idCliente | data | preço | varint versaoAlteracao
+//   DETALHADOS    = varint n | n x (ids id_locacao | data | preço | varint idCliente | texto nome
+//                   | texto telefone | varint idQuadra | texto cobertura | texto tamanho | preço da quadra)
+//   SINCRONIZACAO = varint versao | ALUGUEIS | varint m | m x ids removido
+//
+// IDs e versões ausentes (null) viajam como 0.
+public final class FormatoBinario {
+
+    public static final String TIPO_MIME = "application/x-quadra-bin";
+
+    static final byte ASSINATURA_1 = 'Q';
+    static final byte ASSINATURA_2 = 'B';
+    static final byte VERSAO = 1;
+
+    public static final byte CLIENTES = 1;
+    public static final byte ALUGUEIS = 2;
+    public static final byte DETALHADOS = 3;
+    public static final byte SINCRONIZACAO = 4;
+
+    private FormatoBinario() {
+    }
+
+    // O cliente pediu o formato binário no Accept
+    public static boolean aceito(String accept) {
+        return accept != null && accept.contains(TIPO_MIME);
+    }
+}
@@ -0,0 +1,274 @@
+package binario;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import model.Aluguel;
+import model.AluguelDetalhado;
+import model.Cliente;
+import model.SincronizacaoAluguel;
+import util.GsonUtil;
+
+// Decodificador do FormatoBinario (referência para os apps dos quiosques).
+// Também serve de verificação de ida e volta:
+//   java -cp ... binario.LeitorBinario --local
+// codifica amostras fixas (nulos, textos não ASCII e repetidos, IDs fora de ordem),
+// decodifica e compara com o JSON dos originais, sem servidor nem banco; e
+//   java -cp ... binario.LeitorBinario http://localhost:4567/Aluguel [outras URLs...]
+// busca cada URL de uma API em execução em JSON e em binário e compara os dois.
+public final class LeitorBinario {
+
+    private final ByteBuffer entrada;
+    private final String[] textos;
+    private final byte tipo;
+    private long idAnterior;
+
+    private LeitorBinario(byte[] mensagem) {
+        this.entrada = ByteBuffer.wrap(mensagem);
+
+        if (entrada.remaining() < 4 || entrada.get() != FormatoBinario.ASSINATURA_1
+                || entrada.get() != FormatoBinario.ASSINATURA_2) {
+            throw new IllegalArgumentException("Mensagem não está no formato " + FormatoBinario.TIPO_MIME + ".");
+        }
+        byte versao = entrada.get();
+        if (versao != FormatoBinario.VERSAO) {
+            throw new IllegalArgumentException("Versão do formato binário não suportada: " + versao + ".");
+        }
+        this.tipo = entrada.get();
+
+        textos = new String[(int) varint()];
+        for (int i = 0; i < textos.length; i++) {
+            byte[] bytes = new byte[(int) varint()];
+            entrada.get(bytes);
+            textos[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Tipo da mensagem (FormatoBinario.CLIENTES, ALUGUEIS...)
+    public static byte tipo(byte[] mensagem) {
+        return new LeitorBinario(mensagem).tipo;
+    }
+
+    public static List<Cliente> clientes(byte[] mensagem) {
+        LeitorBinario leitor = abrir(mensagem, FormatoBinario.CLIENTES);
+        List<Cliente> clientes = new ArrayList<>();
+        for (long n = leitor.varint(); n > 0; n--) {
+            clientes.add(new Cliente(leitor.id(), leitor.texto(), leitor.texto(), leitor.varint()));
+        }
+        return clientes;
+    }
+
+    public static List<Aluguel> alugueis(byte[] mensagem) {
+        return abrir(mensagem, FormatoBinario.ALUGUEIS).listaAlugueis();
+    }
+
+    public static List<AluguelDetalhado> detalhados(byte[] mensagem) {
+        LeitorBinario leitor = abrir(mensagem, FormatoBinario.DETALHADOS);
+        List<AluguelDetalhado> detalhados = new ArrayList<>();
+        for (long n = leitor.varint(); n > 0; n--) {
+            AluguelDetalhado d = new AluguelDetalhado();
+            d.setId_locacao(leitor.id());
+            d.setDataLocacao(leitor.data());
+            d.setPreco(leitor.preco());
+            d.setIdCliente(leitor.varint());
+            d.setNomeCliente(leitor.texto());
+            d.setTelefoneCliente(leitor.texto());
+            d.setIdQuadra(leitor.varint());
+            d.setCoberturaQuadra(leitor.texto());
+            d.setTamanhoQuadra(leitor.texto());
+            d.setPrecoQuadra(leitor.preco());
+            detalhados.add(d);
+        }
+        return detalhados;
+    }
+
+    public static SincronizacaoAluguel sincronizacao(byte[] mensagem) {
+        LeitorBinario leitor = abrir(mensagem, FormatoBinario.SINCRONIZACAO);
+        long versao = leitor.varint();
+        List<Aluguel> alterados = leitor.listaAlugueis();
+
+        leitor.idAnterior = 0;
+        List<Long> removidos = new ArrayList<>();
+        for (long n = leitor.varint(); n > 0; n--) {
+            removidos.add(leitor.id());
+        }
+        return new SincronizacaoAluguel(versao, alterados, removidos);
+    }
+
+    // ======================================//
+    // CAMPOS
+    // ======================================//
+    private static LeitorBinario abrir(byte[] mensagem, byte esperado) {
+        LeitorBinario leitor = new LeitorBinario(mensagem);
+        if (leitor.tipo != esperado) {
+            throw new IllegalArgumentException("Mensagem do tipo " + leitor.tipo + ", esperado " + esperado + ".");
+        }
+        return leitor;
+    }
+
+    private List<Aluguel> listaAlugueis() {
+        idAnterior = 0;
+        List<Aluguel> alugueis = new ArrayList<>();
+        for (long n = varint(); n > 0; n--) {
+            alugueis.add(new Aluguel(id(), varint(), varint(), data(), preco(), varint()));
+        }
+        return alugueis;
+    }
+
+    private long id() {
+        idAnterior += zigzag();
+        return idAnterior;
+    }
+
+    private Date data() {
+        return Date.valueOf(LocalDate.ofEpochDay(zigzag()));
+    }
+
+    private double preco() {
+        return zigzag() / 100.0;
+    }
+
+    private String texto() {
+        int indice = (int) varint();
+        return indice == 0 ? null : textos[indice - 1];
+    }
+
+    private long zigzag() {
+        long valor = varint();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private long varint() {
+        try {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                byte b = entrada.get();
+                valor |= (long) (b & 0x7F) << deslocamento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Mensagem binária truncada.", e);
+        }
+        throw new IllegalArgumentException("Varint maior que 64 bits.");
+    }
+
+    // ======================================//
+    // VERIFICAÇÃO DE IDA E VOLTA
+    // ======================================//
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.err.println("Uso: LeitorBinario --local | <url> [url...]  (ex: http://localhost:4567/Aluguel)");
+            System.exit(2);
+        }
+        if (args.length == 1 && "--local".equals(args[0])) {
+            System.exit(verificarAmostras() ? 0 : 1);
+        }
+
+        Gson gson = GsonUtil.getGson();
+        boolean todasIguais = true;
+
+        for (String url : args) {
+            byte[] json = buscar(url, "application/json");
+            byte[] binario = buscar(url, FormatoBinario.TIPO_MIME);
+
+            Object decodificado;
+            switch (tipo(binario)) {
+                case FormatoBinario.CLIENTES: decodificado = clientes(binario); break;
+                case FormatoBinario.ALUGUEIS: decodificado = alugueis(binario); break;
+                case FormatoBinario.DETALHADOS: decodificado = detalhados(binario); break;
+                case FormatoBinario.SINCRONIZACAO: decodificado = sincronizacao(binario); break;
+                default: throw new IllegalArgumentException("Tipo desconhecido: " + tipo(binario));
+            }
+
+            JsonElement esperado = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
+            boolean iguais = esperado.equals(gson.toJsonTree(decodificado));
+            todasIguais &= iguais;
+
+            System.out.println(url + ": JSON " + json.length + " bytes, binário " + binario.length + " bytes ("
+                    + (json.length > 0 ? 100 * binario.length / json.length : 0) + "%), "
+                    + (iguais ? "conteúdo idêntico" : "CONTEÚDO DIFERENTE"));
+        }
+
+        System.exit(todasIguais ? 0 : 1);
+    }
+
+    // Ida e volta com amostras fixas. O esperado segue as regras do formato:
+    // textos null continuam null; IDs e versões null viram 0, data null vira 1970-01-01
+    // e preço null vira 0.0.
+    private static boolean verificarAmostras() {
+
+        Date data = Date.valueOf("2025-03-09");
+        Date antiga = Date.valueOf("1969-12-31"); // dia negativo no zigzag
+        Date epoca = Date.valueOf(LocalDate.ofEpochDay(0));
+
+        List<Cliente> clientes = Arrays.asList(
+                new Cliente(1L, "João da Conceição", "(11) 98765-4321", 3L),
+                new Cliente(2L, "Zoë Müller 山田 🏐", null, 0L),
+                new Cliente(9L, null, "", null),
+                new Cliente(5L, "João da Conceição", "(11) 98765-4321", 1L));
+        List<Cliente> clientesEsperados = Arrays.asList(
+                clientes.get(0),
+                clientes.get(1),
+                new Cliente(9L, null, "", 0L),
+                clientes.get(3));
+
+        List<Aluguel> alugueis = Arrays.asList(
+                new Aluguel(1L << 40, 3L, 1L, data, 123.45, 17L),
+                new Aluguel(4L, null, 2L, antiga, 0.01, 1L),
+                new Aluguel(5L, 3L, null, null, null, null));
+        List<Aluguel> alugueisEsperados = Arrays.asList(
+                alugueis.get(0),
+                new Aluguel(4L, 0L, 2L, antiga, 0.01, 1L),
+                new Aluguel(5L, 3L, 0L, epoca, 0.0, 0L));
+
+        SincronizacaoAluguel sincronizacao = new SincronizacaoAluguel(42L, alugueis, Arrays.asList(8L, 3L, 300L));
+        SincronizacaoAluguel sincronizacaoEsperada = new SincronizacaoAluguel(42L, alugueisEsperados,
+                Arrays.asList(8L, 3L, 300L));
+
+        boolean todasIguais = comparar("clientes", clientesEsperados, clientes(EscritorBinario.clientes(clientes)));
+        todasIguais &= comparar("clientes (vazio)", Collections.emptyList(),
+                clientes(EscritorBinario.clientes(Collections.emptyList())));
+        todasIguais &= comparar("aluguéis", alugueisEsperados, alugueis(EscritorBinario.alugueis(alugueis)));
+        todasIguais &= comparar("sincronização", sincronizacaoEsperada,
+                sincronizacao(EscritorBinario.sincronizacao(sincronizacao)));
+        return todasIguais;
+    }
+
+    private static boolean comparar(String nome, Object esperado, Object decodificado) {
+        Gson gson = GsonUtil.getGson();
+        boolean iguais = gson.toJsonTree(esperado).equals(gson.toJsonTree(decodificado));
+        System.out.println(nome + ": " + (iguais ? "conteúdo idêntico"
+                : "CONTEÚDO DIFERENTE\n  esperado:     " + gson.toJson(esperado)
+                        + "\n  decodificado: " + gson.toJson(decodificado)));
+        return iguais;
+    }
+
+    private static byte[] buscar(String url, String accept) throws IOException {
+        HttpURLConnection conexao = (HttpURLConnection) new URL(url).openConnection();
+        conexao.setRequestProperty("Accept", accept);
+        if (conexao.getResponseCode() != 200) {
+            throw new IOException(url + " respondeu " + conexao.getResponseCode() + ".");
+        }
+        try (InputStream in = conexao.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
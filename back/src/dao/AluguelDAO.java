@@ -1,185 +1,415 @@
 package dao;
 
+    import java.io.IOException;
     import java.sql.Connection;
     import java.sql.Date;
-    import java.sql.PreparedStatement;
     import java.sql.ResultSet;
     import java.sql.SQLException;
     import java.sql.SQLIntegrityConstraintViolationException;
-    import java.sql.Statement;
-    
+
     import java.util.ArrayList;
+    import java.util.Arrays;
+    import java.util.Collection;
+    import java.util.Collections;
+    import java.util.HashMap;
+    import java.util.LinkedHashSet;
     import java.util.List;
+    import java.util.Map;
+    import java.util.Set;
+    import java.util.concurrent.Executors;
+    import java.util.concurrent.ScheduledExecutorService;
+    import java.util.concurrent.TimeUnit;
 
     import model.Aluguel;
-    import util.ConnectionFactory;
-
-    public class AluguelDAO {
+    import model.AluguelDetalhado;
+    import model.SincronizacaoAluguel;
+    import util.LongHashSet;
+
+    public class AluguelDAO implements AluguelRepositorio {
+
+        // Projeção explícita da locacao; o MAPEADOR lê as colunas nesta ordem
+        public static final String COLUNAS = "id_locacao, Quadra_id_quadra, Cliente_idCliente, datalocacao, preco, versao_alteracao";
+
+        // Consultas executadas a cada requisição; precisam de índice (ver db/migracao)
+        public static final String SQL_POR_ID = "SELECT " + COLUNAS + " FROM locacao WHERE id_locacao = ?";
+        public static final String SQL_POR_QUADRA = "SELECT " + COLUNAS + " FROM locacao WHERE Quadra_id_quadra = ?";
+        public static final String SQL_CONTA_POR_CLIENTE = "SELECT COUNT(*) FROM locacao WHERE Cliente_idCliente = ?";
+        public static final String SQL_ALTERADOS_DESDE = "SELECT " + COLUNAS + " FROM locacao WHERE versao_alteracao > ? AND versao_alteracao <= ? ORDER BY versao_alteracao";
+
+        // Verificadas com EXPLAIN na inicialização (MigracaoBanco.verificarPlanos)
+        public static final List<String> CONSULTAS_QUENTES = Collections.unmodifiableList(Arrays.asList(
+                SQL_POR_ID, SQL_POR_QUADRA, SQL_CONTA_POR_CLIENTE, SQL_ALTERADOS_DESDE));
+
+        // Linha de locacao (na ordem de COLUNAS) -> Aluguel
+        public static final RowMapper<Aluguel> MAPEADOR = rs -> new Aluguel(
+                rs.getLong(1),
+                rs.getLong(2),
+                rs.getLong(3),
+                rs.getDate(4),
+                rs.getDouble(5),
+                rs.getLong(6));
+
+        // Clientes com locação ativa, mantido pelas escritas abaixo (ver IndiceLocacaoAtiva)
+        private static final IndiceLocacaoAtiva locacoesAtivas = new IndiceLocacaoAtiva();
+
+        // Com várias instâncias gravando no mesmo banco, as inserções das outras só entram
+        // no índice na reconciliação: desative com -DindiceLocacoes.ativo=false. Aí o COUNT
+        // roda dentro da transação do INSERT, com a linha do cliente travada (FOR UPDATE),
+        // e dois POSTs do mesmo cliente em instâncias diferentes passam um de cada vez.
+        private static final boolean INDICE_ATIVO = Boolean.parseBoolean(System.getProperty("indiceLocacoes.ativo", "true"));
+
+        // Conferência periódica do índice com o banco. -DindiceLocacoes.reconciliacaoMs=N (0 = nunca)
+        private static final long RECONCILIACAO_MS = Long.getLong("indiceLocacoes.reconciliacaoMs", 300000);
+        private static ScheduledExecutorService reconciliacao;
+        private static final Object cargaIndice = new Object();
+
+        // Quanto um POST espera outro do mesmo cliente terminar. -DindiceLocacoes.esperaReservaMs=N
+        private static final long ESPERA_RESERVA_MS = Long.getLong("indiceLocacoes.esperaReservaMs", 5000);
+
+        // Campos do GET /Aluguel?fields= (nomes do JSON do Aluguel)
+        public static final Projecao<Aluguel> PROJECAO_LOCACAO = new Projecao<Aluguel>()
+                .campo("id_locacao", "id_locacao", ResultSet::getLong, Aluguel::getId_locacao)
+                .campo("idQuadra", "Quadra_id_quadra", ResultSet::getLong, Aluguel::getIdQuadra)
+                .campo("idCliente", "Cliente_idCliente", ResultSet::getLong, Aluguel::getIdCliente)
+                .campo("dataLocacao", "datalocacao", ResultSet::getDate, Aluguel::getDataLocacao)
+                .campo("preco", "preco", ResultSet::getDouble, Aluguel::getPreco)
+                .campo("versaoAlteracao", "versao_alteracao", ResultSet::getLong, Aluguel::getVersaoAlteracao);
+
+        // Linha do JOIN do buscarDetalhado -> AluguelDetalhado
+        private static final RowMapper<AluguelDetalhado> MAPEADOR_DETALHADO = rs -> {
+            AluguelDetalhado detalhado = new AluguelDetalhado();
+            detalhado.setId_locacao(rs.getLong(1));
+            detalhado.setDataLocacao(rs.getDate(2));
+            detalhado.setPreco(rs.getDouble(3));
+            detalhado.setIdCliente(rs.getLong(4));
+            detalhado.setNomeCliente(rs.getString(5));
+            detalhado.setTelefoneCliente(rs.getString(6));
+            detalhado.setIdQuadra(rs.getLong(7));
+            detalhado.setCoberturaQuadra(rs.getString(8));
+            detalhado.setTamanhoQuadra(rs.getString(9));
+            detalhado.setPrecoQuadra(rs.getDouble(10));
+            return detalhado;
+        };
 
         // ======================================//
         // READ ALL
+        // Mesma transação para a lista e a versão: uma escrita entre as duas leituras
+        // ficaria na lista e de novo no ?since= (ou, na ordem inversa, em nenhum dos dois)
         // ======================================//
-        public List<Aluguel> buscarTodos() {
-
-            List<Aluguel> Locacao = new ArrayList<>();
-
-            // Assumi que as colunas são: id_locacao, Quadra_id_quadra, Cliente_idCliente,
-            // datalocacao
-            String sql = "SELECT * FROM locacao";
-
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql);
-                    ResultSet rs = stmt.executeQuery();) {
-
-                while (rs.next()) {
-                    Aluguel aluguel = new Aluguel(
-                            rs.getLong("id_locacao"), // Corrigido para consistência
-                            rs.getLong("Quadra_id_quadra"),
-                            rs.getLong("Cliente_idCliente"),
-                            rs.getDate("datalocacao"),
-                            rs.getDouble("preco")
-                        );
-                    Locacao.add(aluguel);
-                }
-            } catch (Exception e) {
+        public SincronizacaoAluguel buscarTodos() {
+
+            String sqlVersao = "SELECT valor FROM versao_sequencia WHERE nome = 'locacao'";
+            String sql = "SELECT " + COLUNAS + " FROM locacao";
+
+            try {
+                return JdbcExecutor.emTransacaoLeitura(conn -> {
+                    Long versao = JdbcExecutor.consultarUm(conn, sqlVersao, rs -> rs.getLong(1));
+                    return new SincronizacaoAluguel(versao != null ? versao : 0L,
+                            JdbcExecutor.consultar(conn, sql, MAPEADOR), new ArrayList<>());
+                });
+            } catch (SQLException e) {
                 System.err.println("Erro ao buscar locacoes: " + e.getMessage());
                 e.printStackTrace();
             }
-            return Locacao;
+            // versão 0: o próximo ?since= traz tudo de novo
+            return new SincronizacaoAluguel(0L, new ArrayList<>(), new ArrayList<>());
         }
 
         // ======================================//
-        // NOVO: READ BY ALUGUEL ID (Necessário para o DELETE na API)
+        // READ COM FILTROS E PAGINAÇÃO
         // ======================================//
-        public List<Aluguel> buscarPorId(Long id) {
+        public List<Aluguel> buscar(FiltroAluguel filtro) {
 
-            List<Aluguel> lista = new ArrayList<>();
-            String sql = "SELECT * FROM locacao WHERE id_locacao = ?";
+            String sql = "SELECT " + COLUNAS + " FROM locacao" + filtro.montarClausula("");
 
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try {
+                return JdbcExecutor.consultar(sql, MAPEADOR, filtro.getParametros());
+            } catch (SQLException e) {
+                System.err.println("Erro ao buscar locacoes filtradas: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        }
 
-                stmt.setLong(1, id);
+        // ======================================//
+        // READ PROJETADO (GET /Aluguel?fields=)
+        // Mesmos filtros do buscar; só as colunas da projeção saem do banco
+        // ======================================//
+        public List<Map<String, Object>> buscarProjetado(Projecao<Aluguel> projecao, FiltroAluguel filtro) {
 
-                try (ResultSet rs = stmt.executeQuery()) {
+            String sql = "SELECT " + projecao.colunas() + " FROM locacao" + filtro.montarClausula("");
 
-                    while (rs.next()) {
+            try {
+                return JdbcExecutor.consultar(sql, projecao.mapeador(), filtro.getParametros());
+            } catch (SQLException e) {
+                System.err.println("Erro ao buscar locacoes (campos " + projecao.colunas() + "): " + e.getMessage());
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        }
 
-                        Aluguel aluguel = new Aluguel(
-                                rs.getLong("id_locacao"), // Corrigido para consistência
-                                rs.getLong("Quadra_id_quadra"),
-                                rs.getLong("Cliente_idCliente"),
-                                rs.getDate("datalocacao"),
-                                rs.getDouble("preco")
+        // ======================================//
+        // READ DETALHADO (locacao JOIN cliente JOIN quadra)
+        // ======================================//
+        public List<AluguelDetalhado> buscarDetalhado(FiltroAluguel filtro) {
+
+            // Projeção explícita: só as colunas que o DTO usa
+            String sql = "SELECT l.id_locacao, l.datalocacao, l.preco,"
+                    + " c.id_cliente, c.Nome, c.Telefone,"
+                    + " q.id_quadra, q.cobertura, q.tamanho, q.preco"
+                    + " FROM locacao l"
+                    + " JOIN cliente c ON c.id_cliente = l.Cliente_idCliente"
+                    + " JOIN quadra q ON q.id_quadra = l.Quadra_id_quadra"
+                    + filtro.montarClausula("l.");
+
+            try {
+                return JdbcExecutor.consultar(sql, MAPEADOR_DETALHADO, filtro.getParametros());
+            } catch (SQLException e) {
+                System.err.println("Erro ao buscar locacoes detalhadas: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        }
 
-                            );
-                        lista.add(aluguel);
-                    }
-                }
+        // ======================================//
+        // EXPORTAÇÃO EM FLUXO (GET /Aluguel/export.ndjson)
+        // Em ordem de id_locacao (a chave primária): com o aposId do último registro
+        // recebido, uma exportação interrompida continua de onde parou.
+        // Com o arquivo: blocos por chave, cada um um UNION das duas tabelas depois do
+        // último id entregue, num único comando (um só snapshot). Uma locação arquivada
+        // entre dois blocos aparece no arquivo no bloco seguinte: não some nem repete.
+        // ======================================//
+        public long exportar(FiltroAluguel filtro, boolean incluirArquivo, ConsumidorLinha<Aluguel> consumidor)
+                throws SQLException, IOException {
 
-            } catch (Exception e) {
-                e.printStackTrace();
+            if (!incluirArquivo) {
+                String sql = "SELECT " + COLUNAS + " FROM locacao" + filtro.montarClausula("");
+                return JdbcExecutor.percorrer(sql, MAPEADOR, consumidor, filtro.getParametros());
             }
 
-            return lista;
+            int tamanhoBloco = FiltroAluguel.LIMITE_MAXIMO;
+            filtro.setLimite(tamanhoBloco);
+
+            long total = 0;
+            long[] ultimoId = { 0 };
+            while (true) {
+                String clausula = filtro.montarClausula("");
+                Object[] parametros = filtro.getParametros();
+                String sql = "(SELECT " + COLUNAS + " FROM locacao" + clausula + ")"
+                        + " UNION ALL (SELECT " + COLUNAS + " FROM locacao_arquivo" + clausula + ")"
+                        + " ORDER BY id_locacao LIMIT " + tamanhoBloco;
+
+                Object[] todos = Arrays.copyOf(parametros, parametros.length * 2);
+                System.arraycopy(parametros, 0, todos, parametros.length, parametros.length);
+
+                long noBloco = JdbcExecutor.percorrer(sql, MAPEADOR, aluguel -> {
+                    consumidor.aceitar(aluguel);
+                    ultimoId[0] = aluguel.getId_locacao();
+                }, todos);
+
+                total += noBloco;
+                if (noBloco < tamanhoBloco) {
+                    return total;
+                }
+                filtro.setAposId(ultimoId[0]);
+            }
         }
 
         // ======================================//
-        // READ BY QUADRA ID
+        // READ INCLUINDO O ARQUIVO (GET /Aluguel?incluirArquivo=true)
+        // Os filtros valem nas duas tabelas; cada lado já vem ordenado e limitado.
         // ======================================//
-        public List<Aluguel> buscarPorQuadraId(Long idQuadra) {
+        public List<Aluguel> buscarComArquivo(FiltroAluguel filtro) {
 
-            List<Aluguel> lista = new ArrayList<>();
-            String sql = "SELECT * FROM locacao WHERE Quadra_id_quadra = ?";
+            String clausula = filtro.montarClausula("");
+            Object[] parametros = filtro.getParametros();
 
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+            String sql = "(SELECT " + COLUNAS + " FROM locacao" + clausula + ")"
+                    + " UNION ALL (SELECT " + COLUNAS + " FROM locacao_arquivo" + clausula + ")"
+                    + " ORDER BY id_locacao"
+                    + (filtro.getLimite() != null ? " LIMIT " + filtro.getLimite() : "");
 
-                stmt.setLong(1, idQuadra);
+            // os mesmos parâmetros para cada lado do UNION
+            Object[] todos = Arrays.copyOf(parametros, parametros.length * 2);
+            System.arraycopy(parametros, 0, todos, parametros.length, parametros.length);
 
-                try (ResultSet rs = stmt.executeQuery()) {
+            try {
+                return JdbcExecutor.consultar(sql, MAPEADOR, todos);
+            } catch (SQLException e) {
+                System.err.println("Erro ao buscar locacoes com arquivo: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        }
 
-                    while (rs.next()) {
+        // ======================================//
+        // NOVO: READ BY ALUGUEL ID (Necessário para o DELETE na API)
+        // ======================================//
+        public List<Aluguel> buscarPorId(Long id) {
 
-                        Aluguel aluguel = new Aluguel(
-                                rs.getLong("id_locacao"), // Corrigido para consistência
-                                rs.getLong("Quadra_id_quadra"),
-                                rs.getLong("Cliente_idCliente"),
-                                rs.getDate("datalocacao"),
-                                rs.getDouble("preco")
+            try {
+                return JdbcExecutor.consultar(SQL_POR_ID, MAPEADOR, id);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        }
 
-                            );
-                        lista.add(aluguel);
-                    }
-                }
+        // ======================================//
+        // READ BY IDS (usado pelo CarregadorLote)
+        // ======================================//
+        public Map<Long, Aluguel> buscarPorIds(List<Long> ids) {
+
+            Map<Long, Aluguel> resultado = new HashMap<>();
+            if (ids.isEmpty()) {
+                return resultado;
+            }
+
+            Object[] parametros = JdbcExecutor.parametrosIn(ids);
+            String sql = "SELECT " + COLUNAS + " FROM locacao WHERE id_locacao IN (" + JdbcExecutor.marcadoresIn(parametros.length) + ")";
 
-            } catch (Exception e) {
+            try {
+                for (Aluguel aluguel : JdbcExecutor.consultar(sql, MAPEADOR, parametros)) {
+                    resultado.put(aluguel.getId_locacao(), aluguel);
+                }
+            } catch (SQLException e) {
                 e.printStackTrace();
             }
+            return resultado;
+        }
 
-            return lista;
+        // ======================================//
+        // READ BY QUADRA ID
+        // ======================================//
+        public List<Aluguel> buscarPorQuadraId(Long idQuadra) {
+
+            try {
+                return JdbcExecutor.consultar(SQL_POR_QUADRA, MAPEADOR, idQuadra);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
         }
 
         // ======================================//
         // CREATE
         // ======================================//
         public void inserir(Aluguel aluguel) {
-            if (clienteJaPossuiLocacao(aluguel.getIdCliente())) {
+            if (!reservarCliente(aluguel.getIdCliente())) {
                 throw new RuntimeException("Cliente já possui uma locação ativa");
 
             }
 
-            String sql = "INSERT INTO locacao (Quadra_id_quadra, Cliente_idCliente, datalocacao,preco) VALUES (?,?,?,?)";
-
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            // a reserva no índice vira locação no commit e é desfeita em qualquer falha
+            boolean gravado = false;
+            String sql = "INSERT INTO locacao (Quadra_id_quadra, Cliente_idCliente, datalocacao,preco,versao_alteracao) VALUES (?,?,?,?,?)";
 
-                stmt.setLong(1, aluguel.getIdQuadra());
-                stmt.setLong(2, aluguel.getIdCliente());
-                stmt.setDate(3, aluguel.getDataLocacao());
-                stmt.setDouble(4, aluguel.getPreco());
-                stmt.executeUpdate();
-
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        // define o ID no objeto Aluguel que foi passado
-                        aluguel.setId_locacao(rs.getLong(1));
+            try {
+                JdbcExecutor.emTransacao(conn -> {
+                    // sem o índice: confere aqui, com o cliente travado até o commit
+                    if (!INDICE_ATIVO && clienteJaPossuiLocacao(conn, aluguel.getIdCliente())) {
+                        throw new RuntimeException("Cliente já possui uma locação ativa");
                     }
-                }
+                    long versao = proximaVersao(conn);
+
+                    // define o ID no objeto Aluguel que foi passado
+                    aluguel.setId_locacao(JdbcExecutor.inserir(conn, sql,
+                            aluguel.getIdQuadra(),
+                            aluguel.getIdCliente(),
+                            aluguel.getDataLocacao(),
+                            aluguel.getPreco(),
+                            versao));
+                    aluguel.setVersaoAlteracao(versao);
+                    return null;
+                });
+                gravado = true;
+                locacoesAtivas.confirmar(aluguel.getIdCliente());
+
+                Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.INSERIR, aluguel.getId_locacao(),
+                        null, aluguel, null));
 
             } catch (SQLException e) {
                 System.err
                         .println("Erro ao inserir aluguel: " + aluguel.getIdCliente() + ". Detalhes: " + e.getMessage());
                 e.printStackTrace();
+            } finally {
+                if (!gravado && aluguel.getIdCliente() != null) {
+                    locacoesAtivas.liberar(aluguel.getIdCliente());
+                }
             }
         }
 
         // ------------------------------------
         // UPDATE
+        // Condicional à versão lida pelo cliente (null = versão atual): a
+        // versao_alteracao muda a cada escrita, então serve de versão da linha.
+        // Se outra requisição gravou antes, lança VersaoDivergenteException e a
+        // taxa de mudança de data não é aplicada duas vezes.
         // ------------------------------------
-        public void atualizar(Aluguel aluguel) {
+        public void atualizar(Aluguel aluguel, Long versaoEsperada) {
+
+            // Uma leitura da linha atual (no primário) serve para o preço, a data e a auditoria
+            Aluguel antes;
+            try {
+                antes = JdbcExecutor.consultarUmPrimario(SQL_POR_ID, MAPEADOR, aluguel.getId_locacao());
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (antes == null) {
+                return;
+            }
 
-            double precoFinal = buscarPrecoAtual(aluguel.getId_locacao());
+            long esperada = versaoEsperada != null ? versaoEsperada : antes.getVersaoAlteracao();
+            if (antes.getVersaoAlteracao() != esperada) {
+                throw new VersaoDivergenteException("Aluguel", aluguel.getId_locacao());
+            }
 
-            if (dataFoiAlterada(aluguel.getId_locacao(), aluguel.getDataLocacao())) {
-            precoFinal += 50.0;
-        }
+            double precoFinal = antes.getPreco();
+            String detalhe = null;
 
-            // CORREÇÃO: idlocacao -> id_locacao (Consistência)
-            String sql = "UPDATE locacao SET Quadra_id_quadra = ?, Cliente_idCliente = ?, datalocacao = ?, preco=?  WHERE id_locacao = ?";
+            if (!antes.getDataLocacao().equals(aluguel.getDataLocacao())) {
+                precoFinal += 50.0;
+                detalhe = "Data alterada de " + antes.getDataLocacao() + " para " + aluguel.getDataLocacao()
+                        + ": taxa de R$ 50,00 aplicada";
+            }
 
-            try (
-                    Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+            // CORREÇÃO: idlocacao -> id_locacao (Consistência)
+            String sql = "UPDATE locacao SET Quadra_id_quadra = ?, Cliente_idCliente = ?, datalocacao = ?, preco=?, versao_alteracao = ?  WHERE id_locacao = ? AND versao_alteracao = ?";
+            double preco = precoFinal;
+
+            try {
+                JdbcExecutor.emTransacao(conn -> {
+                    long versao = proximaVersao(conn);
+
+                    int linhasAfetadas = JdbcExecutor.atualizar(conn, sql,
+                            aluguel.getIdQuadra(),
+                            aluguel.getIdCliente(),
+                            aluguel.getDataLocacao(),
+                            preco,
+                            versao,
+                            aluguel.getId_locacao(),
+                            esperada);
+
+                    // outra escrita entre a leitura e o UPDATE: desfaz também a versão reservada
+                    if (linhasAfetadas == 0) {
+                        throw new VersaoDivergenteException("Aluguel", aluguel.getId_locacao());
+                    }
 
-                stmt.setLong(1, aluguel.getIdQuadra());
-                stmt.setLong(2, aluguel.getIdCliente());
-                stmt.setObject(3, aluguel.getDataLocacao());
-                stmt.setDouble(4, precoFinal);
-                stmt.setLong(5, aluguel.getId_locacao());
+                    aluguel.setVersaoAlteracao(versao);
+                    return null;
+                });
 
+                // troca de cliente: o novo passa a ter locação; o antigo pode ter ficado sem
+                if (aluguel.getIdCliente() != null && !aluguel.getIdCliente().equals(antes.getIdCliente())) {
+                    locacoesAtivas.definir(aluguel.getIdCliente(), true);
+                    reavaliarClientes(Collections.singletonList(antes.getIdCliente()));
+                }
 
-                stmt.executeUpdate();
+                Aluguel depois = new Aluguel(aluguel.getId_locacao(), aluguel.getIdQuadra(), aluguel.getIdCliente(),
+                        aluguel.getDataLocacao(), preco, aluguel.getVersaoAlteracao());
+                Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.ATUALIZAR, aluguel.getId_locacao(),
+                        antes, depois, detalhe));
 
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -193,15 +423,30 @@ package dao;
 
             // CORREÇÃO: Adicionei SQLException à assinatura para lidar melhor com o catch
             String sql = "DELETE FROM locacao WHERE id_locacao = ?";
+            String sqlTombstone = "INSERT INTO locacao_exclusao (versao_alteracao, id_locacao) VALUES (?, ?)";
+
+            try {
+                Aluguel antes = JdbcExecutor.emTransacao(conn -> {
 
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    // estado anterior, para a auditoria
+                    Aluguel atual = JdbcExecutor.consultarUm(conn, SQL_POR_ID, MAPEADOR, id);
 
-                stmt.setLong(1, id);
+                    // executa a exclusão
+                    int linhasAfetadas = JdbcExecutor.atualizar(conn, sql, id);
+                    System.out.println("Tentativa de deletar Locação ID " + id + ". Linhas afetadas: " + linhasAfetadas);
 
-                // executa a exclusão
-                int linhasAfetadas = stmt.executeUpdate();
-                System.out.println("Tentativa de deletar Locação ID " + id + ". Linhas afetadas: " + linhasAfetadas);
+                    // registra o tombstone para que a sincronização delta propague a exclusão
+                    if (linhasAfetadas > 0) {
+                        JdbcExecutor.atualizar(conn, sqlTombstone, proximaVersao(conn), id);
+                        return atual;
+                    }
+                    return null;
+                });
+
+                if (antes != null) {
+                    reavaliarClientes(Collections.singletonList(antes.getIdCliente()));
+                    Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.DELETAR, id, antes, null, null));
+                }
 
             } catch (SQLIntegrityConstraintViolationException e) {
                 // A exceção de integridade é relançada para ser tratada pela API (status 409)
@@ -217,22 +462,156 @@ package dao;
             }
         }
 
-        // METODO DE PROIBIÇÃO DE UM USUÁRIO ALUGAR DUAS QUADRAS
+        // ======================================//
+        // ARQUIVAMENTO (ver ArquivamentoLocacoes)
+        // Move para locacao_arquivo até "tamanhoLote" locações com data anterior a
+        // "anteriorA" e id maior que "aposId". Os candidatos vêm de uma leitura sem
+        // lock; a transação trava só as linhas do lote (FOR UPDATE por PK), confere a
+        // data de novo, copia, apaga e grava os tombstones da sincronização delta.
+        // ======================================//
+        public LoteArquivamento arquivarLote(Date anteriorA, long aposId, int tamanhoLote) {
 
-        public boolean clienteJaPossuiLocacao(Long idCliente) {
+            String sqlCandidatos = "SELECT id_locacao FROM locacao WHERE id_locacao > ? AND datalocacao < ? ORDER BY id_locacao LIMIT ?";
+
+            try {
+                List<Long> candidatos = JdbcExecutor.consultar(sqlCandidatos, rs -> rs.getLong(1),
+                        aposId, anteriorA, tamanhoLote);
+                if (candidatos.isEmpty()) {
+                    return LoteArquivamento.fim(aposId);
+                }
+                long ultimoCandidato = candidatos.get(candidatos.size() - 1);
+
+                String marcadores = String.join(",", Collections.nCopies(candidatos.size(), "?"));
+                Object[] ids = candidatos.toArray();
+
+                List<Aluguel> movidas = JdbcExecutor.emTransacao(conn -> {
+
+                    // trava e confere o lote (a linha pode ter mudado desde a leitura)
+                    Object[] parametrosLote = Arrays.copyOf(ids, ids.length + 1);
+                    parametrosLote[ids.length] = anteriorA;
+                    List<Aluguel> lote = JdbcExecutor.consultar(conn,
+                            "SELECT " + COLUNAS + " FROM locacao WHERE id_locacao IN (" + marcadores + ") AND datalocacao < ? FOR UPDATE",
+                            MAPEADOR, parametrosLote);
+                    if (lote.isEmpty()) {
+                        return lote;
+                    }
 
-            String sql = "SELECT COUNT(*) FROM locacao WHERE Cliente_idCliente = ?";
+                    String marcadoresLote = String.join(",", Collections.nCopies(lote.size(), "?"));
+                    Object[] idsLote = lote.stream().map(Aluguel::getId_locacao).toArray();
+
+                    JdbcExecutor.atualizar(conn, "INSERT INTO locacao_arquivo (" + COLUNAS + ") SELECT " + COLUNAS
+                            + " FROM locacao WHERE id_locacao IN (" + marcadoresLote + ")", idsLote);
+                    JdbcExecutor.atualizar(conn, "DELETE FROM locacao WHERE id_locacao IN (" + marcadoresLote + ")", idsLote);
+
+                    // um tombstone por locação, com versões reservadas de uma vez
+                    long versao = reservarVersoes(conn, lote.size());
+                    StringBuilder sqlTombstones = new StringBuilder("INSERT INTO locacao_exclusao (versao_alteracao, id_locacao) VALUES ");
+                    Object[] parametrosTombstones = new Object[lote.size() * 2];
+                    for (int i = 0; i < lote.size(); i++) {
+                        sqlTombstones.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                        parametrosTombstones[2 * i] = versao + i;
+                        parametrosTombstones[2 * i + 1] = lote.get(i).getId_locacao();
+                    }
+                    JdbcExecutor.atualizar(conn, sqlTombstones.toString(), parametrosTombstones);
 
-            try (Connection conn = ConnectionFactory.getConnection();
-                    PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    return lote;
+                });
 
-                stmt.setLong(1, idCliente);
+                Set<Long> clientes = new LinkedHashSet<>();
+                for (Aluguel aluguel : movidas) {
+                    clientes.add(aluguel.getIdCliente());
+                }
+                reavaliarClientes(clientes);
 
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getLong(1) > 0;
+                for (Aluguel aluguel : movidas) {
+                    Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.DELETAR, aluguel.getId_locacao(),
+                            aluguel, null, "Arquivada em locacao_arquivo"));
                 }
+                return new LoteArquivamento(movidas, ultimoCandidato);
+
+            } catch (SQLException e) {
+                System.err.println("Erro ao arquivar locações após o ID " + aposId + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            return LoteArquivamento.falha(aposId);
+        }
+
+        // ======================================//
+        // SINCRONIZAÇÃO DELTA (GET /Aluguel?since=N)
+        // ======================================//
+        public SincronizacaoAluguel buscarAlteracoesDesde(long versaoDesde) {
+
+            String sqlVersao = "SELECT valor FROM versao_sequencia WHERE nome = 'locacao'";
+            String sqlRemovidos = "SELECT id_locacao FROM locacao_exclusao WHERE versao_alteracao > ? AND versao_alteracao <= ? ORDER BY versao_alteracao";
+
+            try {
+                // Uma única transação: as três leituras enxergam o mesmo snapshot
+                // (da réplica, se houver; a marca d'água vem do mesmo snapshot)
+                return JdbcExecutor.emTransacaoLeitura(conn -> {
+
+                    Long versaoBanco = JdbcExecutor.consultarUm(conn, sqlVersao, rs -> rs.getLong(1));
+                    long versaoAtual = Math.max(versaoDesde, versaoBanco != null ? versaoBanco : 0);
+
+                    SincronizacaoAluguel sincronizacao = new SincronizacaoAluguel();
+                    sincronizacao.setVersao(versaoAtual);
+
+                    // Nada mudou: não toca nas tabelas de dados
+                    if (versaoAtual > versaoDesde) {
+                        sincronizacao.setAlterados(JdbcExecutor.consultar(conn, SQL_ALTERADOS_DESDE, MAPEADOR,
+                                versaoDesde, versaoAtual));
+                        sincronizacao.setRemovidos(JdbcExecutor.consultar(conn, sqlRemovidos, rs -> rs.getLong(1),
+                                versaoDesde, versaoAtual));
+                    }
+                    return sincronizacao;
+                });
+
+            } catch (SQLException e) {
+                System.err.println("Erro ao buscar alterações desde a versão " + versaoDesde + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            SincronizacaoAluguel vazia = new SincronizacaoAluguel();
+            vazia.setVersao(versaoDesde);
+            return vazia;
+        }
 
+        // Reserva a próxima versão de alteração dentro da transação corrente.
+        // O UPDATE trava a linha da sequência até o commit, então as escritas ficam
+        // visíveis na mesma ordem das versões e nenhum leitor "pula" uma versão.
+        private long proximaVersao(Connection conn) throws SQLException {
+            return reservarVersoes(conn, 1);
+        }
+
+        // Reserva "quantidade" versões seguidas e devolve a primeira
+        private static long reservarVersoes(Connection conn, int quantidade) throws SQLException {
+
+            String sqlIncremento = "UPDATE versao_sequencia SET valor = LAST_INSERT_ID(valor + ?) WHERE nome = 'locacao'";
+
+            JdbcExecutor.atualizar(conn, sqlIncremento, quantidade);
+            long ultima = JdbcExecutor.consultarUm(conn, "SELECT LAST_INSERT_ID()", rs -> rs.getLong(1));
+            return ultima - quantidade + 1;
+        }
+
+        // METODO DE PROIBIÇÃO DE UM USUÁRIO ALUGAR DUAS QUADRAS
+        // Só a tabela quente conta: locações arquivadas já passaram.
+        // Respondido pelo índice em memória; o COUNT no primário só enquanto ele não carrega.
+
+        public boolean clienteJaPossuiLocacao(Long idCliente) {
+
+            if (INDICE_ATIVO && !locacoesAtivas.isCarregado()) {
+                carregarIndiceLocacoes();
+            }
+            if (locacoesAtivas.isCarregado()) {
+                return idCliente != null && locacoesAtivas.contem(idCliente);
+            }
+            return contarLocacoesNoBanco(idCliente);
+        }
+
+        private boolean contarLocacoesNoBanco(Long idCliente) {
+
+            try {
+                Long total = JdbcExecutor.consultarUmPrimario(SQL_CONTA_POR_CLIENTE, rs -> rs.getLong(1), idCliente);
+                return total != null && total > 0;
             } catch (SQLException e) {
                 e.printStackTrace();
             }
@@ -242,19 +621,149 @@ package dao;
 
 
 
+        // ======================================//
+        // ÍNDICE DE LOCAÇÕES ATIVAS (ver IndiceLocacaoAtiva)
+        // ======================================//
+
+        // Verifica e reserva o cliente para o INSERT; false se ele já tem locação.
+        // Com true, a reserva fica presa até o inserir() confirmar ou liberar: outro POST do
+        // mesmo cliente espera aqui e só então confere, já vendo o resultado deste.
+        // O "não tem" do índice vale direto (o caso comum); o "tem" é confirmado no banco
+        // antes de recusar. Sem o índice (indiceLocacoes.ativo=false) a reserva só ordena os
+        // POSTs desta instância: quem confere é o inserir(), dentro da transação.
+        private boolean reservarCliente(Long idCliente) {
+
+            if (idCliente == null) {
+                return true; // o INSERT recusa (coluna NOT NULL)
+            }
+            if (INDICE_ATIVO && !locacoesAtivas.isCarregado()) {
+                carregarIndiceLocacoes();
+            }
+
+            IndiceLocacaoAtiva.Reserva reserva;
+            try {
+                reserva = locacoesAtivas.reservar(idCliente, ESPERA_RESERVA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (reserva == IndiceLocacaoAtiva.Reserva.OCUPADO) {
+                return false;
+            }
+            if (!INDICE_ATIVO) {
+                return true;
+            }
+            if (reserva == IndiceLocacaoAtiva.Reserva.LIVRE && locacoesAtivas.isCarregado()) {
+                return true;
+            }
+
+            // marca no índice, ou índice indisponível (banco fora na carga): confere no banco
+            if (contarLocacoesNoBanco(idCliente)) {
+                locacoesAtivas.liberar(idCliente);
+                return false;
+            }
+            locacoesAtivas.definir(idCliente, false); // marca que sobrou de uma exclusão
+            return true;
+        }
+
+        // Trava a linha do cliente e conta as locações dele, na transação do INSERT: outra
+        // instância que tente o mesmo cliente espera o commit desta e já conta a nova locação
+        private static boolean clienteJaPossuiLocacao(Connection conn, Long idCliente) throws SQLException {
+            if (idCliente == null) {
+                return false;
+            }
+            JdbcExecutor.consultarUm(conn, "SELECT id_cliente FROM cliente WHERE id_cliente = ? FOR UPDATE",
+                    rs -> rs.getLong(1), idCliente);
+            Long total = JdbcExecutor.consultarUm(conn, SQL_CONTA_POR_CLIENTE, rs -> rs.getLong(1), idCliente);
+            return total != null && total > 0;
+        }
+
+        // Carga completa a partir do primário (feita uma única vez) e início da reconciliação
+        public void carregarIndiceLocacoes() {
+            synchronized (cargaIndice) {
+                if (locacoesAtivas.isCarregado() || lerIndiceLocacoes() < 0) {
+                    return;
+                }
+                System.out.println("Índice de locações ativas: " + locacoesAtivas.tamanho() + " clientes.");
+
+                if (RECONCILIACAO_MS > 0) {
+                    reconciliacao = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "reconciliacao-locacoes");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    reconciliacao.scheduleWithFixedDelay(AluguelDAO::reconciliarIndiceLocacoes,
+                            RECONCILIACAO_MS, RECONCILIACAO_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        // Compara o índice com o banco e corrige as diferenças (não deveria haver nenhuma)
+        static void reconciliarIndiceLocacoes() {
+            int antes = locacoesAtivas.tamanho();
+            int divergencias = lerIndiceLocacoes();
+            if (divergencias > 0) {
+                System.err.println("Índice de locações ativas: " + divergencias
+                        + " clientes divergiam do banco e foram corrigidos (" + antes + " -> "
+                        + locacoesAtivas.tamanho() + ").");
+            }
+        }
+
+        // Clientes distintos da locacao (idx_locacao_cliente), lidos no primário: a réplica
+        // pode estar atrasada em relação às escritas que o índice já viu.
+        // Devolve as divergências corrigidas, ou -1 se a leitura falhou.
+        private static int lerIndiceLocacoes() {
+
+            locacoesAtivas.iniciarLeitura();
+            try {
+                List<Long> ids = JdbcExecutor.emTransacao(conn -> JdbcExecutor.consultar(conn,
+                        "SELECT DISTINCT Cliente_idCliente FROM locacao", rs -> rs.getLong(1)));
+
+                LongHashSet doBanco = new LongHashSet(ids.size());
+                for (Long id : ids) {
+                    doBanco.add(id);
+                }
+                return locacoesAtivas.aplicarLeitura(doBanco);
+
+            } catch (SQLException | RuntimeException e) {
+                locacoesAtivas.cancelarLeitura();
+                System.err.println("Erro ao carregar o índice de locações ativas: " + e.getMessage());
+                return -1;
+            }
+        }
+
+        // Depois de exclusão, arquivamento ou troca de cliente: confere no primário quais
+        // dos clientes ainda têm locação (legado pode ter mais de uma por cliente).
+        // Falha aqui deixa o cliente marcado até a próxima reconciliação.
+        private static void reavaliarClientes(Collection<Long> idsClientes) {
+
+            if (!INDICE_ATIVO || idsClientes.isEmpty()) {
+                return;
+            }
+            Object[] parametros = JdbcExecutor.parametrosIn(new ArrayList<>(idsClientes));
+            String sql = "SELECT DISTINCT Cliente_idCliente FROM locacao WHERE Cliente_idCliente IN ("
+                    + JdbcExecutor.marcadoresIn(parametros.length) + ")";
+
+            try {
+                List<Long> ativos = JdbcExecutor.emTransacao(conn -> JdbcExecutor.consultar(conn, sql,
+                        rs -> rs.getLong(1), parametros));
+                for (Long id : idsClientes) {
+                    locacoesAtivas.definir(id, ativos.contains(id));
+                }
+            } catch (SQLException e) {
+                System.err.println("Erro ao atualizar o índice de locações ativas: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
         //Checar se a data da locacao foi alterada para que haja aplicação de multa
         public boolean dataFoiAlterada(Long idLocacao, Date novaData) {
 
         String sql = "SELECT datalocacao FROM locacao WHERE id_locacao = ?";
 
-        try (Connection conn = ConnectionFactory.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setLong(1, idLocacao);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Date dataAtual = rs.getDate("datalocacao");
+        try {
+            Date dataAtual = JdbcExecutor.consultarUmPrimario(sql, rs -> rs.getDate(1), idLocacao);
+            if (dataAtual != null) {
                 return !dataAtual.equals(novaData);
             }
 
@@ -270,23 +779,18 @@ package dao;
     public double buscarPrecoAtual(Long id_locacao){
         String sql = "SELECT preco from locacao WHERE id_locacao = ?";
 
-        try(Connection conn = ConnectionFactory.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(sql)){
-
-                stmt.setLong(1,id_locacao);
-                ResultSet rs = stmt.executeQuery();
-
-                if(rs.next()){
-                    return rs.getDouble("preco");
-                }
-
+        try {
+            Double preco = JdbcExecutor.consultarUmPrimario(sql, rs -> rs.getDouble(1), id_locacao);
+            if (preco != null) {
+                return preco;
+            }
 
-                }catch (SQLException e) {
-        e.printStackTrace();
-    }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
 
     return 0;
-            } 
+            }
 
     }
-    
+
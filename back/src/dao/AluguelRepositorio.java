@@ -0,0 +1,66 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.Map;
+
+import model.Aluguel;
+import model.AluguelDetalhado;
+import model.SincronizacaoAluguel;
+
+// Operações de locação usadas pela API. Implementações:
+// AluguelDAO (MySQL) e dao.memoria.AluguelRepositorioMemoria (em memória).
+public interface AluguelRepositorio {
+
+    // Todas as locações ativas (em "alterados") e a marca d'água da sincronização
+    // ("versao") lida no mesmo snapshot: o cliente continua com ?since=versao
+    SincronizacaoAluguel buscarTodos();
+
+    List<Aluguel> buscar(FiltroAluguel filtro);
+
+    // Só os campos da projeção (AluguelDAO.PROJECAO_LOCACAO.selecionar), com os filtros do buscar
+    List<Map<String, Object>> buscarProjetado(Projecao<Aluguel> projecao, FiltroAluguel filtro);
+
+    List<AluguelDetalhado> buscarDetalhado(FiltroAluguel filtro);
+
+    // Locações da tabela quente e do arquivo (GET /Aluguel?incluirArquivo=true)
+    List<Aluguel> buscarComArquivo(FiltroAluguel filtro);
+
+    // Todas as locações que atendem ao filtro, em ordem de id, entregues uma a uma
+    // (GET /Aluguel/export.ndjson). Sem limite de linhas; retorna quantas foram entregues.
+    // Com "incluirArquivo", as da tabela quente e as do arquivo vêm intercaladas na mesma
+    // ordem de id (o id_locacao não muda ao arquivar): um único aposId retoma as duas.
+    // Diferente das listagens, falhas são propagadas: a exportação já começou a ser enviada.
+    long exportar(FiltroAluguel filtro, boolean incluirArquivo, ConsumidorLinha<Aluguel> consumidor)
+            throws SQLException, IOException;
+
+    // Lista vazia quando não existe (contrato herdado do AluguelDAO)
+    List<Aluguel> buscarPorId(Long id);
+
+    // Vários IDs de uma vez (um único IN); IDs inexistentes ficam fora do mapa
+    Map<Long, Aluguel> buscarPorIds(List<Long> ids);
+
+    List<Aluguel> buscarPorQuadraId(Long idQuadra);
+
+    // Lança RuntimeException se o cliente já tiver locação; define o ID no objeto
+    void inserir(Aluguel aluguel);
+
+    // Mudança de data aplica a taxa de R$ 50,00. Só grava se a versao_alteracao
+    // atual for a esperada (null = qualquer); senão VersaoDivergenteException
+    void atualizar(Aluguel aluguel, Long versaoEsperada);
+
+    void deletar(Long id) throws SQLIntegrityConstraintViolationException, SQLException;
+
+    // Sincronização delta (GET /Aluguel?since=N)
+    SincronizacaoAluguel buscarAlteracoesDesde(long versaoDesde);
+
+    // Considera só as locações ativas (fora do arquivo)
+    boolean clienteJaPossuiLocacao(Long idCliente);
+
+    // Move um lote de locações antigas (data < anteriorA, id > aposId, em ordem de id)
+    // para o arquivo; devolve as movidas e até onde o lote foi (ver LoteArquivamento)
+    LoteArquivamento arquivarLote(Date anteriorA, long aposId, int tamanhoLote);
+}
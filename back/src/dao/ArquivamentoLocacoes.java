@@ -0,0 +1,117 @@
+package dao;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Tarefa em segundo plano que move para locacao_arquivo as locações com data
+// anterior ao horizonte, mantendo pequena a tabela quente (e seus índices).
+// Cada rodada percorre a locacao em ordem de id, em lotes pequenos, cada um na
+// sua própria transação, com uma pausa entre lotes para não disputar com a API,
+// até não restar locação elegível. Lote curto ou vazio (linhas alteradas desde a
+// leitura) não encerra a rodada: ela segue depois do último candidato. Lote com erro
+// é tentado de novo; esgotadas as tentativas (ou no desligamento), a rodada para e
+// registra a partir de qual ID as locações ficaram para a próxima:
+//   arquivamento.ativo          liga/desliga a tarefa (padrão: true)
+//   arquivamento.horizonteDias  idade mínima da locação, em dias (padrão: 180)
+//   arquivamento.lote           locações por transação (padrão: 500)
+//   arquivamento.pausaMs        pausa entre lotes (padrão: 200)
+//   arquivamento.tentativas     novas tentativas de um lote com erro (padrão: 3)
+//   arquivamento.intervaloMs    intervalo entre rodadas (padrão: 1 hora)
+public final class ArquivamentoLocacoes {
+
+    private static ScheduledExecutorService agendador;
+
+    private ArquivamentoLocacoes() {
+    }
+
+    public static void iniciar(AluguelRepositorio repositorio) {
+
+        if (!Boolean.parseBoolean(System.getProperty("arquivamento.ativo", "true"))) {
+            return;
+        }
+
+        long intervaloMs = Long.getLong("arquivamento.intervaloMs", 3600000);
+
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arquivamento-locacoes");
+            t.setDaemon(true);
+            return t;
+        });
+
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                executar(repositorio);
+            } catch (RuntimeException e) {
+                System.err.println("Erro no arquivamento de locações: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Desligamento: interrompe a pausa entre lotes; o lote em andamento termina
+    public static void parar() {
+        if (agendador == null) {
+            return;
+        }
+        agendador.shutdownNow();
+        try {
+            agendador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Uma rodada completa; devolve quantas locações foram arquivadas
+    public static int executar(AluguelRepositorio repositorio) {
+
+        Date anteriorA = Date.valueOf(LocalDate.now().minusDays(Integer.getInteger("arquivamento.horizonteDias", 180)));
+        int tamanhoLote = Integer.getInteger("arquivamento.lote", 500);
+        long pausaMs = Long.getLong("arquivamento.pausaMs", 200);
+        int tentativas = Integer.getInteger("arquivamento.tentativas", 3);
+
+        int total = 0;
+        int falhasSeguidas = 0;
+        long aposId = 0;
+        String interrupcao = null;
+
+        while (true) {
+
+            if (Thread.currentThread().isInterrupted()) {
+                interrupcao = "desligamento";
+                break;
+            }
+
+            LoteArquivamento lote = repositorio.arquivarLote(anteriorA, aposId, tamanhoLote);
+            if (lote.isFalhou()) {
+                if (++falhasSeguidas > tentativas) {
+                    interrupcao = falhasSeguidas + " falhas seguidas no mesmo lote";
+                    break;
+                }
+            } else if (lote.isFim(aposId)) {
+                break;
+            } else {
+                falhasSeguidas = 0;
+                total += lote.getMovidas().size();
+                aposId = lote.getUltimoId();
+            }
+
+            try {
+                Thread.sleep(pausaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (total > 0) {
+            System.out.println("Arquivamento: " + total + " locações anteriores a " + anteriorA + " movidas para locacao_arquivo.");
+        }
+        if (interrupcao != null) {
+            System.err.println("Arquivamento interrompido (" + interrupcao + "): as locações anteriores a " + anteriorA
+                    + " com ID maior que " + aposId + " ficam para a próxima rodada.");
+        }
+        return total;
+    }
+}
@@ -0,0 +1,219 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import model.Copiavel;
+import monitoramento.Rastreamento;
+import util.ContextoRequisicao;
+import util.PrazoExcedidoException;
+
+// Buscas por ID em lote (no estilo DataLoader): os IDs pedidos por várias threads
+// dentro de uma janela curta viram um único "WHERE id IN (...)", e cada uma
+// recebe a sua linha.
+// - Quem abre o lote espera a janela (lote.janelaMs, ou até o lote atingir
+//   lote.tamanhoMaximo) e faz a busca na própria thread, com o ContextoRequisicao
+//   e o prazo dela. Sem nenhuma outra busca em andamento no carregador, não há
+//   janela: o lote de um ID só sai na hora.
+// - Se o lote estoura o prazo (o de quem abriu, que vem do cliente), quem ainda tem
+//   prazo busca o seu ID sozinho em vez de devolver 504.
+// - Dentro de uma requisição, o mesmo ID é buscado uma vez só (memorização no
+//   ContextoRequisicao, descartada quando a requisição escreve algo).
+// - Requisições que escrevem (fixadas no primário) e chamadas fora de uma
+//   requisição buscam direto, sozinhas.
+// - Uma falha na busca do lote chega a todos que estavam esperando por ele.
+// - Cada chamada recebe a própria cópia do valor (Copiavel): o lote é compartilhado.
+// Desative com -Dlote.ativo=false (cada busca vai sozinha ao banco).
+public final class CarregadorLote<V> {
+
+    private static final boolean ATIVO = Boolean.parseBoolean(System.getProperty("lote.ativo", "true"));
+    private static final long JANELA_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("lote.janelaMs", 2));
+    private static final int TAMANHO_MAXIMO = Integer.getInteger("lote.tamanhoMaximo", 100);
+
+    static {
+        // Depois de uma escrita, a requisição que escreveu não pode reaproveitar o que leu antes
+        Mutacoes.registrar(mutacao -> {
+            ContextoRequisicao contexto = ContextoRequisicao.atual();
+            if (contexto != null) {
+                contexto.limparMemorizados();
+            }
+        });
+    }
+
+    // Busca de vários IDs de uma vez (ex: ClienteRepositorio::buscarPorIds)
+    @FunctionalInterface
+    public interface BuscaLote<V> {
+        Map<Long, V> buscar(List<Long> ids);
+    }
+
+    // Lote em formação; os campos são guardados pelo CarregadorLote ("this")
+    private final class Lote {
+        final Map<Long, CompletableFuture<V>> pedidos = new LinkedHashMap<>();
+        boolean fechado;
+    }
+
+    private final String nome;
+    private final BuscaLote<V> busca;
+
+    // Lote aceitando pedidos (null se nenhum); guardado por "this"
+    private Lote aberto;
+
+    // Chamadas de buscar() em andamento (inclusive esperando um lote); guardado por "this"
+    private int emBusca;
+
+    public CarregadorLote(String nome, BuscaLote<V> busca) {
+        this.nome = nome;
+        this.busca = busca;
+    }
+
+    // Valor do ID ou null se não existir
+    public V buscar(Long id) {
+
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+
+        if (!ATIVO || contexto == null || contexto.isFixadoNoPrimario()) {
+            return busca.buscar(Arrays.asList(id)).get(id);
+        }
+
+        List<Object> chave = Arrays.asList(nome, id);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<V> futuro = (CompletableFuture<V>) contexto.getMemorizados().get(chave);
+        if (futuro == null) {
+            synchronized (this) {
+                emBusca++;
+            }
+            try {
+                futuro = carregar(id);
+                contexto.getMemorizados().put(chave, futuro);
+                return Copiavel.copiaDe(aguardar(futuro, contexto));
+
+            } catch (PrazoExcedidoException e) {
+                // o prazo que estourou pode ter sido o de quem abriu o lote
+                if (contexto.restanteMs() <= 0) {
+                    throw e;
+                }
+                V valor = busca.buscar(Arrays.asList(id)).get(id);
+                contexto.getMemorizados().put(chave, CompletableFuture.completedFuture(valor));
+                return Copiavel.copiaDe(valor);
+
+            } finally {
+                synchronized (this) {
+                    emBusca--;
+                }
+            }
+        }
+        return Copiavel.copiaDe(aguardar(futuro, contexto));
+    }
+
+    // Entra no lote aberto (o mesmo ID pedido duas vezes compartilha a busca).
+    // Quem abriu o lote só volta daqui depois de despachá-lo.
+    private CompletableFuture<V> carregar(Long id) {
+
+        Lote lote;
+        boolean abriu = false;
+        CompletableFuture<V> futuro;
+
+        synchronized (this) {
+            if (aberto == null) {
+                aberto = new Lote();
+                abriu = true;
+            }
+            lote = aberto;
+
+            futuro = lote.pedidos.computeIfAbsent(id, k -> new CompletableFuture<>());
+            // cheio, ou sozinho: ninguém mais para juntar na janela
+            if (lote.pedidos.size() >= TAMANHO_MAXIMO || (abriu && emBusca <= 1)) {
+                fechar(lote);
+            }
+        }
+
+        if (abriu) {
+            esperarJanela(lote);
+            despachar(lote);
+        }
+        return futuro;
+    }
+
+    // Espera a janela acabar ou o lote encher (fechar() avisa)
+    private synchronized void esperarJanela(Lote lote) {
+        long fim = System.nanoTime() + JANELA_NANOS;
+        long restante;
+        while (!lote.fechado && (restante = fim - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, restante);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!lote.fechado) {
+            fechar(lote);
+        }
+    }
+
+    // Chamado com o lock de "this"
+    private void fechar(Lote lote) {
+        lote.fechado = true;
+        if (aberto == lote) {
+            aberto = null;
+        }
+        notifyAll();
+    }
+
+    // Depois de fechado, o lote não muda mais: pode ser lido sem o lock.
+    // Roda com o prazo de quem abriu (o ContextoRequisicao da thread atual).
+    private void despachar(Lote lote) {
+        try {
+            Map<Long, V> encontrados = busca.buscar(new ArrayList<>(lote.pedidos.keySet()));
+            for (Map.Entry<Long, CompletableFuture<V>> pedido : lote.pedidos.entrySet()) {
+                pedido.getValue().complete(encontrados.get(pedido.getKey()));
+            }
+        } catch (RuntimeException | Error e) {
+            for (CompletableFuture<V> futuro : lote.pedidos.values()) {
+                futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Espera o lote respeitando o prazo da requisição. A busca roda na thread de quem
+    // abriu o lote: a espera entra no rastreamento desta como trecho "banco".
+    private V aguardar(CompletableFuture<V> futuro, ContextoRequisicao contexto) {
+
+        if (!futuro.isDone()) {
+            long inicio = System.nanoTime();
+            try {
+                return esperar(futuro, contexto);
+            } finally {
+                Rastreamento.registrar(Rastreamento.BANCO, "Lote de " + nome, inicio);
+            }
+        }
+        return esperar(futuro, contexto);
+    }
+
+    private V esperar(CompletableFuture<V> futuro, ContextoRequisicao contexto) {
+        try {
+            return futuro.get(Math.max(0, contexto.restanteMs()), TimeUnit.MILLISECONDS);
+
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw (Error) causa;
+
+        } catch (TimeoutException e) {
+            throw new PrazoExcedidoException("Prazo da requisição esgotado aguardando o lote de " + nome + ".", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PrazoExcedidoException("Interrompido aguardando o lote de " + nome + ".", e);
+        }
+    }
+}
@@ -1,44 +1,53 @@
 package dao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import model.Cliente;
-import util.ConnectionFactory;
 
-public class ClienteDAO {
+public class ClienteDAO implements ClienteRepositorio {
+
+    // Projeção explícita do cliente; o MAPEADOR lê as colunas nesta ordem
+    public static final String COLUNAS = "id_cliente, Nome, Telefone, versao";
+
+    public static final String SQL_POR_ID = "SELECT " + COLUNAS + " FROM cliente WHERE id_cliente = ?";
+
+    // Linha de cliente (na ordem de COLUNAS) -> Cliente
+    public static final RowMapper<Cliente> MAPEADOR = rs -> new Cliente(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getLong(4));
+
+    // Campos do GET /cliente?fields= (nomes do JSON do Cliente)
+    public static final Projecao<Cliente> PROJECAO_CLIENTE = new Projecao<Cliente>()
+            .campo("ID", "id_cliente", ResultSet::getLong, Cliente::getID)
+            .campo("nome", "Nome", ResultSet::getString, Cliente::getNome)
+            .campo("telefone", "Telefone", ResultSet::getString, Cliente::getTelefone)
+            .campo("versao", "versao", ResultSet::getLong, Cliente::getVersao);
+
+    // Índice em memória para a busca por nome/telefone, mantido pelas escritas abaixo
+    private static final IndiceCliente indice = new IndiceCliente();
 
     // ======================================//
     // READ ALL
     // ======================================//
     public List<Cliente> buscarTodos() {
 
-        List<Cliente> clientes = new ArrayList<>();
-
-        String sql = "SELECT * FROM cliente";
+        String sql = "SELECT " + COLUNAS + " FROM cliente";
 
-        try (Connection conn = ConnectionFactory.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery();) {
-
-            while (rs.next()) {
-                Cliente cliente = new Cliente(
-                        rs.getLong("id_cliente"),
-                        rs.getString("Nome"),
-                        rs.getString("Telefone"));
-                clientes.add(cliente);
-            }
-        } catch (Exception e) {
+        try {
+            return JdbcExecutor.consultar(sql, MAPEADOR);
+        } catch (SQLException e) {
             System.err.println("Erro ao buscar cliente: " + e.getMessage());
             e.printStackTrace();
         }
-        return clientes;
+        return new ArrayList<>();
     }
 
     // ======================================//
@@ -46,53 +55,113 @@ public class ClienteDAO {
     // ======================================//
     public Cliente buscarPorId(Long id) {
 
-        Cliente cliente = null;
+        try {
+            return JdbcExecutor.consultarUm(SQL_POR_ID, MAPEADOR, id);
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar cliente por ID: " + id + ". Detalhes: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
 
-        // CORREÇÃO: Usar a instrução SELECT correta para buscar por ID
-        String sql = "SELECT * FROM cliente WHERE id_cliente = ?"; 
+    // ======================================//
+    // READ BY IDS (usado pelo CarregadorLote)
+    // ======================================//
+    public Map<Long, Cliente> buscarPorIds(List<Long> ids) {
 
-        try (Connection conn = ConnectionFactory.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        Map<Long, Cliente> resultado = new HashMap<>();
+        if (ids.isEmpty()) {
+            return resultado;
+        }
 
-            // CORREÇÃO: Setar o ID no único parâmetro '?'
-            stmt.setLong(1, id);
+        Object[] parametros = JdbcExecutor.parametrosIn(ids);
+        String sql = "SELECT " + COLUNAS + " FROM cliente WHERE id_cliente IN (" + JdbcExecutor.marcadoresIn(parametros.length) + ")";
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    cliente = new Cliente(
-                            rs.getLong("id_cliente"),
-                            rs.getString("Nome"),
-                            rs.getString("Telefone"));
-                }
+        try {
+            for (Cliente cliente : JdbcExecutor.consultar(sql, MAPEADOR, parametros)) {
+                resultado.put(cliente.getID(), cliente);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar cliente por ID: " + id + ". Detalhes: " + e.getMessage());
+            System.err.println("Erro ao buscar clientes por IDs: " + ids + ". Detalhes: " + e.getMessage());
             e.printStackTrace();
         }
-        return cliente;
+        return resultado;
     }
 
     // ======================================//
-    // CREATE
+    // READ PROJETADO (GET /cliente?ids=&fields=)
+    // Só as colunas da projeção saem do banco; ids null = todos
     // ======================================//
-    public void inserir(Cliente cliente) {
+    public List<Map<String, Object>> buscarProjetado(Projecao<Cliente> projecao, List<Long> ids) {
+
+        String sql = "SELECT " + projecao.colunas() + " FROM cliente";
+        Object[] parametros = {};
+
+        if (ids != null) {
+            parametros = JdbcExecutor.parametrosIn(ids);
+            sql += " WHERE id_cliente IN (" + JdbcExecutor.marcadoresIn(parametros.length) + ")";
+        }
+        sql += " ORDER BY id_cliente";
+
+        try {
+            return JdbcExecutor.consultar(sql, projecao.mapeador(), parametros);
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar clientes (campos " + projecao.colunas() + "): " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
 
-        String sql = "INSERT INTO cliente (Nome, Telefone) VALUES (?, ?)"; 
+    // ======================================//
+    // BUSCA POR NOME (PREFIXO) OU TELEFONE
+    // Atendida pelo índice em memória, sem LIKE no banco.
+    // ======================================//
+    public List<Cliente> buscarPorTermo(String termo, int limite) {
+        if (!indice.isCarregado()) {
+            carregarIndice();
+        }
+        // Carga falhou: o índice só tem as escritas recentes, não responde por ele
+        if (!indice.isCarregado()) {
+            return new ArrayList<>();
+        }
+        return indice.buscar(termo, limite);
+    }
 
-        try (Connection conn = ConnectionFactory.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    // Carga completa do índice a partir do primário (feita uma única vez; a réplica pode
+    // estar atrás das escritas que o índice já recebeu). Se a leitura falhar, o índice
+    // continua não carregado (a busca volta vazia) e a próxima chamada tenta de novo.
+    public void carregarIndice() {
+        synchronized (indice) {
+            if (indice.isCarregado()) {
+                return;
+            }
+            try {
+                indice.carregar(JdbcExecutor.emTransacao(conn -> JdbcExecutor.consultar(conn,
+                        "SELECT " + COLUNAS + " FROM cliente", MAPEADOR)));
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Erro ao carregar o índice de clientes: " + e.getMessage());
+            }
+        }
+    }
 
-            stmt.setString(1, cliente.getNome());
-            stmt.setString(2, cliente.getTelefone());
+    // ======================================//
+    // CREATE
+    // ======================================//
+    public void inserir(Cliente cliente) {
 
-            stmt.executeUpdate();
+        String sql = "INSERT INTO cliente (Nome, Telefone) VALUES (?, ?)";
 
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    // Define o ID gerado de volta no objeto Cliente
-                    cliente.setID(rs.getLong(1));
+        try {
+            // Define o ID gerado de volta no objeto Cliente
+            Long id = JdbcExecutor.emTransacao(conn -> JdbcExecutor.inserir(conn, sql,
+                    cliente.getNome(),
+                    cliente.getTelefone()));
 
-                }
+            if (id != null) {
+                cliente.setID(id);
+                cliente.setVersao(0L);
+                indice.atualizar(cliente);
+                Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.INSERIR, id, null, cliente, null));
             }
 
         } catch (SQLException e) {
@@ -104,24 +173,38 @@ public class ClienteDAO {
 
     // ------------------------------------
     // UPDATE
+    // Condicional à versão lida pelo cliente (null = versão atual): se outra
+    // requisição alterou a linha antes, nada é gravado e lança VersaoDivergenteException.
     // ------------------------------------
-    public void atualizar(Cliente cliente) {
+    public void atualizar(Cliente cliente, Long versaoEsperada) {
 
-        String sql = "UPDATE cliente SET Nome = ?, Telefone = ? WHERE id_cliente = ?";
+        String sql = "UPDATE cliente SET Nome = ?, Telefone = ?, versao = versao + 1 WHERE id_cliente = ? AND versao = ?";
 
-        try (Connection conn = ConnectionFactory.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            // estado anterior, para a auditoria
+            Cliente antes = JdbcExecutor.consultarUmPrimario(SQL_POR_ID, MAPEADOR, cliente.getID());
+            if (antes == null) {
+                return;
+            }
 
-            // define os parâmetros (os novos valores)
-            stmt.setString(1, cliente.getNome());
-            stmt.setString(2, cliente.getTelefone());
-            // define o ID no WHERE (o último '?')
-            stmt.setLong(3, cliente.getID());
+            long esperada = versaoEsperada != null ? versaoEsperada : antes.getVersao();
 
-            // executa a atualização
-            int linhasAfetadas = stmt.executeUpdate();
+            // novos valores, o ID e a versão do WHERE
+            int linhasAfetadas = JdbcExecutor.atualizar(sql,
+                    cliente.getNome(),
+                    cliente.getTelefone(),
+                    cliente.getID(),
+                    esperada);
             System.out.println("Cliente ID " + cliente.getID() + " atualizado. Linhas afetadas: " + linhasAfetadas);
 
+            if (linhasAfetadas == 0) {
+                throw new VersaoDivergenteException("Cliente", cliente.getID());
+            }
+
+            cliente.setVersao(esperada + 1);
+            indice.atualizar(cliente);
+            Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.ATUALIZAR, cliente.getID(), antes, cliente, null));
+
         } catch (SQLException e) {
             System.err.println("Erro ao atualizar cliente ID: " + cliente.getID() + ". Detalhes: " + e.getMessage());
             e.printStackTrace();
@@ -135,15 +218,19 @@ public class ClienteDAO {
 
         String sql = "DELETE FROM cliente WHERE id_cliente = ?";
 
-        try (Connection conn = ConnectionFactory.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setLong(1, id);
+        try {
+            // estado anterior, para a auditoria
+            Cliente antes = JdbcExecutor.consultarUmPrimario(SQL_POR_ID, MAPEADOR, id);
 
             // executa a exclusão
-            int linhasAfetadas = stmt.executeUpdate();
+            int linhasAfetadas = JdbcExecutor.atualizar(sql, id);
             System.out.println("Tentativa de deletar Cliente ID " + id + ". Linhas afetadas: " + linhasAfetadas);
 
+            if (linhasAfetadas > 0) {
+                indice.remover(id);
+                Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.DELETAR, id, antes, null, null));
+            }
+
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new SQLIntegrityConstraintViolationException();
         }
@@ -155,4 +242,4 @@ public class ClienteDAO {
             throw new SQLIntegrityConstraintViolationException();
         }
     }
-}
\ No newline at end of file
+}
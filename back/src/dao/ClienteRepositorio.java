@@ -0,0 +1,34 @@
+package dao;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.Map;
+
+import model.Cliente;
+
+// Operações de cliente usadas pela API. Implementações:
+// ClienteDAO (MySQL) e dao.memoria.ClienteRepositorioMemoria (em memória).
+public interface ClienteRepositorio {
+
+    List<Cliente> buscarTodos();
+
+    Cliente buscarPorId(Long id);
+
+    // Vários IDs de uma vez (um único IN); IDs inexistentes ficam fora do mapa
+    Map<Long, Cliente> buscarPorIds(List<Long> ids);
+
+    // Só os campos da projeção (ClienteDAO.PROJECAO_CLIENTE.selecionar), em ordem de ID; ids null = todos
+    List<Map<String, Object>> buscarProjetado(Projecao<Cliente> projecao, List<Long> ids);
+
+    // Prefixo do nome ou telefone, até "limite" resultados
+    List<Cliente> buscarPorTermo(String termo, int limite);
+
+    // Define o ID gerado no próprio objeto
+    void inserir(Cliente cliente);
+
+    // Só grava se a versão atual for a esperada (null = qualquer); senão VersaoDivergenteException
+    void atualizar(Cliente cliente, Long versaoEsperada);
+
+    // Falha com SQLIntegrityConstraintViolationException se o cliente tiver locações
+    void deletar(Long id) throws SQLIntegrityConstraintViolationException;
+}
@@ -0,0 +1,12 @@
+package dao;
+
+import java.io.IOException;
+
+// Recebe as linhas de uma leitura em fluxo (JdbcExecutor.percorrer), uma por vez,
+// sem acumular o resultado em memória. IOException (ex: cliente HTTP desconectou)
+// interrompe a leitura.
+@FunctionalInterface
+public interface ConsumidorLinha<T> {
+
+    void aceitar(T linha) throws IOException;
+}
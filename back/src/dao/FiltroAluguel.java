@@ -0,0 +1,141 @@
+package dao;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Filtros e paginação compartilhados por GET /Aluguel e GET /Aluguel/detalhado.
+// A paginação é por chave (keyset): "aposId" é o último id_locacao da página anterior.
+public class FiltroAluguel {
+
+    public static final int LIMITE_MAXIMO = 1000;
+
+    private Long idCliente;
+    private Long idQuadra;
+    private Date dataInicio;
+    private Date dataFim;
+    private Long aposId;
+    private Integer limite;
+
+    // GET /Aluguel?ids=1,2,3 (sem repetições, na ordem pedida)
+    private List<Long> ids;
+
+    // Parâmetros na ordem em que aparecem no WHERE gerado
+    private final List<Object> parametros = new ArrayList<>();
+
+    // Monta "WHERE ... ORDER BY ... LIMIT ..." usando o alias da tabela locacao (ex: "l.")
+    public String montarClausula(String alias) {
+
+        parametros.clear();
+        StringBuilder sql = new StringBuilder();
+        List<String> condicoes = new ArrayList<>();
+
+        if (idCliente != null) {
+            condicoes.add(alias + "Cliente_idCliente = ?");
+            parametros.add(idCliente);
+        }
+        if (idQuadra != null) {
+            condicoes.add(alias + "Quadra_id_quadra = ?");
+            parametros.add(idQuadra);
+        }
+        if (dataInicio != null) {
+            condicoes.add(alias + "datalocacao >= ?");
+            parametros.add(dataInicio);
+        }
+        if (dataFim != null) {
+            condicoes.add(alias + "datalocacao <= ?");
+            parametros.add(dataFim);
+        }
+        if (aposId != null) {
+            condicoes.add(alias + "id_locacao > ?");
+            parametros.add(aposId);
+        }
+        if (ids != null) {
+            Object[] valores = JdbcExecutor.parametrosIn(ids);
+            condicoes.add(alias + "id_locacao IN (" + JdbcExecutor.marcadoresIn(valores.length) + ")");
+            for (Object valor : valores) {
+                parametros.add(valor);
+            }
+        }
+
+        if (!condicoes.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", condicoes));
+        }
+
+        sql.append(" ORDER BY ").append(alias).append("id_locacao");
+
+        if (limite != null) {
+            sql.append(" LIMIT ").append(limite);
+        }
+
+        return sql.toString();
+    }
+
+    // Parâmetros gerados pelo último montarClausula, na ordem dos "?"
+    public Object[] getParametros() {
+        return parametros.toArray();
+    }
+
+    public Long getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Long idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public Long getIdQuadra() {
+        return idQuadra;
+    }
+
+    public void setIdQuadra(Long idQuadra) {
+        this.idQuadra = idQuadra;
+    }
+
+    public Date getDataInicio() {
+        return dataInicio;
+    }
+
+    public void setDataInicio(Date dataInicio) {
+        this.dataInicio = dataInicio;
+    }
+
+    public Date getDataFim() {
+        return dataFim;
+    }
+
+    public void setDataFim(Date dataFim) {
+        this.dataFim = dataFim;
+    }
+
+    public Long getAposId() {
+        return aposId;
+    }
+
+    public void setAposId(Long aposId) {
+        this.aposId = aposId;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        if (ids != null && (ids.isEmpty() || ids.size() > LIMITE_MAXIMO)) {
+            throw new IllegalArgumentException("Informe entre 1 e " + LIMITE_MAXIMO + " IDs.");
+        }
+        this.ids = ids == null ? null : new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    public Integer getLimite() {
+        return limite;
+    }
+
+    public void setLimite(Integer limite) {
+        if (limite != null && (limite < 1 || limite > LIMITE_MAXIMO)) {
+            throw new IllegalArgumentException("O limite deve estar entre 1 e " + LIMITE_MAXIMO + ".");
+        }
+        this.limite = limite;
+    }
+}
@@ -0,0 +1,172 @@
+package dao;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import model.Cliente;
+
+// Índice em memória dos clientes para a busca do balcão (GET /cliente/busca?q=).
+// - Nome: mapa ordenado de "termo normalizado + id" -> id, consultado por prefixo.
+//   São indexados o nome completo e cada palavra (achar "Silva" em "João da Silva").
+// - Telefone: hash dos dígitos do telefone -> ids.
+// Leituras não bloqueiam; escritas são serializadas para manter os índices coerentes.
+public class IndiceCliente {
+
+    // Separa o termo do id na chave do mapa ordenado (nunca aparece em texto normalizado)
+    private static final char SEPARADOR = '\u0000';
+
+    // Telefones com menos dígitos que isso são tratados como nome
+    private static final int MINIMO_DIGITOS_TELEFONE = 4;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern NAO_DIGITOS = Pattern.compile("\\D");
+    private static final Pattern FORMATACAO_TELEFONE = Pattern.compile("[\\s()+.-]");
+
+    private final Map<Long, Cliente> porId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Long> porNome = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Long>> porTelefone = new ConcurrentHashMap<>();
+
+    private volatile boolean carregado = false;
+
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    // Substitui todo o conteúdo do índice (carga inicial)
+    public synchronized void carregar(Collection<Cliente> clientes) {
+        porId.clear();
+        porNome.clear();
+        porTelefone.clear();
+
+        for (Cliente cliente : clientes) {
+            adicionar(cliente);
+        }
+        carregado = true;
+    }
+
+    // Inserção ou atualização vinda do ClienteDAO
+    public synchronized void atualizar(Cliente cliente) {
+        if (cliente == null || cliente.getID() == null) {
+            return;
+        }
+        remover(cliente.getID());
+        adicionar(cliente);
+    }
+
+    // Exclusão vinda do ClienteDAO
+    public synchronized void remover(Long id) {
+        Cliente antigo = porId.remove(id);
+        if (antigo == null) {
+            return;
+        }
+
+        for (String termo : termosDoNome(antigo.getNome())) {
+            porNome.remove(chave(termo, id));
+        }
+
+        String telefone = normalizarTelefone(antigo.getTelefone());
+        if (!telefone.isEmpty()) {
+            porTelefone.computeIfPresent(telefone, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Retorna até "limite" clientes cujo telefone bate com os dígitos da consulta
+    // ou cujo nome (ou alguma palavra do nome) começa com a consulta.
+    public List<Cliente> buscar(String consulta, int limite) {
+
+        Set<Long> encontrados = new LinkedHashSet<>();
+
+        String digitos = normalizarTelefone(consulta);
+        if (digitos.length() >= MINIMO_DIGITOS_TELEFONE && digitos.length() == FORMATACAO_TELEFONE.matcher(consulta).replaceAll("").length()) {
+            Set<Long> ids = porTelefone.get(digitos);
+            if (ids != null) {
+                for (Long id : ids) {
+                    if (encontrados.size() >= limite) break;
+                    encontrados.add(id);
+                }
+            }
+        }
+
+        String prefixo = normalizarNome(consulta);
+        if (!prefixo.isEmpty() && encontrados.size() < limite) {
+            NavigableMap<String, Long> faixa = porNome.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false);
+            for (Long id : faixa.values()) {
+                if (encontrados.size() >= limite) break;
+                encontrados.add(id);
+            }
+        }
+
+        List<Cliente> resultado = new ArrayList<>(encontrados.size());
+        for (Long id : encontrados) {
+            Cliente cliente = porId.get(id);
+            if (cliente != null) {
+                resultado.add(cliente.copia()); // as instâncias do índice não saem daqui
+            }
+        }
+        return resultado;
+    }
+
+    private void adicionar(Cliente cliente) {
+        Long id = cliente.getID();
+        porId.put(id, cliente);
+
+        for (String termo : termosDoNome(cliente.getNome())) {
+            porNome.put(chave(termo, id), id);
+        }
+
+        String telefone = normalizarTelefone(cliente.getTelefone());
+        if (!telefone.isEmpty()) {
+            porTelefone.computeIfAbsent(telefone, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static String chave(String termo, Long id) {
+        return termo + SEPARADOR + id;
+    }
+
+    // Nome completo normalizado + cada palavra do nome
+    private static Set<String> termosDoNome(String nome) {
+        Set<String> termos = new LinkedHashSet<>();
+        String normalizado = normalizarNome(nome);
+        if (normalizado.isEmpty()) {
+            return termos;
+        }
+        termos.add(normalizado);
+        for (String palavra : normalizado.split(" ")) {
+            if (!palavra.isEmpty()) {
+                termos.add(palavra);
+            }
+        }
+        return termos;
+    }
+
+    // "  João  da SILVA " -> "joao da silva"
+    static String normalizarNome(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcento = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcento.toLowerCase().trim()).replaceAll(" ");
+    }
+
+    // "(11) 98765-4321" -> "11987654321"
+    static String normalizarTelefone(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return NAO_DIGITOS.matcher(texto).replaceAll("");
+    }
+}
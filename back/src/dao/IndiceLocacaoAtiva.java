@@ -0,0 +1,139 @@
+package dao;
+
+import util.LongHashSet;
+
+// Clientes com locação na tabela quente, para a regra "uma locação por cliente"
+// (AluguelDAO.inserir) sem um SELECT COUNT(*) por POST: um conjunto de long, sem boxing.
+// - Carregado do primário no primeiro uso (ou no aquecimento) e mantido pelas
+//   escritas do AluguelDAO.
+// - reservar() marca o cliente como "inserindo" até confirmar() (commit) ou liberar()
+//   (rollback): um segundo POST do mesmo cliente nesta instância espera o primeiro
+//   terminar, em vez de conferir o banco antes do commit dele. Só vale dentro desta
+//   instância: com várias, use indiceLocacoes.ativo=false (ver AluguelDAO).
+// - Reconciliação periódica com o banco: durante a leitura, os clientes alterados
+//   ficam registrados em "tocados" e mantêm o valor do índice (mais novo que a leitura).
+// Métodos sincronizados: as operações são O(1) e o lock quase nunca é disputado.
+public class IndiceLocacaoAtiva {
+
+    private LongHashSet clientes = new LongHashSet(1024);
+
+    // Clientes com INSERT em andamento nesta instância
+    private final LongHashSet reservados = new LongHashSet();
+
+    // Clientes alterados desde o início da leitura em andamento (null fora dela)
+    private LongHashSet tocados;
+
+    private volatile boolean carregado = false;
+
+    // Resultado do reservar(): LIVRE = sem locação no índice; CONFERIR = com locação no
+    // índice (pode estar desatualizado); OCUPADO = outra reserva não terminou a tempo.
+    // Nos dois primeiros a reserva fica com quem chamou.
+    public enum Reserva { LIVRE, CONFERIR, OCUPADO }
+
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    public synchronized boolean contem(long idCliente) {
+        return clientes.contains(idCliente) || reservados.contains(idCliente);
+    }
+
+    // Espera até "esperaMs" outra reserva do mesmo cliente terminar
+    public synchronized Reserva reservar(long idCliente, long esperaMs) throws InterruptedException {
+
+        long limite = System.nanoTime() + esperaMs * 1_000_000;
+        while (reservados.contains(idCliente)) {
+            long restanteMs = (limite - System.nanoTime()) / 1_000_000;
+            if (restanteMs <= 0) {
+                return Reserva.OCUPADO;
+            }
+            wait(restanteMs);
+        }
+
+        tocar(idCliente);
+        reservados.add(idCliente);
+        return clientes.contains(idCliente) ? Reserva.CONFERIR : Reserva.LIVRE;
+    }
+
+    // INSERT confirmado (commit)
+    public synchronized void confirmar(long idCliente) {
+        tocar(idCliente);
+        clientes.add(idCliente);
+        reservados.remove(idCliente);
+        notifyAll();
+    }
+
+    // INSERT não confirmado (rollback ou recusa)
+    public synchronized void liberar(long idCliente) {
+        tocar(idCliente);
+        reservados.remove(idCliente);
+        notifyAll();
+    }
+
+    // Situação conferida no banco (após exclusão, arquivamento ou troca de cliente)
+    public synchronized void definir(long idCliente, boolean ativa) {
+        tocar(idCliente);
+        if (ativa) {
+            clientes.add(idCliente);
+        } else {
+            clientes.remove(idCliente);
+        }
+    }
+
+    public synchronized int tamanho() {
+        return clientes.size();
+    }
+
+    // ======================================//
+    // CARGA E RECONCILIAÇÃO
+    // ======================================//
+
+    // Chamado antes de ler os clientes no banco
+    public synchronized void iniciarLeitura() {
+        tocados = new LongHashSet();
+    }
+
+    // Aplica a leitura do banco; devolve quantos clientes divergiam (0 na carga inicial)
+    public synchronized int aplicarLeitura(LongHashSet doBanco) {
+
+        LongHashSet alterados = tocados != null ? tocados : new LongHashSet();
+        tocados = null;
+
+        int divergencias = 0;
+        for (long id : clientes.toArray()) {
+            if (!doBanco.contains(id) && !alterados.contains(id)) {
+                divergencias++;
+            }
+        }
+        for (long id : doBanco.toArray()) {
+            if (!clientes.contains(id) && !alterados.contains(id)) {
+                divergencias++;
+            }
+        }
+
+        // Os alterados durante a leitura ficam como estão no índice
+        alterados.forEach(id -> {
+            if (clientes.contains(id)) {
+                doBanco.add(id);
+            } else {
+                doBanco.remove(id);
+            }
+        });
+        clientes = doBanco;
+
+        boolean primeiraCarga = !carregado;
+        carregado = true;
+        return primeiraCarga ? 0 : divergencias;
+    }
+
+    // Leitura falhou: o índice continua como estava
+    public synchronized void cancelarLeitura() {
+        tocados = null;
+    }
+
+    private void tocar(long idCliente) {
+        if (tocados != null) {
+            tocados.add(idCliente);
+        }
+    }
+}
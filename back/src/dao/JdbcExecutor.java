@@ -0,0 +1,373 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import model.Copiavel;
+import monitoramento.MedicaoComando;
+import monitoramento.Rastreamento;
+import util.ConnectionFactory;
+import util.ContextoRequisicao;
+import util.PrazoExcedidoException;
+import util.SingleFlight;
+
+// Camada comum de execução JDBC usada pelos DAOs.
+// Centraliza abertura/fechamento de Connection, PreparedStatement e ResultSet,
+// o bind de parâmetros, o fetch size e o timeout das consultas.
+// consultar/consultarUm sem Connection vão para uma réplica de leitura;
+// escritas, transações e os métodos "Primario" vão para o primário.
+// Leituras idênticas simultâneas (mesmo SQL, parâmetros e mapeador) fora de uma
+// requisição de escrita são agrupadas: uma só vai ao banco e cada thread recebe uma
+// cópia do resultado (lista e entidades Copiavel próprias, como numa leitura sozinha).
+// Desative com -Djdbc.agruparLeituras=false
+// Cada comando é medido (monitoramento.MedicaoComando): trecho "banco" do rastreamento,
+// estatísticas por impressão digital (GET /admin/queries) e evento JFR quadra.Comando.
+// Quem espera a leitura agrupada de outra thread registra a espera no rastreamento.
+public final class JdbcExecutor {
+
+    // Linhas buscadas por ida ao banco (0 = padrão do driver). -Djdbc.fetchSize=N
+    private static final int FETCH_SIZE = Integer.getInteger("jdbc.fetchSize", 0);
+
+    // Teto de tempo de cada comando em segundos (0 = sem teto). -Djdbc.timeoutSegundos=N
+    // Durante uma requisição HTTP vale o menor entre este teto e o prazo restante dela.
+    private static final int TIMEOUT_SEGUNDOS = Integer.getInteger("jdbc.timeoutSegundos", 0);
+
+    // Fetch size das leituras em fluxo (percorrer). Integer.MIN_VALUE faz o Connector/J
+    // entregar o resultado linha a linha; com useCursorFetch=true na URL, use um valor
+    // positivo para buscar em blocos por cursor no servidor. -Djdbc.fetchSizeFluxo=N
+    private static final int FETCH_SIZE_FLUXO = Integer.getInteger("jdbc.fetchSizeFluxo", Integer.MIN_VALUE);
+
+    private static final boolean AGRUPAR_LEITURAS = Boolean.parseBoolean(System.getProperty("jdbc.agruparLeituras", "true"));
+
+    private static final SingleFlight<ChaveConsulta, Object> leiturasEmAndamento = new SingleFlight<>();
+
+    // Trabalho executado dentro de uma transação
+    @FunctionalInterface
+    public interface Transacao<T> {
+        T executar(Connection conn) throws SQLException;
+    }
+
+    private JdbcExecutor() {
+    }
+
+    // ======================================//
+    // CONSULTAS
+    // ======================================//
+    public static <T> List<T> consultar(String sql, RowMapper<T> mapper, Object... parametros) throws SQLException {
+
+        if (!agrupavel()) {
+            try (Connection conn = ConnectionFactory.getConnectionLeitura()) {
+                return consultar(conn, sql, mapper, parametros);
+            }
+        }
+
+        long inicio = System.nanoTime();
+        boolean[] executou = { false };
+
+        @SuppressWarnings("unchecked")
+        List<T> lista = (List<T>) leiturasEmAndamento.executar(new ChaveConsulta(true, sql, mapper, parametros), () -> {
+            executou[0] = true;
+            try (Connection conn = ConnectionFactory.getConnectionLeitura()) {
+                return Collections.unmodifiableList(consultar(conn, sql, mapper, parametros));
+            }
+        });
+        if (!executou[0]) {
+            Rastreamento.registrar(Rastreamento.BANCO, "Leitura agrupada: " + sql, inicio);
+        }
+        return copias(lista);
+    }
+
+    public static <T> List<T> consultar(Connection conn, String sql, RowMapper<T> mapper, Object... parametros)
+            throws SQLException {
+
+        List<T> lista = new ArrayList<>();
+
+        try (MedicaoComando medicao = MedicaoComando.iniciar(sql, parametros);
+                PreparedStatement stmt = preparar(conn, sql, false, parametros);
+                ResultSet rs = executarConsulta(stmt)) {
+            while (rs.next()) {
+                lista.add(mapper.mapear(rs));
+            }
+            medicao.setLinhas(lista.size());
+        }
+        return lista;
+    }
+
+    // Primeira linha do resultado ou null
+    public static <T> T consultarUm(String sql, RowMapper<T> mapper, Object... parametros) throws SQLException {
+
+        if (!agrupavel()) {
+            try (Connection conn = ConnectionFactory.getConnectionLeitura()) {
+                return consultarUm(conn, sql, mapper, parametros);
+            }
+        }
+
+        long inicio = System.nanoTime();
+        boolean[] executou = { false };
+
+        @SuppressWarnings("unchecked")
+        T resultado = (T) leiturasEmAndamento.executar(new ChaveConsulta(false, sql, mapper, parametros), () -> {
+            executou[0] = true;
+            try (Connection conn = ConnectionFactory.getConnectionLeitura()) {
+                return consultarUm(conn, sql, mapper, parametros);
+            }
+        });
+        if (!executou[0]) {
+            Rastreamento.registrar(Rastreamento.BANCO, "Leitura agrupada: " + sql, inicio);
+        }
+        return Copiavel.copiaDe(resultado);
+    }
+
+    // Leitura que precisa enxergar escritas recentes (ex: validações antes de gravar)
+    public static <T> T consultarUmPrimario(String sql, RowMapper<T> mapper, Object... parametros) throws SQLException {
+        try (Connection conn = ConnectionFactory.getConnection()) {
+            return consultarUm(conn, sql, mapper, parametros);
+        }
+    }
+
+    public static <T> T consultarUm(Connection conn, String sql, RowMapper<T> mapper, Object... parametros)
+            throws SQLException {
+
+        try (MedicaoComando medicao = MedicaoComando.iniciar(sql, parametros);
+                PreparedStatement stmt = preparar(conn, sql, false, parametros);
+                ResultSet rs = executarConsulta(stmt)) {
+            boolean encontrou = rs.next();
+            medicao.setLinhas(encontrou ? 1 : 0);
+            return encontrou ? mapper.mapear(rs) : null;
+        }
+    }
+
+    // ======================================//
+    // LEITURA EM FLUXO
+    // ======================================//
+
+    // Entrega cada linha ao consumidor assim que ela chega do banco, sem montar a lista
+    // (memória constante, qualquer tamanho de resultado). Fica fora do agrupamento de
+    // leituras e do prazo da requisição: vale só o teto -Djdbc.timeoutSegundos, e quem
+    // dita o ritmo é o consumidor. Retorna o número de linhas entregues.
+    @SuppressWarnings("try") // a medição só delimita o tempo do comando
+    public static <T> long percorrer(String sql, RowMapper<T> mapper, ConsumidorLinha<T> consumidor,
+            Object... parametros) throws SQLException, IOException {
+
+        try (Connection conn = ConnectionFactory.getConnectionLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(FETCH_SIZE_FLUXO);
+            if (TIMEOUT_SEGUNDOS > 0) {
+                stmt.setQueryTimeout(TIMEOUT_SEGUNDOS);
+            }
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+
+            // No rastreamento, só até a primeira linha: o resto do tempo é ditado pelo consumidor
+            long linhas = 0;
+            ResultSet rs;
+            try (MedicaoComando medicao = MedicaoComando.iniciar(sql, parametros)) {
+                rs = executarConsulta(stmt);
+            }
+            try {
+                while (rs.next()) {
+                    consumidor.aceitar(mapper.mapear(rs));
+                    linhas++;
+                }
+            } catch (IOException | SQLException | RuntimeException e) {
+                // Fechar um resultado em fluxo lê todas as linhas restantes do socket;
+                // cancelar antes (KILL QUERY) evita transferir o que ninguém vai consumir
+                try {
+                    stmt.cancel();
+                    rs.close();
+                } catch (SQLException ignorada) {
+                    // a falha original é a que interessa
+                }
+                throw e;
+            }
+            rs.close();
+            return linhas;
+        }
+    }
+
+    // ======================================//
+    // ESCRITAS
+    // ======================================//
+
+    // UPDATE/DELETE: retorna as linhas afetadas
+    public static int atualizar(String sql, Object... parametros) throws SQLException {
+        try (Connection conn = ConnectionFactory.getConnection()) {
+            return atualizar(conn, sql, parametros);
+        }
+    }
+
+    public static int atualizar(Connection conn, String sql, Object... parametros) throws SQLException {
+        try (MedicaoComando medicao = MedicaoComando.iniciar(sql, parametros);
+                PreparedStatement stmt = preparar(conn, sql, false, parametros)) {
+            int afetadas = executarAtualizacao(stmt);
+            medicao.setLinhas(afetadas);
+            return afetadas;
+        }
+    }
+
+    // INSERT: retorna a chave gerada (ou null se o banco não gerou nenhuma)
+    public static Long inserir(Connection conn, String sql, Object... parametros) throws SQLException {
+        try (MedicaoComando medicao = MedicaoComando.iniciar(sql, parametros);
+                PreparedStatement stmt = preparar(conn, sql, true, parametros)) {
+            medicao.setLinhas(executarAtualizacao(stmt));
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    // ======================================//
+    // TRANSAÇÃO: commit se o trabalho terminar, rollback se lançar exceção
+    // ======================================//
+    public static <T> T emTransacao(Transacao<T> trabalho) throws SQLException {
+        return emTransacao(ConnectionFactory.getConnection(), trabalho);
+    }
+
+    // Transação só de leitura numa réplica (snapshot consistente de várias consultas)
+    public static <T> T emTransacaoLeitura(Transacao<T> trabalho) throws SQLException {
+        return emTransacao(ConnectionFactory.getConnectionLeitura(), trabalho);
+    }
+
+    @SuppressWarnings("try") // a medição só delimita o tempo do comando
+    private static <T> T emTransacao(Connection conexao, Transacao<T> trabalho) throws SQLException {
+        try (Connection conn = conexao) {
+            conn.setAutoCommit(false);
+            try {
+                T resultado = trabalho.executar(conn);
+                try (MedicaoComando medicao = MedicaoComando.iniciar("COMMIT")) {
+                    conn.commit();
+                }
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ======================================//
+    // LISTAS "IN (...)"
+    // O tamanho da lista é arredondado para a próxima potência de 2 (repetindo o
+    // último valor): poucos textos de SQL distintos, e o cache de statements do
+    // driver continua útil.
+    // ======================================//
+    public static Object[] parametrosIn(List<?> valores) {
+        int tamanho = Integer.highestOneBit(Math.max(1, valores.size() - 1)) << 1;
+        Object[] parametros = Arrays.copyOf(valores.toArray(), valores.size() == 1 ? 1 : tamanho);
+        Arrays.fill(parametros, valores.size(), parametros.length, valores.get(valores.size() - 1));
+        return parametros;
+    }
+
+    public static String marcadoresIn(int quantidade) {
+        return String.join(",", Collections.nCopies(quantidade, "?"));
+    }
+
+    // ======================================//
+    // AGRUPAMENTO DE LEITURAS
+    // ======================================//
+
+    // Requisições que escrevem (fixadas no primário) não entram: precisam ler depois
+    // da própria escrita, e não o resultado de uma consulta que começou antes dela.
+    private static boolean agrupavel() {
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+        return AGRUPAR_LEITURAS && (contexto == null || !contexto.isFixadoNoPrimario());
+    }
+
+    // O resultado agrupado é o mesmo objeto para todas as threads: ninguém o recebe direto
+    private static <T> List<T> copias(List<T> compartilhada) {
+        List<T> lista = new ArrayList<>(compartilhada.size());
+        for (T item : compartilhada) {
+            lista.add(Copiavel.copiaDe(item));
+        }
+        return lista;
+    }
+
+    private static final class ChaveConsulta {
+        private final boolean lista;
+        private final String sql;
+        private final RowMapper<?> mapper;
+        private final Object[] parametros;
+        private final int hash;
+
+        ChaveConsulta(boolean lista, String sql, RowMapper<?> mapper, Object[] parametros) {
+            this.lista = lista;
+            this.sql = sql;
+            this.mapper = mapper;
+            this.parametros = parametros;
+            this.hash = Objects.hash(lista, sql, mapper) * 31 + Arrays.hashCode(parametros);
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            if (!(outro instanceof ChaveConsulta)) {
+                return false;
+            }
+            ChaveConsulta chave = (ChaveConsulta) outro;
+            return lista == chave.lista && mapper == chave.mapper && sql.equals(chave.sql)
+                    && Arrays.equals(parametros, chave.parametros);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static PreparedStatement preparar(Connection conn, String sql, boolean chavesGeradas, Object... parametros)
+            throws SQLException {
+
+        PreparedStatement stmt = chavesGeradas
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql);
+
+        try {
+            if (FETCH_SIZE > 0) {
+                stmt.setFetchSize(FETCH_SIZE);
+            }
+            // Com timeout, o driver do MySQL envia KILL QUERY ao estourar o prazo,
+            // cancelando o comando também no servidor.
+            int timeout = ContextoRequisicao.timeoutSegundosRestante(TIMEOUT_SEGUNDOS);
+            if (timeout > 0) {
+                stmt.setQueryTimeout(timeout);
+            }
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            return stmt;
+        } catch (SQLException | RuntimeException e) {
+            stmt.close();
+            throw e;
+        }
+    }
+
+    // Timeout do comando vira PrazoExcedidoException (504 na API)
+    private static ResultSet executarConsulta(PreparedStatement stmt) throws SQLException {
+        try {
+            return stmt.executeQuery();
+        } catch (SQLTimeoutException e) {
+            throw new PrazoExcedidoException("Consulta cancelada por exceder o prazo.", e);
+        }
+    }
+
+    private static int executarAtualizacao(PreparedStatement stmt) throws SQLException {
+        try {
+            return stmt.executeUpdate();
+        } catch (SQLTimeoutException e) {
+            throw new PrazoExcedidoException("Comando cancelado por exceder o prazo.", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Aluguel;
+
+// Resultado de um AluguelRepositorio.arquivarLote (ver ArquivamentoLocacoes).
+// O cursor da rodada é "ultimoId", o último candidato examinado: um lote pode mover
+// menos locações que os candidatos (ou nenhuma), se elas mudaram entre a leitura e
+// a transação, e a rodada continua depois deles.
+public final class LoteArquivamento {
+
+    private final List<Aluguel> movidas;
+    private final long ultimoId;
+    private final boolean falhou;
+
+    public LoteArquivamento(List<Aluguel> movidas, long ultimoId) {
+        this(movidas, ultimoId, false);
+    }
+
+    private LoteArquivamento(List<Aluguel> movidas, long ultimoId, boolean falhou) {
+        this.movidas = movidas;
+        this.ultimoId = ultimoId;
+        this.falhou = falhou;
+    }
+
+    // Nenhum candidato depois de "aposId": fim da rodada
+    public static LoteArquivamento fim(long aposId) {
+        return new LoteArquivamento(new ArrayList<>(), aposId, false);
+    }
+
+    // O lote não foi gravado (erro no banco); as locações continuam na tabela quente
+    public static LoteArquivamento falha(long aposId) {
+        return new LoteArquivamento(new ArrayList<>(), aposId, true);
+    }
+
+    public List<Aluguel> getMovidas() {
+        return movidas;
+    }
+
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    public boolean isFalhou() {
+        return falhou;
+    }
+
+    // Sem falha e sem avanço do cursor: não há mais candidatos
+    public boolean isFim(long aposId) {
+        return !falhou && ultimoId <= aposId;
+    }
+}
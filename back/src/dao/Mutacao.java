@@ -0,0 +1,50 @@
+package dao;
+
+// Alteração confirmada (após o commit) em um cliente ou locação.
+// Publicada pelos DAOs em Mutacoes; "antes"/"depois" são null quando não se aplicam
+// (antes de um INSERIR, depois de um DELETAR).
+public class Mutacao {
+
+    public enum Operacao { INSERIR, ATUALIZAR, DELETAR }
+
+    private final String entidade;
+    private final Operacao operacao;
+    private final Long id;
+    private final Object antes;
+    private final Object depois;
+    private final String detalhe;
+
+    public Mutacao(String entidade, Operacao operacao, Long id, Object antes, Object depois, String detalhe) {
+        this.entidade = entidade;
+        this.operacao = operacao;
+        this.id = id;
+        this.antes = antes;
+        this.depois = depois;
+        this.detalhe = detalhe;
+    }
+
+    public String getEntidade() {
+        return entidade;
+    }
+
+    public Operacao getOperacao() {
+        return operacao;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Object getAntes() {
+        return antes;
+    }
+
+    public Object getDepois() {
+        return depois;
+    }
+
+    // Informação extra da regra de negócio (ex: taxa por mudança de data)
+    public String getDetalhe() {
+        return detalhe;
+    }
+}
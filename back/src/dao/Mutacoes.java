@@ -0,0 +1,31 @@
+package dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Ponto único de notificação das escritas dos DAOs.
+// Quem precisa reagir a alterações (diário de auditoria, caches, índices) se registra aqui.
+public final class Mutacoes {
+
+    private static final List<Consumer<Mutacao>> observadores = new CopyOnWriteArrayList<>();
+
+    private Mutacoes() {
+    }
+
+    public static void registrar(Consumer<Mutacao> observador) {
+        observadores.add(observador);
+    }
+
+    // Chamado pelos DAOs depois do commit; a falha de um observador não desfaz a escrita
+    public static void publicar(Mutacao mutacao) {
+        for (Consumer<Mutacao> observador : observadores) {
+            try {
+                observador.accept(mutacao);
+            } catch (RuntimeException e) {
+                System.err.println("Erro em observador de mutação: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
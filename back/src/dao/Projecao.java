@@ -0,0 +1,132 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Projeção parcial das listagens (GET /cliente?fields=nome,telefone).
+// Cada campo JSON sabe a sua coluna e como lê-la: o SELECT traz só as colunas
+// pedidas e o resultado vira um mapa campo -> valor, então o Gson também só
+// codifica esses campos. O motor em memória usa o getter do modelo.
+public final class Projecao<T> {
+
+    // Seleções diferentes que ficam guardadas (a mesma seleção devolve a mesma
+    // instância, e o mesmo mapeador: consultas idênticas continuam agrupáveis)
+    private static final int MAXIMO_SELECOES = 256;
+
+    // Lê a coluna na posição "indice" da linha atual
+    @FunctionalInterface
+    public interface LeitorColuna {
+        Object ler(ResultSet rs, int indice) throws SQLException;
+    }
+
+    private static final class Campo<T> {
+        final String nome;
+        final String coluna;
+        final LeitorColuna leitor;
+        final Function<T, Object> getter;
+
+        Campo(String nome, String coluna, LeitorColuna leitor, Function<T, Object> getter) {
+            this.nome = nome;
+            this.coluna = coluna;
+            this.leitor = leitor;
+            this.getter = getter;
+        }
+    }
+
+    // Todos os campos da entidade (compartilhado entre as seleções)
+    private final Map<String, Campo<T>> disponiveis;
+    private final Map<String, Projecao<T>> selecoes;
+
+    private final List<Campo<T>> campos = new ArrayList<>();
+    private String colunas;
+    private RowMapper<Map<String, Object>> mapeador;
+
+    public Projecao() {
+        this.disponiveis = new LinkedHashMap<>();
+        this.selecoes = new ConcurrentHashMap<>();
+    }
+
+    private Projecao(Projecao<T> completa) {
+        this.disponiveis = completa.disponiveis;
+        this.selecoes = completa.selecoes;
+    }
+
+    // Declaração dos campos (só na montagem da projeção completa)
+    public Projecao<T> campo(String nome, String coluna, LeitorColuna leitor, Function<T, Object> getter) {
+        Campo<T> campo = new Campo<>(nome, coluna, leitor, getter);
+        disponiveis.put(nome, campo);
+        adicionar(campo);
+        return this;
+    }
+
+    // "nome,telefone" -> projeção com esses campos, na ordem pedida.
+    // null ou vazio -> todos os campos. Campo desconhecido: IllegalArgumentException (400)
+    public Projecao<T> selecionar(String lista) {
+
+        if (lista == null || lista.trim().isEmpty()) {
+            return this;
+        }
+
+        Projecao<T> guardada = selecoes.get(lista);
+        if (guardada != null) {
+            return guardada;
+        }
+
+        Projecao<T> selecao = new Projecao<>(this);
+        for (String item : lista.split(",")) {
+            String nome = item.trim();
+            Campo<T> campo = disponiveis.get(nome);
+            if (campo == null) {
+                throw new IllegalArgumentException("Campo desconhecido: '" + nome + "' (use " + String.join(", ", disponiveis.keySet()) + ").");
+            }
+            if (!selecao.campos.contains(campo)) {
+                selecao.adicionar(campo);
+            }
+        }
+
+        if (selecoes.size() < MAXIMO_SELECOES) {
+            Projecao<T> existente = selecoes.putIfAbsent(lista, selecao);
+            return existente != null ? existente : selecao;
+        }
+        return selecao;
+    }
+
+    // Lista para o SELECT, na ordem lida pelo mapeador
+    public String colunas() {
+        return colunas;
+    }
+
+    public RowMapper<Map<String, Object>> mapeador() {
+        return mapeador;
+    }
+
+    // Mesmo resultado do mapeador, a partir de um objeto já carregado
+    public Map<String, Object> projetar(T objeto) {
+        Map<String, Object> valores = new LinkedHashMap<>(campos.size() * 2);
+        for (Campo<T> campo : campos) {
+            valores.put(campo.nome, campo.getter.apply(objeto));
+        }
+        return valores;
+    }
+
+    private void adicionar(Campo<T> campo) {
+        campos.add(campo);
+        colunas = colunas == null ? campo.coluna : colunas + ", " + campo.coluna;
+
+        List<Campo<T>> lidos = new ArrayList<>(campos);
+        mapeador = rs -> {
+            Map<String, Object> valores = new LinkedHashMap<>(lidos.size() * 2);
+            for (int i = 0; i < lidos.size(); i++) {
+                Campo<T> lido = lidos.get(i);
+                valores.put(lido.nome, lido.leitor.ler(rs, i + 1));
+            }
+            return valores;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Converte a linha atual do ResultSet em um objeto.
+// Os mapeadores leem as colunas pela posição (1, 2, 3...) na ordem da projeção
+// declarada junto com eles, evitando a busca por nome a cada linha.
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T mapear(ResultSet rs) throws SQLException;
+}
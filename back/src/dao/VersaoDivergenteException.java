@@ -0,0 +1,12 @@
+package dao;
+
+// A linha foi alterada por outra requisição depois da leitura do cliente:
+// a versão informada no If-Match não é mais a atual (HTTP 412).
+public class VersaoDivergenteException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public VersaoDivergenteException(String entidade, Long id) {
+        super(entidade + " " + id + " foi alterado(a) por outra requisição.");
+    }
+}
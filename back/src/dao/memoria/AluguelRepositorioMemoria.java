@@ -0,0 +1,564 @@
+package dao.memoria;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dao.AluguelRepositorio;
+import dao.ConsumidorLinha;
+import dao.FiltroAluguel;
+import dao.LoteArquivamento;
+import dao.Mutacao;
+import dao.Mutacoes;
+import dao.Projecao;
+import dao.VersaoDivergenteException;
+import model.Aluguel;
+import model.AluguelDetalhado;
+import model.Cliente;
+import model.Quadra;
+import model.SincronizacaoAluguel;
+import util.LongHashSet;
+
+// Locações no ArmazenamentoMemoria, com as mesmas regras do AluguelDAO
+// (uma locação por cliente, taxa na mudança de data, tombstones da sincronização delta).
+// Filtros por cliente ou quadra usam os índices secundários; os demais varrem a tabela.
+public class AluguelRepositorioMemoria implements AluguelRepositorio {
+
+    // Locações copiadas por vez na exportação em fluxo
+    private static final int BLOCO_EXPORTACAO = 1000;
+
+    private final ArmazenamentoMemoria armazenamento;
+
+    public AluguelRepositorioMemoria(ArmazenamentoMemoria armazenamento) {
+        this.armazenamento = armazenamento;
+    }
+
+    // ======================================//
+    // READ ALL
+    // ======================================//
+    @Override
+    public SincronizacaoAluguel buscarTodos() {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Aluguel> lista = new ArrayList<>(armazenamento.locacoes.size());
+            armazenamento.locacoes.forEach((id, aluguel) -> lista.add(copia(aluguel)));
+            lista.sort((a, b) -> Long.compare(a.getId_locacao(), b.getId_locacao()));
+            return new SincronizacaoAluguel(armazenamento.versaoLocacao, lista, new ArrayList<>());
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ COM FILTROS E PAGINAÇÃO
+    // ======================================//
+    @Override
+    public List<Aluguel> buscar(FiltroAluguel filtro) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Aluguel> lista = new ArrayList<>();
+            for (Aluguel aluguel : filtrar(filtro)) {
+                lista.add(copia(aluguel));
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ PROJETADO
+    // ======================================//
+    @Override
+    public List<Map<String, Object>> buscarProjetado(Projecao<Aluguel> projecao, FiltroAluguel filtro) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Map<String, Object>> lista = new ArrayList<>();
+            for (Aluguel aluguel : filtrar(filtro)) {
+                lista.add(projecao.projetar(copia(aluguel)));
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ DETALHADO (locação + cliente + quadra)
+    // ======================================//
+    @Override
+    public List<AluguelDetalhado> buscarDetalhado(FiltroAluguel filtro) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<AluguelDetalhado> lista = new ArrayList<>();
+
+            for (Aluguel aluguel : filtrar(filtro)) {
+                Cliente cliente = armazenamento.clientes.get(aluguel.getIdCliente());
+                Quadra quadra = armazenamento.quadras.get(aluguel.getIdQuadra());
+                // mesmo resultado do INNER JOIN
+                if (cliente == null || quadra == null) {
+                    continue;
+                }
+
+                AluguelDetalhado detalhado = new AluguelDetalhado();
+                detalhado.setId_locacao(aluguel.getId_locacao());
+                detalhado.setDataLocacao(new Date(aluguel.getDataLocacao().getTime()));
+                detalhado.setPreco(aluguel.getPreco());
+                detalhado.setIdCliente(cliente.getID());
+                detalhado.setNomeCliente(cliente.getNome());
+                detalhado.setTelefoneCliente(cliente.getTelefone());
+                detalhado.setIdQuadra(quadra.getId());
+                detalhado.setCoberturaQuadra(quadra.getCobertura());
+                detalhado.setTamanhoQuadra(quadra.getTamanho());
+                detalhado.setPrecoQuadra(quadra.getPreco());
+                lista.add(detalhado);
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ INCLUINDO O ARQUIVO
+    // ======================================//
+    @Override
+    public List<Aluguel> buscarComArquivo(FiltroAluguel filtro) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Aluguel> lista = new ArrayList<>();
+            for (Aluguel aluguel : filtrar(filtro)) {
+                lista.add(copia(aluguel));
+            }
+            armazenamento.locacoesArquivadas.forEach((id, aluguel) -> {
+                if (atende(aluguel, filtro)) {
+                    lista.add(copia(aluguel));
+                }
+            });
+            lista.sort((a, b) -> Long.compare(a.getId_locacao(), b.getId_locacao()));
+
+            if (filtro.getLimite() != null && lista.size() > filtro.getLimite()) {
+                return new ArrayList<>(lista.subList(0, filtro.getLimite()));
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // EXPORTAÇÃO EM FLUXO
+    // Sob o lock só se copiam os IDs e, depois, cada bloco de locações: a escrita para
+    // o cliente acontece fora do lock e não segura os gravadores. Com o arquivo, os IDs
+    // das duas tabelas entram juntos, em ordem (arquivar não muda o id).
+    // ======================================//
+    @Override
+    public long exportar(FiltroAluguel filtro, boolean incluirArquivo, ConsumidorLinha<Aluguel> consumidor)
+            throws IOException {
+
+        long[] ids;
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Aluguel> candidatas = filtrar(filtro);
+            if (incluirArquivo) {
+                armazenamento.locacoesArquivadas.forEach((id, aluguel) -> {
+                    if (atende(aluguel, filtro)) {
+                        candidatas.add(aluguel);
+                    }
+                });
+            }
+            ids = new long[candidatas.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = candidatas.get(i).getId_locacao();
+            }
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+        if (incluirArquivo) {
+            Arrays.sort(ids);
+        }
+
+        long entregues = 0;
+        List<Aluguel> bloco = new ArrayList<>(Math.min(ids.length, BLOCO_EXPORTACAO));
+
+        for (int inicio = 0; inicio < ids.length; inicio += BLOCO_EXPORTACAO) {
+            bloco.clear();
+
+            armazenamento.lock.readLock().lock();
+            try {
+                for (int i = inicio; i < Math.min(ids.length, inicio + BLOCO_EXPORTACAO); i++) {
+                    // excluídas ou alteradas desde a cópia dos IDs são conferidas de novo
+                    Aluguel aluguel = armazenamento.locacoes.get(ids[i]);
+                    if (aluguel == null && incluirArquivo) {
+                        aluguel = armazenamento.locacoesArquivadas.get(ids[i]); // arquivada no meio
+                    }
+                    if (atende(aluguel, filtro)) {
+                        bloco.add(copia(aluguel));
+                    }
+                }
+            } finally {
+                armazenamento.lock.readLock().unlock();
+            }
+
+            for (Aluguel aluguel : bloco) {
+                consumidor.aceitar(aluguel);
+                entregues++;
+            }
+        }
+        return entregues;
+    }
+
+    // ======================================//
+    // READ BY ID
+    // ======================================//
+    @Override
+    public List<Aluguel> buscarPorId(Long id) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Aluguel> lista = new ArrayList<>(1);
+            Aluguel aluguel = armazenamento.locacoes.get(id);
+            if (aluguel != null) {
+                lista.add(copia(aluguel));
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ BY IDS
+    // ======================================//
+    @Override
+    public Map<Long, Aluguel> buscarPorIds(List<Long> ids) {
+
+        Map<Long, Aluguel> resultado = new HashMap<>();
+
+        armazenamento.lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                Aluguel aluguel = armazenamento.locacoes.get(id);
+                if (aluguel != null) {
+                    resultado.put(id, copia(aluguel));
+                }
+            }
+            return resultado;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ BY QUADRA ID
+    // ======================================//
+    @Override
+    public List<Aluguel> buscarPorQuadraId(Long idQuadra) {
+        FiltroAluguel filtro = new FiltroAluguel();
+        filtro.setIdQuadra(idQuadra);
+        return buscar(filtro);
+    }
+
+    // ======================================//
+    // CREATE
+    // ======================================//
+    @Override
+    public void inserir(Aluguel aluguel) {
+
+        Aluguel guardado;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            // verificação e inserção sob o mesmo lock: dois pedidos simultâneos não passam juntos
+            if (armazenamento.locacoesPorCliente.containsKey(aluguel.getIdCliente())) {
+                throw new RuntimeException("Cliente já possui uma locação ativa");
+            }
+            if (!referenciasValidas(aluguel)) {
+                return;
+            }
+
+            long id = ++armazenamento.ultimoIdLocacao;
+            long versao = ++armazenamento.versaoLocacao;
+            guardado = new Aluguel(id, aluguel.getIdQuadra(), aluguel.getIdCliente(),
+                    new Date(aluguel.getDataLocacao().getTime()), aluguel.getPreco(), versao);
+
+            armazenamento.locacoes.put(id, guardado);
+            armazenamento.indexar(guardado);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        aluguel.setId_locacao(guardado.getId_locacao());
+        aluguel.setVersaoAlteracao(guardado.getVersaoAlteracao());
+        Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.INSERIR, guardado.getId_locacao(),
+                null, copia(guardado), null));
+    }
+
+    // ------------------------------------
+    // UPDATE (condicional à versao_alteracao, como no AluguelDAO)
+    // ------------------------------------
+    @Override
+    public void atualizar(Aluguel aluguel, Long versaoEsperada) {
+
+        Aluguel antes;
+        Aluguel depois;
+        String detalhe = null;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            antes = armazenamento.locacoes.get(aluguel.getId_locacao());
+            if (antes == null) {
+                return;
+            }
+            if (versaoEsperada != null && !versaoEsperada.equals(antes.getVersaoAlteracao())) {
+                throw new VersaoDivergenteException("Aluguel", aluguel.getId_locacao());
+            }
+            if (!referenciasValidas(aluguel)) {
+                return;
+            }
+
+            double precoFinal = antes.getPreco();
+            if (!antes.getDataLocacao().equals(aluguel.getDataLocacao())) {
+                precoFinal += 50.0;
+                detalhe = "Data alterada de " + antes.getDataLocacao() + " para " + aluguel.getDataLocacao()
+                        + ": taxa de R$ 50,00 aplicada";
+            }
+
+            long versao = ++armazenamento.versaoLocacao;
+            depois = new Aluguel(antes.getId_locacao(), aluguel.getIdQuadra(), aluguel.getIdCliente(),
+                    new Date(aluguel.getDataLocacao().getTime()), precoFinal, versao);
+
+            armazenamento.desindexar(antes);
+            armazenamento.locacoes.put(depois.getId_locacao(), depois);
+            armazenamento.indexar(depois);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        aluguel.setVersaoAlteracao(depois.getVersaoAlteracao());
+        Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.ATUALIZAR, depois.getId_locacao(),
+                copia(antes), copia(depois), detalhe));
+    }
+
+    // ------------------------------------
+    // DELETE
+    // ------------------------------------
+    @Override
+    public void deletar(Long id) {
+
+        Aluguel antes;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            antes = armazenamento.locacoes.remove(id);
+            if (antes == null) {
+                return;
+            }
+            armazenamento.desindexar(antes);
+            armazenamento.registrarExclusao(++armazenamento.versaoLocacao, id);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.DELETAR, id, copia(antes), null, null));
+    }
+
+    // ======================================//
+    // ARQUIVAMENTO (ver dao.ArquivamentoLocacoes)
+    // ======================================//
+    @Override
+    public LoteArquivamento arquivarLote(Date anteriorA, long aposId, int tamanhoLote) {
+
+        List<Aluguel> movidas = new ArrayList<>();
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            armazenamento.locacoes.forEach((id, aluguel) -> {
+                if (id > aposId && aluguel.getDataLocacao().before(anteriorA)) {
+                    movidas.add(aluguel);
+                }
+            });
+            movidas.sort((a, b) -> Long.compare(a.getId_locacao(), b.getId_locacao()));
+            if (movidas.size() > tamanhoLote) {
+                movidas.subList(tamanhoLote, movidas.size()).clear();
+            }
+
+            for (Aluguel aluguel : movidas) {
+                armazenamento.locacoes.remove(aluguel.getId_locacao());
+                armazenamento.desindexar(aluguel);
+                armazenamento.arquivar(aluguel);
+                armazenamento.registrarExclusao(++armazenamento.versaoLocacao, aluguel.getId_locacao());
+            }
+            if (!movidas.isEmpty()) {
+                armazenamento.alterado = true;
+            }
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        for (Aluguel aluguel : movidas) {
+            Mutacoes.publicar(new Mutacao("locacao", Mutacao.Operacao.DELETAR, aluguel.getId_locacao(),
+                    copia(aluguel), null, "Arquivada em locacao_arquivo"));
+        }
+        // aqui candidatos e movidas são os mesmos (tudo sob o mesmo lock)
+        return movidas.isEmpty() ? LoteArquivamento.fim(aposId)
+                : new LoteArquivamento(movidas, movidas.get(movidas.size() - 1).getId_locacao());
+    }
+
+    // ======================================//
+    // SINCRONIZAÇÃO DELTA
+    // ======================================//
+    @Override
+    public SincronizacaoAluguel buscarAlteracoesDesde(long versaoDesde) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            long versaoAtual = Math.max(versaoDesde, armazenamento.versaoLocacao);
+
+            SincronizacaoAluguel sincronizacao = new SincronizacaoAluguel();
+            sincronizacao.setVersao(versaoAtual);
+
+            if (versaoAtual > versaoDesde) {
+                List<Aluguel> alterados = new ArrayList<>();
+                armazenamento.locacoes.forEach((id, aluguel) -> {
+                    if (aluguel.getVersaoAlteracao() > versaoDesde) {
+                        alterados.add(copia(aluguel));
+                    }
+                });
+                alterados.sort((a, b) -> Long.compare(a.getVersaoAlteracao(), b.getVersaoAlteracao()));
+                sincronizacao.setAlterados(alterados);
+
+                // tombstones estão em ordem de versão: começa pelo primeiro > versaoDesde
+                List<Long> removidos = new ArrayList<>();
+                for (int i = primeiraExclusaoApos(versaoDesde); i < armazenamento.totalExclusoes; i++) {
+                    removidos.add(armazenamento.exclusoesId[i]);
+                }
+                sincronizacao.setRemovidos(removidos);
+            }
+            return sincronizacao;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean clienteJaPossuiLocacao(Long idCliente) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            return armazenamento.locacoesPorCliente.containsKey(idCliente);
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // AUXILIARES (chamados sob o lock)
+    // ======================================//
+
+    // Locações que atendem ao filtro, em ordem de id, já paginadas
+    private List<Aluguel> filtrar(FiltroAluguel filtro) {
+
+        List<Aluguel> candidatas = new ArrayList<>();
+
+        // Lista de IDs pedida: busca direta
+        if (filtro.getIds() != null) {
+            for (Long id : filtro.getIds()) {
+                Aluguel aluguel = armazenamento.locacoes.get(id);
+                if (atende(aluguel, filtro)) {
+                    candidatas.add(aluguel);
+                }
+            }
+            candidatas.sort((a, b) -> Long.compare(a.getId_locacao(), b.getId_locacao()));
+            return limitar(candidatas, filtro);
+        }
+
+        // Índice mais seletivo disponível; sem filtro de cliente/quadra, varre a tabela
+        LongHashSet ids = null;
+        boolean usaIndice = filtro.getIdCliente() != null || filtro.getIdQuadra() != null;
+        if (filtro.getIdCliente() != null) {
+            ids = armazenamento.locacoesPorCliente.get(filtro.getIdCliente());
+        } else if (filtro.getIdQuadra() != null) {
+            ids = armazenamento.locacoesPorQuadra.get(filtro.getIdQuadra());
+        }
+
+        if (usaIndice) {
+            if (ids != null) {
+                ids.forEach(id -> {
+                    Aluguel aluguel = armazenamento.locacoes.get(id);
+                    if (atende(aluguel, filtro)) {
+                        candidatas.add(aluguel);
+                    }
+                });
+            }
+        } else {
+            armazenamento.locacoes.forEach((id, aluguel) -> {
+                if (atende(aluguel, filtro)) {
+                    candidatas.add(aluguel);
+                }
+            });
+        }
+
+        candidatas.sort((a, b) -> Long.compare(a.getId_locacao(), b.getId_locacao()));
+        return limitar(candidatas, filtro);
+    }
+
+    private static List<Aluguel> limitar(List<Aluguel> candidatas, FiltroAluguel filtro) {
+        if (filtro.getLimite() != null && candidatas.size() > filtro.getLimite()) {
+            return candidatas.subList(0, filtro.getLimite());
+        }
+        return candidatas;
+    }
+
+    private static boolean atende(Aluguel aluguel, FiltroAluguel filtro) {
+        return aluguel != null
+                && (filtro.getIdCliente() == null || filtro.getIdCliente().equals(aluguel.getIdCliente()))
+                && (filtro.getIdQuadra() == null || filtro.getIdQuadra().equals(aluguel.getIdQuadra()))
+                && (filtro.getDataInicio() == null || aluguel.getDataLocacao().compareTo(filtro.getDataInicio()) >= 0)
+                && (filtro.getDataFim() == null || aluguel.getDataLocacao().compareTo(filtro.getDataFim()) <= 0)
+                && (filtro.getAposId() == null || aluguel.getId_locacao() > filtro.getAposId())
+                && (filtro.getIds() == null || filtro.getIds().contains(aluguel.getId_locacao()));
+    }
+
+    // Mesma regra das chaves estrangeiras da tabela locacao
+    private boolean referenciasValidas(Aluguel aluguel) {
+        if (aluguel.getIdCliente() == null || !armazenamento.clientes.containsKey(aluguel.getIdCliente())
+                || aluguel.getIdQuadra() == null || !armazenamento.quadras.containsKey(aluguel.getIdQuadra())) {
+            System.err.println("Erro ao gravar aluguel: cliente " + aluguel.getIdCliente()
+                    + " ou quadra " + aluguel.getIdQuadra() + " inexistente.");
+            return false;
+        }
+        return true;
+    }
+
+    private int primeiraExclusaoApos(long versao) {
+        int inicio = 0;
+        int fim = armazenamento.totalExclusoes;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (armazenamento.exclusoesVersao[meio] <= versao) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    // As instâncias guardadas não saem do repositório: leituras e eventos levam cópias
+    static Aluguel copia(Aluguel aluguel) {
+        return aluguel == null ? null : aluguel.copia();
+    }
+}
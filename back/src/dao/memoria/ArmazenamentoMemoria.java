@@ -0,0 +1,338 @@
+package dao.memoria;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import dao.IndiceCliente;
+import model.Aluguel;
+import model.Cliente;
+import model.Quadra;
+import util.LongHashSet;
+import util.LongObjectMap;
+
+// Motor de armazenamento em memória (quiosques offline, testes e benchmarks).
+// - Tabelas em mapas de chave long primitiva; índices secundários de locação por
+//   cliente e por quadra (id -> conjunto de id_locacao).
+// - Um ReadWriteLock por motor: leituras em paralelo, escritas serializadas.
+// - Os objetos guardados nunca são alterados: uma atualização troca o objeto inteiro.
+//   Assim o snapshot só precisa copiar referências sob o lock de leitura.
+// - Snapshot periódico em arquivo (escrito em .tmp e renomeado), carregado na subida.
+public class ArmazenamentoMemoria {
+
+    private static final int ASSINATURA_V1 = 0x51444D31; // "QDM1"
+    private static final int ASSINATURA_V2 = 0x51444D32; // "QDM2": + versão do cliente
+    private static final int ASSINATURA = 0x51444D33; // "QDM3": + locações arquivadas
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    final LongObjectMap<Cliente> clientes = new LongObjectMap<>(1024);
+    final LongObjectMap<Quadra> quadras = new LongObjectMap<>();
+    final LongObjectMap<Aluguel> locacoes = new LongObjectMap<>(1024);
+
+    final LongObjectMap<LongHashSet> locacoesPorCliente = new LongObjectMap<>(1024);
+    final LongObjectMap<LongHashSet> locacoesPorQuadra = new LongObjectMap<>();
+
+    // Equivalente à locacao_arquivo; o índice por cliente faz o papel da sua FK
+    final LongObjectMap<Aluguel> locacoesArquivadas = new LongObjectMap<>();
+    final LongObjectMap<LongHashSet> arquivadasPorCliente = new LongObjectMap<>();
+
+    // Busca por nome/telefone (mesmo índice usado pelo ClienteDAO)
+    final IndiceCliente indiceClientes = new IndiceCliente();
+
+    long ultimoIdCliente = 0;
+    long ultimoIdLocacao = 0;
+
+    // Sequência da sincronização delta e tombstones (versão, id), em ordem de versão
+    long versaoLocacao = 0;
+    long[] exclusoesVersao = new long[64];
+    long[] exclusoesId = new long[64];
+    int totalExclusoes = 0;
+
+    // Há alterações desde o último snapshot
+    volatile boolean alterado = false;
+
+    private final Path arquivo;
+    private ScheduledExecutorService agendador;
+
+    public ArmazenamentoMemoria(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    // Carrega o último snapshot (se houver) ou cria as quadras padrão do V1__esquema_inicial.sql
+    public void iniciar(long intervaloSnapshotMs) throws IOException {
+
+        if (arquivo != null && Files.exists(arquivo)) {
+            carregar();
+            System.out.println("Armazenamento em memória carregado de " + arquivo.toAbsolutePath()
+                    + " (" + clientes.size() + " clientes, " + locacoes.size() + " locações, "
+                    + locacoesArquivadas.size() + " arquivadas).");
+        } else {
+            quadras.put(1, new Quadra(1L, "Saibro", "Oficial Simples", 75));
+            quadras.put(2, new Quadra(2L, "Sintético", "Oficial Dupla", 90));
+            quadras.put(3, new Quadra(3L, "Sintético", "Oficial Dupla", 90));
+        }
+
+        indiceClientes.carregar(listarClientes());
+
+        if (arquivo != null && intervaloSnapshotMs > 0) {
+            agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "snapshot-memoria");
+                t.setDaemon(true);
+                return t;
+            });
+            agendador.scheduleWithFixedDelay(() -> {
+                try {
+                    salvarSeAlterado();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Erro ao gravar snapshot em memória: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }, intervaloSnapshotMs, intervaloSnapshotMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Para o agendamento e grava o estado final. Espera um snapshot agendado que já
+    // esteja gravando: os dois usariam o mesmo .tmp, e a JVM pode sair no meio dele.
+    public void fechar() throws IOException {
+        if (agendador != null) {
+            agendador.shutdown();
+            try {
+                if (!agendador.awaitTermination(30, TimeUnit.SECONDS)) {
+                    System.err.println("Snapshot agendado ainda em andamento; gravando o estado final assim mesmo.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        salvarSeAlterado();
+    }
+
+    // ======================================//
+    // ÍNDICES SECUNDÁRIOS (chamados sob o lock de escrita)
+    // ======================================//
+    void indexar(Aluguel aluguel) {
+        adicionar(locacoesPorCliente, aluguel.getIdCliente(), aluguel.getId_locacao());
+        adicionar(locacoesPorQuadra, aluguel.getIdQuadra(), aluguel.getId_locacao());
+    }
+
+    void desindexar(Aluguel aluguel) {
+        retirar(locacoesPorCliente, aluguel.getIdCliente(), aluguel.getId_locacao());
+        retirar(locacoesPorQuadra, aluguel.getIdQuadra(), aluguel.getId_locacao());
+    }
+
+    void arquivar(Aluguel aluguel) {
+        locacoesArquivadas.put(aluguel.getId_locacao(), aluguel);
+        adicionar(arquivadasPorCliente, aluguel.getIdCliente(), aluguel.getId_locacao());
+    }
+
+    void registrarExclusao(long versao, long idLocacao) {
+        if (totalExclusoes == exclusoesVersao.length) {
+            exclusoesVersao = Arrays.copyOf(exclusoesVersao, totalExclusoes * 2);
+            exclusoesId = Arrays.copyOf(exclusoesId, totalExclusoes * 2);
+        }
+        exclusoesVersao[totalExclusoes] = versao;
+        exclusoesId[totalExclusoes] = idLocacao;
+        totalExclusoes++;
+    }
+
+    private static void adicionar(LongObjectMap<LongHashSet> indice, long chave, long id) {
+        LongHashSet ids = indice.get(chave);
+        if (ids == null) {
+            ids = new LongHashSet();
+            indice.put(chave, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void retirar(LongObjectMap<LongHashSet> indice, long chave, long id) {
+        LongHashSet ids = indice.get(chave);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            indice.remove(chave);
+        }
+    }
+
+    private List<Cliente> listarClientes() {
+        List<Cliente> lista = new ArrayList<>(clientes.size());
+        clientes.forEach((id, cliente) -> lista.add(cliente));
+        return lista;
+    }
+
+    // ======================================//
+    // SNAPSHOT
+    // ======================================//
+    // Sincronizado: uma gravação por vez no mesmo .tmp
+    public synchronized void salvarSeAlterado() throws IOException {
+
+        if (arquivo == null || !alterado) {
+            return;
+        }
+
+        // Cópia das referências sob o lock de leitura; a escrita em disco acontece fora dele
+        Cliente[] copiaClientes;
+        Quadra[] copiaQuadras;
+        Aluguel[] copiaLocacoes;
+        Aluguel[] copiaArquivadas;
+        long[] copiaExclusoesVersao;
+        long[] copiaExclusoesId;
+        long idCliente, idLocacao, versao;
+
+        lock.readLock().lock();
+        try {
+            // limpa junto com a cópia: o que mudar depois dela marca de novo para o próximo
+            alterado = false;
+            copiaClientes = new Cliente[clientes.size()];
+            copiaQuadras = new Quadra[quadras.size()];
+            copiaLocacoes = new Aluguel[locacoes.size()];
+            copiarValores(clientes, copiaClientes);
+            copiarValores(quadras, copiaQuadras);
+            copiarValores(locacoes, copiaLocacoes);
+            copiaArquivadas = new Aluguel[locacoesArquivadas.size()];
+            copiarValores(locacoesArquivadas, copiaArquivadas);
+            copiaExclusoesVersao = Arrays.copyOf(exclusoesVersao, totalExclusoes);
+            copiaExclusoesId = Arrays.copyOf(exclusoesId, totalExclusoes);
+            idCliente = ultimoIdCliente;
+            idLocacao = ultimoIdLocacao;
+            versao = versaoLocacao;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+                out.writeInt(ASSINATURA);
+                out.writeLong(idCliente);
+                out.writeLong(idLocacao);
+                out.writeLong(versao);
+
+                out.writeInt(copiaClientes.length);
+                for (Cliente c : copiaClientes) {
+                    out.writeLong(c.getID());
+                    escreverTexto(out, c.getNome());
+                    escreverTexto(out, c.getTelefone());
+                    out.writeLong(c.getVersao() != null ? c.getVersao() : 0);
+                }
+
+                out.writeInt(copiaQuadras.length);
+                for (Quadra q : copiaQuadras) {
+                    out.writeLong(q.getId());
+                    escreverTexto(out, q.getCobertura());
+                    escreverTexto(out, q.getTamanho());
+                    out.writeDouble(q.getPreco());
+                }
+
+                escreverLocacoes(out, copiaLocacoes);
+
+                out.writeInt(copiaExclusoesVersao.length);
+                for (int i = 0; i < copiaExclusoesVersao.length; i++) {
+                    out.writeLong(copiaExclusoesVersao[i]);
+                    out.writeLong(copiaExclusoesId[i]);
+                }
+
+                escreverLocacoes(out, copiaArquivadas);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // a cópia não chegou ao disco: o próximo snapshot (ou o fechar) tenta de novo
+            alterado = true;
+            throw e;
+        }
+    }
+
+    private void carregar() throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+
+            int assinatura = in.readInt();
+            if (assinatura != ASSINATURA && assinatura != ASSINATURA_V2 && assinatura != ASSINATURA_V1) {
+                throw new IOException("Arquivo de snapshot inválido: " + arquivo);
+            }
+
+            ultimoIdCliente = in.readLong();
+            ultimoIdLocacao = in.readLong();
+            versaoLocacao = in.readLong();
+
+            for (int n = in.readInt(); n > 0; n--) {
+                long id = in.readLong();
+                Cliente cliente = new Cliente(id, lerTexto(in), lerTexto(in), 0L);
+                if (assinatura != ASSINATURA_V1) {
+                    cliente.setVersao(in.readLong());
+                }
+                clientes.put(id, cliente);
+            }
+
+            for (int n = in.readInt(); n > 0; n--) {
+                long id = in.readLong();
+                quadras.put(id, new Quadra(id, lerTexto(in), lerTexto(in), in.readDouble()));
+            }
+
+            for (int n = in.readInt(); n > 0; n--) {
+                Aluguel aluguel = lerLocacao(in);
+                locacoes.put(aluguel.getId_locacao(), aluguel);
+                indexar(aluguel);
+            }
+
+            for (int n = in.readInt(); n > 0; n--) {
+                registrarExclusao(in.readLong(), in.readLong());
+            }
+
+            if (assinatura == ASSINATURA) {
+                for (int n = in.readInt(); n > 0; n--) {
+                    arquivar(lerLocacao(in));
+                }
+            }
+        }
+    }
+
+    private static void escreverLocacoes(DataOutputStream out, Aluguel[] lista) throws IOException {
+        out.writeInt(lista.length);
+        for (Aluguel a : lista) {
+            out.writeLong(a.getId_locacao());
+            out.writeLong(a.getIdQuadra());
+            out.writeLong(a.getIdCliente());
+            out.writeLong(a.getDataLocacao().toLocalDate().toEpochDay());
+            out.writeDouble(a.getPreco());
+            out.writeLong(a.getVersaoAlteracao());
+        }
+    }
+
+    private static Aluguel lerLocacao(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long idQuadra = in.readLong();
+        long idCliente = in.readLong();
+        Date data = Date.valueOf(LocalDate.ofEpochDay(in.readLong()));
+        return new Aluguel(id, idQuadra, idCliente, data, in.readDouble(), in.readLong());
+    }
+
+    private static <V> void copiarValores(LongObjectMap<V> mapa, V[] destino) {
+        int[] i = { 0 };
+        mapa.forEach((id, valor) -> destino[i[0]++] = valor);
+    }
+
+    private static void escreverTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static String lerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,210 @@
+package dao.memoria;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import dao.ClienteRepositorio;
+import dao.Mutacao;
+import dao.Mutacoes;
+import dao.Projecao;
+import dao.VersaoDivergenteException;
+import model.Cliente;
+
+// Clientes no ArmazenamentoMemoria, com o mesmo comportamento do ClienteDAO.
+// Os objetos devolvidos são cópias: quem chama pode alterá-los à vontade.
+public class ClienteRepositorioMemoria implements ClienteRepositorio {
+
+    private final ArmazenamentoMemoria armazenamento;
+
+    public ClienteRepositorioMemoria(ArmazenamentoMemoria armazenamento) {
+        this.armazenamento = armazenamento;
+    }
+
+    // ======================================//
+    // READ ALL
+    // ======================================//
+    @Override
+    public List<Cliente> buscarTodos() {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            List<Cliente> lista = new ArrayList<>(armazenamento.clientes.size());
+            armazenamento.clientes.forEach((id, cliente) -> lista.add(copia(cliente)));
+            lista.sort((a, b) -> Long.compare(a.getID(), b.getID()));
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ BY ID
+    // ======================================//
+    @Override
+    public Cliente buscarPorId(Long id) {
+
+        armazenamento.lock.readLock().lock();
+        try {
+            return copia(armazenamento.clientes.get(id));
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ BY IDS
+    // ======================================//
+    @Override
+    public Map<Long, Cliente> buscarPorIds(List<Long> ids) {
+
+        Map<Long, Cliente> resultado = new HashMap<>();
+
+        armazenamento.lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                Cliente cliente = armazenamento.clientes.get(id);
+                if (cliente != null) {
+                    resultado.put(id, copia(cliente));
+                }
+            }
+            return resultado;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // READ PROJETADO
+    // ======================================//
+    @Override
+    public List<Map<String, Object>> buscarProjetado(Projecao<Cliente> projecao, List<Long> ids) {
+
+        List<Map<String, Object>> lista = new ArrayList<>();
+
+        armazenamento.lock.readLock().lock();
+        try {
+            if (ids == null) {
+                List<Cliente> todos = new ArrayList<>(armazenamento.clientes.size());
+                armazenamento.clientes.forEach((id, cliente) -> todos.add(cliente));
+                todos.sort((a, b) -> Long.compare(a.getID(), b.getID()));
+                for (Cliente cliente : todos) {
+                    lista.add(projecao.projetar(cliente));
+                }
+            } else {
+                List<Long> ordenados = new ArrayList<>(new TreeSet<>(ids));
+                for (Long id : ordenados) {
+                    Cliente cliente = armazenamento.clientes.get(id);
+                    if (cliente != null) {
+                        lista.add(projecao.projetar(cliente));
+                    }
+                }
+            }
+            return lista;
+        } finally {
+            armazenamento.lock.readLock().unlock();
+        }
+    }
+
+    // ======================================//
+    // BUSCA POR NOME (PREFIXO) OU TELEFONE
+    // ======================================//
+    @Override
+    public List<Cliente> buscarPorTermo(String termo, int limite) {
+        // o índice já devolve cópias
+        return armazenamento.indiceClientes.buscar(termo, limite);
+    }
+
+    // ======================================//
+    // CREATE
+    // ======================================//
+    @Override
+    public void inserir(Cliente cliente) {
+
+        Cliente guardado;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            long id = ++armazenamento.ultimoIdCliente;
+            guardado = new Cliente(id, cliente.getNome(), cliente.getTelefone(), 0L);
+            armazenamento.clientes.put(id, guardado);
+            armazenamento.indiceClientes.atualizar(guardado);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        cliente.setID(guardado.getID());
+        cliente.setVersao(guardado.getVersao());
+        Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.INSERIR, guardado.getID(), null, copia(guardado), null));
+    }
+
+    // ------------------------------------
+    // UPDATE (condicional à versão, como no ClienteDAO)
+    // ------------------------------------
+    @Override
+    public void atualizar(Cliente cliente, Long versaoEsperada) {
+
+        if (cliente.getID() == null) {
+            return;
+        }
+
+        Cliente antes;
+        Cliente depois;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            antes = armazenamento.clientes.get(cliente.getID());
+            if (antes == null) {
+                return;
+            }
+            if (versaoEsperada != null && !versaoEsperada.equals(antes.getVersao())) {
+                throw new VersaoDivergenteException("Cliente", cliente.getID());
+            }
+            depois = new Cliente(cliente.getID(), cliente.getNome(), cliente.getTelefone(), antes.getVersao() + 1);
+            armazenamento.clientes.put(cliente.getID(), depois);
+            armazenamento.indiceClientes.atualizar(depois);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        cliente.setVersao(depois.getVersao());
+        Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.ATUALIZAR, cliente.getID(), copia(antes), copia(depois), null));
+    }
+
+    // ------------------------------------
+    // DELETE
+    // ------------------------------------
+    @Override
+    public void deletar(Long id) throws SQLIntegrityConstraintViolationException {
+
+        Cliente antes;
+
+        armazenamento.lock.writeLock().lock();
+        try {
+            // mesma regra das chaves estrangeiras locacao/locacao_arquivo -> cliente
+            if (armazenamento.locacoesPorCliente.containsKey(id) || armazenamento.arquivadasPorCliente.containsKey(id)) {
+                throw new SQLIntegrityConstraintViolationException();
+            }
+            antes = armazenamento.clientes.remove(id);
+            if (antes == null) {
+                return;
+            }
+            armazenamento.indiceClientes.remover(id);
+            armazenamento.alterado = true;
+        } finally {
+            armazenamento.lock.writeLock().unlock();
+        }
+
+        Mutacoes.publicar(new Mutacao("cliente", Mutacao.Operacao.DELETAR, id, copia(antes), null, null));
+    }
+
+    // As instâncias guardadas não saem do repositório: leituras e eventos levam cópias
+    static Cliente copia(Cliente cliente) {
+        return cliente == null ? null : cliente.copia();
+    }
+}
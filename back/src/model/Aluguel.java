@@ -2,7 +2,7 @@ package model;
 
 import java.sql.Date; // Usando LocalDateTime para representar a coluna DATETIME do SQL
 
-public class Aluguel {
+public class Aluguel implements Copiavel<Aluguel> {
 
     private Long id_locacao;
 
@@ -17,7 +17,9 @@ public class Aluguel {
 
     private Double preco;
 
-  
+    // Versão de alteração (carimbo monotônico usado pela sincronização delta)
+    private Long versaoAlteracao;
+
 
     // Construtor padrão (vazio)
     public Aluguel() {
@@ -35,6 +37,18 @@ public class Aluguel {
         this.preco = preco;
     }
 
+    public Aluguel(Long id_locacao, Long idQuadra, Long idCliente, Date dataLocacao, Double preco, Long versaoAlteracao) {
+        this(id_locacao, idQuadra, idCliente, dataLocacao, preco);
+        this.versaoAlteracao = versaoAlteracao;
+    }
+
+    // java.sql.Date é mutável: a cópia leva a sua
+    @Override
+    public Aluguel copia() {
+        return new Aluguel(id_locacao, idQuadra, idCliente,
+                dataLocacao != null ? new Date(dataLocacao.getTime()) : null, preco, versaoAlteracao);
+    }
+
     public Long getId_locacao() {
         return id_locacao;
     }
@@ -74,4 +88,12 @@ public class Aluguel {
     public void setPreco(Double preco) {
         this.preco = preco;
     }
+
+    public Long getVersaoAlteracao() {
+        return versaoAlteracao;
+    }
+
+    public void setVersaoAlteracao(Long versaoAlteracao) {
+        this.versaoAlteracao = versaoAlteracao;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package model;
+
+import java.sql.Date;
+
+// Locação já combinada com os dados do cliente e da quadra (GET /Aluguel/detalhado)
+public class AluguelDetalhado implements Copiavel<AluguelDetalhado> {
+
+    private Long id_locacao;
+    private Date dataLocacao;
+    private Double preco;
+
+    private Long idCliente;
+    private String nomeCliente;
+    private String telefoneCliente;
+
+    private Long idQuadra;
+    private String coberturaQuadra;
+    private String tamanhoQuadra;
+    private Double precoQuadra;
+
+    public AluguelDetalhado() {
+    }
+
+    @Override
+    public AluguelDetalhado copia() {
+        AluguelDetalhado copia = new AluguelDetalhado();
+        copia.id_locacao = id_locacao;
+        copia.dataLocacao = dataLocacao != null ? new Date(dataLocacao.getTime()) : null;
+        copia.preco = preco;
+        copia.idCliente = idCliente;
+        copia.nomeCliente = nomeCliente;
+        copia.telefoneCliente = telefoneCliente;
+        copia.idQuadra = idQuadra;
+        copia.coberturaQuadra = coberturaQuadra;
+        copia.tamanhoQuadra = tamanhoQuadra;
+        copia.precoQuadra = precoQuadra;
+        return copia;
+    }
+
+    public Long getId_locacao() {
+        return id_locacao;
+    }
+
+    public void setId_locacao(Long id_locacao) {
+        this.id_locacao = id_locacao;
+    }
+
+    public Date getDataLocacao() {
+        return dataLocacao;
+    }
+
+    public void setDataLocacao(Date dataLocacao) {
+        this.dataLocacao = dataLocacao;
+    }
+
+    public Double getPreco() {
+        return preco;
+    }
+
+    public void setPreco(Double preco) {
+        this.preco = preco;
+    }
+
+    public Long getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Long idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public String getNomeCliente() {
+        return nomeCliente;
+    }
+
+    public void setNomeCliente(String nomeCliente) {
+        this.nomeCliente = nomeCliente;
+    }
+
+    public String getTelefoneCliente() {
+        return telefoneCliente;
+    }
+
+    public void setTelefoneCliente(String telefoneCliente) {
+        this.telefoneCliente = telefoneCliente;
+    }
+
+    public Long getIdQuadra() {
+        return idQuadra;
+    }
+
+    public void setIdQuadra(Long idQuadra) {
+        this.idQuadra = idQuadra;
+    }
+
+    public String getCoberturaQuadra() {
+        return coberturaQuadra;
+    }
+
+    public void setCoberturaQuadra(String coberturaQuadra) {
+        this.coberturaQuadra = coberturaQuadra;
+    }
+
+    public String getTamanhoQuadra() {
+        return tamanhoQuadra;
+    }
+
+    public void setTamanhoQuadra(String tamanhoQuadra) {
+        this.tamanhoQuadra = tamanhoQuadra;
+    }
+
+    public Double getPrecoQuadra() {
+        return precoQuadra;
+    }
+
+    public void setPrecoQuadra(Double precoQuadra) {
+        this.precoQuadra = precoQuadra;
+    }
+}
@@ -1,10 +1,13 @@
 package model;
 
-public class Cliente {
+public class Cliente implements Copiavel<Cliente> {
     private Long ID;
     private String nome;
     private String telefone;
 
+    // Versão da linha (controle otimista: ETag / If-Match)
+    private Long versao;
+
     public Cliente() {
     }
 public Cliente(Long ID, String nome, String telefone) {
@@ -13,6 +16,16 @@ public Cliente(Long ID, String nome, String telefone) {
     this.telefone = telefone;
 }
 
+public Cliente(Long ID, String nome, String telefone, Long versao) {
+    this(ID, nome, telefone);
+    this.versao = versao;
+}
+
+    @Override
+    public Cliente copia() {
+        return new Cliente(ID, nome, telefone, versao);
+    }
+
    public Long getID() {
         return ID;
     }
@@ -32,6 +45,12 @@ public Cliente(Long ID, String nome, String telefone) {
     public void setTelefone(String telefone) {
         this.telefone = telefone;
     }
+    public Long getVersao() {
+        return versao;
+    }
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
 
     
 
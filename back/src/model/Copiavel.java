@@ -0,0 +1,15 @@
+package model;
+
+// Entidade que sabe se copiar. Leituras cujo resultado é compartilhado entre threads
+// (leituras agrupadas do JdbcExecutor, CarregadorLote, IndiceCliente) entregam uma
+// cópia a cada chamador: quem recebe pode alterar a instância sem afetar os demais.
+public interface Copiavel<T> {
+
+    T copia();
+
+    // Cópia do valor se ele for Copiavel; senão o próprio valor (Long, String...)
+    @SuppressWarnings("unchecked")
+    static <V> V copiaDe(V valor) {
+        return valor instanceof Copiavel ? ((Copiavel<V>) valor).copia() : valor;
+    }
+}
@@ -0,0 +1,50 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resposta do GET /Aluguel?since=N: apenas o que mudou depois da versão N
+public class SincronizacaoAluguel {
+
+    // Nova marca d'água: o cliente deve enviar este valor no próximo "since"
+    private Long versao;
+
+    // Locações criadas ou alteradas depois da versão informada
+    private List<Aluguel> alterados = new ArrayList<>();
+
+    // IDs de locações excluídas depois da versão informada (tombstones)
+    private List<Long> removidos = new ArrayList<>();
+
+    public SincronizacaoAluguel() {
+    }
+
+    public SincronizacaoAluguel(Long versao, List<Aluguel> alterados, List<Long> removidos) {
+        this.versao = versao;
+        this.alterados = alterados;
+        this.removidos = removidos;
+    }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
+
+    public List<Aluguel> getAlterados() {
+        return alterados;
+    }
+
+    public void setAlterados(List<Aluguel> alterados) {
+        this.alterados = alterados;
+    }
+
+    public List<Long> getRemovidos() {
+        return removidos;
+    }
+
+    public void setRemovidos(List<Long> removidos) {
+        this.removidos = removidos;
+    }
+}
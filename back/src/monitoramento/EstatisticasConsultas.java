@@ -0,0 +1,179 @@
+package monitoramento;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Estatísticas dos comandos SQL executados pelo JdbcExecutor, agrupadas por
+// "impressão digital": o SQL normalizado, sem literais e com listas IN de qualquer
+// tamanho iguais. Cada impressão acumula contagem, tempo total, máximo e um
+// Histograma para os percentis (GET /admin/queries, só com admin.ativo: ver ApiQuadra).
+// Comandos acima de -Dconsultas.lentaMs (padrão 500) vão para o log de consultas
+// lentas, com os parâmetros redigidos: só o tipo (e o tamanho dos textos), nunca o valor.
+public final class EstatisticasConsultas {
+
+    private static final long LENTA_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("consultas.lentaMs", 500));
+
+    // Impressões distintas guardadas; as demais somam em OUTRAS
+    private static final int MAXIMO_IMPRESSOES = Integer.getInteger("consultas.maxImpressoes", 1000);
+    private static final String OUTRAS = "(outras consultas)";
+
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern TEXTOS = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMEROS = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern LISTAS_IN = Pattern.compile("(?i)\\bIN \\(\\?(?:, ?\\?)*\\)");
+
+    private static final ConcurrentHashMap<String, Estatistica> porImpressao = new ConcurrentHashMap<>();
+
+    // SQL original -> impressão (os DAOs usam poucos textos distintos)
+    private static final ConcurrentHashMap<String, String> impressoes = new ConcurrentHashMap<>();
+
+    private static final class Estatistica {
+        final LongAdder contagem = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maximoNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder lentas = new LongAdder();
+        final Histograma histograma = new Histograma();
+    }
+
+    private EstatisticasConsultas() {
+    }
+
+    // Chamado pelo JdbcExecutor ao fim de cada comando, com ou sem sucesso
+    public static void registrar(String sql, long nanos, Object[] parametros) {
+
+        String impressao = impressao(sql);
+
+        Estatistica estatistica = porImpressao.get(impressao);
+        if (estatistica == null) {
+            if (porImpressao.size() >= MAXIMO_IMPRESSOES) {
+                impressao = OUTRAS;
+            }
+            estatistica = porImpressao.computeIfAbsent(impressao, chave -> new Estatistica());
+        }
+
+        estatistica.contagem.increment();
+        estatistica.totalNanos.add(nanos);
+        estatistica.maximoNanos.accumulate(nanos);
+        estatistica.histograma.registrar(TimeUnit.NANOSECONDS.toMicros(nanos));
+
+        if (LENTA_NANOS > 0 && nanos >= LENTA_NANOS) {
+            estatistica.lentas.increment();
+            Rastreamento rastreamento = Rastreamento.atual();
+            System.err.println("Consulta lenta (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms"
+                    + (rastreamento != null ? ", requisição " + rastreamento.getId() : "") + "): "
+                    + ESPACOS.matcher(sql).replaceAll(" ").trim()
+                    + " | parâmetros " + redigir(parametros));
+        }
+    }
+
+    // ======================================//
+    // RELATÓRIO
+    // ======================================//
+
+    // As "limite" impressões com maior valor no critério: total, max, p99 ou contagem
+    public static List<Map<String, Object>> relatorio(int limite, String ordem) {
+
+        Comparator<Map<String, Object>> criterio;
+        switch (ordem == null ? "total" : ordem) {
+            case "total": criterio = comparando("totalMs"); break;
+            case "max": criterio = comparando("maxMs"); break;
+            case "p99": criterio = comparando("p99Ms"); break;
+            case "contagem": criterio = comparando("contagem"); break;
+            default:
+                throw new IllegalArgumentException("Ordem desconhecida: '" + ordem + "' (use total, max, p99 ou contagem).");
+        }
+
+        List<Map<String, Object>> linhas = new ArrayList<>();
+        porImpressao.forEach((impressao, estatistica) -> {
+            long contagem = estatistica.contagem.sum();
+            if (contagem == 0) {
+                return;
+            }
+            long total = estatistica.totalNanos.sum();
+            long maximo = estatistica.maximoNanos.get();
+
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("consulta", impressao);
+            linha.put("contagem", contagem);
+            linha.put("totalMs", milissegundos(total));
+            linha.put("mediaMs", milissegundos(total / contagem));
+            linha.put("maxMs", milissegundos(maximo));
+            linha.put("p50Ms", percentil(estatistica, 0.50, maximo));
+            linha.put("p95Ms", percentil(estatistica, 0.95, maximo));
+            linha.put("p99Ms", percentil(estatistica, 0.99, maximo));
+            linha.put("lentas", estatistica.lentas.sum());
+            linhas.add(linha);
+        });
+
+        linhas.sort(criterio.reversed());
+        return linhas.size() > limite ? new ArrayList<>(linhas.subList(0, limite)) : linhas;
+    }
+
+    // DELETE /admin/queries: recomeça a contagem (ex: antes de um teste de carga)
+    public static void zerar() {
+        porImpressao.clear();
+    }
+
+    // ======================================//
+    // NORMALIZAÇÃO
+    // ======================================//
+
+    // "SELECT ... WHERE id IN (?, ?, ?, ?) LIMIT 100" -> "SELECT ... WHERE id IN (?...) LIMIT ?"
+    static String impressao(String sql) {
+
+        String guardada = impressoes.get(sql);
+        if (guardada != null) {
+            return guardada;
+        }
+
+        String normalizada = ESPACOS.matcher(sql).replaceAll(" ").trim();
+        normalizada = TEXTOS.matcher(normalizada).replaceAll("?");
+        normalizada = NUMEROS.matcher(normalizada).replaceAll("?");
+        normalizada = LISTAS_IN.matcher(normalizada).replaceAll("IN (?...)");
+
+        if (impressoes.size() < MAXIMO_IMPRESSOES * 4) {
+            impressoes.put(sql, normalizada);
+        }
+        return normalizada;
+    }
+
+    // [Long, String(11), null]: tipos e tamanhos, sem os valores (telefones, nomes...)
+    private static String redigir(Object[] parametros) {
+        StringBuilder redigidos = new StringBuilder("[");
+        for (int i = 0; i < parametros.length; i++) {
+            Object parametro = parametros[i];
+            if (i > 0) {
+                redigidos.append(", ");
+            }
+            if (parametro == null) {
+                redigidos.append("null");
+            } else if (parametro instanceof CharSequence) {
+                redigidos.append("String(").append(((CharSequence) parametro).length()).append(')');
+            } else {
+                redigidos.append(parametro.getClass().getSimpleName());
+            }
+        }
+        return redigidos.append(']').toString();
+    }
+
+    // Limite da faixa do histograma, sem passar do máximo observado
+    private static double percentil(Estatistica estatistica, double quantil, long maximoNanos) {
+        return milissegundos(Math.min(TimeUnit.MICROSECONDS.toNanos(estatistica.histograma.percentil(quantil)), maximoNanos));
+    }
+
+    private static double milissegundos(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static Comparator<Map<String, Object>> comparando(String campo) {
+        return Comparator.comparingDouble(linha -> ((Number) linha.get(campo)).doubleValue());
+    }
+}
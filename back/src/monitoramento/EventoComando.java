@@ -0,0 +1,46 @@
+package monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Evento JFR de cada comando SQL do JdbcExecutor (usado pelo ClienteDAO e pelo AluguelDAO).
+// Criado e gravado pela MedicaoComando.
+@Name("quadra.Comando")
+@Label("Comando SQL")
+@Category({ "Quadra", "Banco" })
+@Description("Comando executado pelo JdbcExecutor, com a impressão digital do SQL")
+@Threshold("5 ms")
+@StackTrace(true)
+public final class EventoComando extends jdk.jfr.Event {
+
+    @Label("Impressão digital")
+    @Description("SQL normalizado (ver EstatisticasConsultas)")
+    String impressao;
+
+    @Label("Operação")
+    String operacao;
+
+    @Label("Linhas")
+    @Description("Linhas lidas ou afetadas; -1 quando desconhecido (leitura em fluxo)")
+    long linhas;
+
+    @Label("Requisição")
+    String requisicao;
+
+    void encerrar(String sql, long linhasLidas) {
+        end();
+        if (shouldCommit()) {
+            impressao = EstatisticasConsultas.impressao(sql);
+            int espaco = impressao.indexOf(' ');
+            operacao = espaco > 0 ? impressao.substring(0, espaco).toUpperCase() : impressao;
+            linhas = linhasLidas;
+            Rastreamento rastreamento = Rastreamento.atual();
+            requisicao = rastreamento != null ? rastreamento.getId() : null;
+            commit();
+        }
+    }
+}
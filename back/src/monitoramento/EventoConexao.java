@@ -0,0 +1,39 @@
+package monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Evento JFR do empréstimo de conexão (PoolConexoes.obter, chamado pelo ConnectionFactory).
+// O limite padrão deixa de fora os empréstimos imediatos: só aparece quem esperou.
+@Name("quadra.Conexao")
+@Label("Empréstimo de conexão")
+@Category({ "Quadra", "Banco" })
+@Description("Espera por vaga no pool e abertura/validação da conexão física")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class EventoConexao extends jdk.jfr.Event {
+
+    @Label("Pool")
+    String pool;
+
+    @Label("Obtida")
+    boolean obtida;
+
+    @Label("Emprestadas")
+    @Description("Conexões emprestadas do pool ao fim da espera")
+    int emprestadas;
+
+    public void encerrar(String nomePool, boolean conexaoObtida, int emprestadasDoPool) {
+        end();
+        if (shouldCommit()) {
+            pool = nomePool;
+            obtida = conexaoObtida;
+            emprestadas = emprestadasDoPool;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Evento JFR do atendimento de uma requisição na ApiQuadra, do primeiro filtro
+// "before" ao último "afterAfter". Com a rota no evento, o JMC relaciona pausas de
+// GC e disputa de locks da mesma thread/intervalo a um endpoint.
+// Só fica na ThreadLocal quando há gravação com o evento ativo: sem JFR, custo zero.
+@Name("quadra.Requisicao")
+@Label("Requisição HTTP")
+@Category({ "Quadra", "HTTP" })
+@Threshold("10 ms")
+@StackTrace(false)
+public final class EventoRequisicao extends jdk.jfr.Event {
+
+    private static final ThreadLocal<EventoRequisicao> ATUAL = new ThreadLocal<>();
+
+    @Label("Método")
+    String metodo;
+
+    @Label("Rota")
+    @Description("Caminho com os segmentos numéricos trocados por :id")
+    String rota;
+
+    @Label("Status")
+    int status;
+
+    @Label("Requisição")
+    String requisicao;
+
+    @Label("Bytes serializados")
+    @DataAmount
+    long bytesSerializados;
+
+    public static void iniciar() {
+        EventoRequisicao evento = new EventoRequisicao();
+        if (evento.isEnabled()) {
+            evento.begin();
+            ATUAL.set(evento);
+        }
+    }
+
+    static boolean emAndamento() {
+        return ATUAL.get() != null;
+    }
+
+    static void somarBytes(long bytes) {
+        EventoRequisicao evento = ATUAL.get();
+        if (evento != null) {
+            evento.bytesSerializados += bytes;
+        }
+    }
+
+    public static void encerrar(String metodo, String caminho, int status) {
+        EventoRequisicao evento = ATUAL.get();
+        if (evento == null) {
+            return;
+        }
+        ATUAL.remove();
+
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.metodo = metodo;
+            evento.rota = rota(caminho);
+            evento.status = status;
+            Rastreamento rastreamento = Rastreamento.atual();
+            evento.requisicao = rastreamento != null ? rastreamento.getId() : null;
+            evento.commit();
+        }
+    }
+
+    // "/Aluguel/42" -> "/Aluguel/:id" (também agrupa o relatório do trafego.ReprodutorTrafego)
+    public static String rota(String caminho) {
+        if (caminho == null) {
+            return null;
+        }
+        String[] segmentos = caminho.split("/", -1);
+        for (int i = 0; i < segmentos.length; i++) {
+            if (!segmentos[i].isEmpty() && segmentos[i].chars().allMatch(Character::isDigit)) {
+                segmentos[i] = ":id";
+            }
+        }
+        return String.join("/", segmentos);
+    }
+}
@@ -0,0 +1,72 @@
+package monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Evento JFR da codificação de uma resposta (JSON, formato binário, gzip do cache).
+// Os bytes também somam no quadra.Requisicao da thread.
+@Name("quadra.Serializacao")
+@Label("Serialização")
+@Category({ "Quadra", "HTTP" })
+@Threshold("1 ms")
+@StackTrace(false)
+public final class EventoSerializacao extends jdk.jfr.Event {
+
+    @Label("Formato")
+    String formato;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    public static EventoSerializacao iniciar() {
+        EventoSerializacao evento = new EventoSerializacao();
+        evento.begin();
+        return evento;
+    }
+
+    // Texto: o tamanho em UTF-8 só é calculado se algum evento for usá-lo
+    public void encerrar(String formatoCodificado, String texto) {
+        end();
+        boolean gravar = shouldCommit();
+        if (gravar || EventoRequisicao.emAndamento()) {
+            encerrar(formatoCodificado, bytesUtf8(texto), gravar);
+        }
+    }
+
+    public void encerrar(String formatoCodificado, byte[] codificado) {
+        end();
+        encerrar(formatoCodificado, codificado.length, shouldCommit());
+    }
+
+    private void encerrar(String formatoCodificado, long tamanho, boolean gravar) {
+        EventoRequisicao.somarBytes(tamanho);
+        if (gravar) {
+            formato = formatoCodificado;
+            bytes = tamanho;
+            commit();
+        }
+    }
+
+    private static long bytesUtf8(String texto) {
+        long total = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                total++;
+            } else if (c < 0x800) {
+                total += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                total += 4;
+                i++;
+            } else {
+                total += 3;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,119 @@
+package monitoramento;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Grava os rastros amostrados no arquivo, numa thread própria: a requisição só
+// enfileira (fila cheia descarta o rastro, nunca espera).
+// O arquivo é um array JSON do formato Trace Event sem o "]" final, que o formato
+// permite omitir: cada rastro é acrescentado no fim, sem reescrever nada.
+// Passando de "maximoBytes", o arquivo vira <arquivo>.1 e outro é começado.
+final class GravadorRastros {
+
+    private static final int CAPACIDADE_FILA = 1024;
+
+    private final Path arquivo;
+    private final long maximoBytes;
+
+    private final BlockingQueue<String> fila = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+    private final AtomicLong descartados = new AtomicLong();
+
+    private final Thread escritor;
+    private volatile boolean ativo = true;
+
+    // Estado usado só pela thread escritora
+    private Writer saida;
+    private long bytes;
+
+    GravadorRastros(Path arquivo, long maximoBytes) {
+        this.arquivo = arquivo;
+        this.maximoBytes = maximoBytes;
+        this.escritor = new Thread(this::laco, "gravador-rastros");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    void enfileirar(String eventos) {
+        if (!fila.offer(eventos) && descartados.incrementAndGet() % 1000 == 1) {
+            System.err.println("Rastreamento: fila de gravação cheia, " + descartados.get() + " rastros descartados.");
+        }
+    }
+
+    // Para o escritor depois de gravar o que está na fila
+    void fechar(long esperaMs) throws InterruptedException {
+        ativo = false;
+        escritor.join(esperaMs);
+    }
+
+    private void laco() {
+
+        List<String> lote = new ArrayList<>();
+
+        while (ativo || !fila.isEmpty()) {
+            try {
+                String primeiro = fila.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote);
+                gravar(lote);
+
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Rastreamento: erro ao gravar " + arquivo + ": " + e.getMessage());
+                fecharArquivo();
+            } finally {
+                lote.clear();
+            }
+        }
+        fecharArquivo();
+    }
+
+    private void gravar(List<String> lote) throws IOException {
+
+        if (saida == null) {
+            bytes = Files.exists(arquivo) ? Files.size(arquivo) : 0;
+            saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (bytes == 0) {
+                saida.write("[\n");
+                bytes = 2;
+            }
+        }
+
+        for (String eventos : lote) {
+            saida.write(eventos);
+            bytes += eventos.length();
+        }
+        saida.flush();
+
+        if (bytes >= maximoBytes) {
+            fecharArquivo();
+            Files.move(arquivo, arquivo.resolveSibling(arquivo.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void fecharArquivo() {
+        if (saida != null) {
+            try {
+                saida.close();
+            } catch (IOException e) {
+                System.err.println("Rastreamento: erro ao fechar " + arquivo + ": " + e.getMessage());
+            }
+            saida = null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package monitoramento;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histograma de durações em microssegundos, sem lock, para percentis aproximados.
+// Faixas log-lineares: até 8 µs uma faixa por valor; acima, cada potência de 2 é
+// dividida em 8 faixas iguais (erro relativo de no máximo 12,5%). Cobre até 2^40 µs
+// (~12 dias) em 312 contadores; valores maiores caem na última faixa.
+public final class Histograma {
+
+    private static final int SUBFAIXAS_BITS = 3;
+    private static final int SUBFAIXAS = 1 << SUBFAIXAS_BITS;
+    private static final int MAIOR_EXPOENTE = 40;
+    private static final int FAIXAS = SUBFAIXAS + (MAIOR_EXPOENTE - SUBFAIXAS_BITS) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+
+    public void registrar(long micros) {
+        contagens.incrementAndGet(faixa(Math.max(0, micros)));
+    }
+
+    // Valor (µs) abaixo do qual está a fração "quantil" (0..1) das amostras; 0 se vazio.
+    // Devolve o limite superior da faixa: o percentil nunca é subestimado.
+    public long percentil(double quantil) {
+
+        long total = 0;
+        long[] copia = new long[FAIXAS];
+        for (int i = 0; i < FAIXAS; i++) {
+            copia[i] = contagens.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long alvo = Math.max(1, (long) Math.ceil(quantil * total));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= alvo) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(FAIXAS - 1);
+    }
+
+    public void zerar() {
+        for (int i = 0; i < FAIXAS; i++) {
+            contagens.set(i, 0);
+        }
+    }
+
+    private static int faixa(long micros) {
+        if (micros < SUBFAIXAS) {
+            return (int) micros;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(micros);
+        if (expoente >= MAIOR_EXPOENTE) {
+            return FAIXAS - 1;
+        }
+        int sub = (int) (micros >>> (expoente - SUBFAIXAS_BITS)) & (SUBFAIXAS - 1);
+        return SUBFAIXAS + (expoente - SUBFAIXAS_BITS) * SUBFAIXAS + sub;
+    }
+
+    private static long limiteSuperior(int faixa) {
+        if (faixa < SUBFAIXAS) {
+            return faixa;
+        }
+        int expoente = (faixa - SUBFAIXAS) / SUBFAIXAS + SUBFAIXAS_BITS;
+        int sub = (faixa - SUBFAIXAS) % SUBFAIXAS;
+        long largura = 1L << (expoente - SUBFAIXAS_BITS);
+        return (1L << expoente) + (sub + 1) * largura - 1;
+    }
+}
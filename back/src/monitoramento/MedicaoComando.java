@@ -0,0 +1,39 @@
+package monitoramento;
+
+// Medição de um comando SQL no JdbcExecutor (try-with-resources em volta do comando):
+// trecho "banco" do Rastreamento, EstatisticasConsultas e evento JFR quadra.Comando.
+public final class MedicaoComando implements AutoCloseable {
+
+    private final String sql;
+    private final Object[] parametros;
+    private final long inicio;
+    private final Rastreamento.Trecho trecho;
+    private final EventoComando evento = new EventoComando();
+    private long linhas = -1;
+
+    private MedicaoComando(String sql, Object[] parametros) {
+        this.sql = sql;
+        this.parametros = parametros;
+        this.trecho = Rastreamento.trecho(Rastreamento.BANCO, sql);
+        this.evento.begin();
+        this.inicio = System.nanoTime();
+    }
+
+    public static MedicaoComando iniciar(String sql, Object... parametros) {
+        return new MedicaoComando(sql, parametros);
+    }
+
+    // Linhas lidas ou afetadas (sem chamar: -1, desconhecido)
+    public void setLinhas(long linhas) {
+        this.linhas = linhas;
+    }
+
+    // Registra com sucesso ou falha
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - inicio;
+        trecho.close();
+        EstatisticasConsultas.registrar(sql, nanos, parametros);
+        evento.encerrar(sql, linhas);
+    }
+}
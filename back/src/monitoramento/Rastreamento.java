@@ -0,0 +1,284 @@
+package monitoramento;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.JsonObject;
+
+// Rastreamento das requisições HTTP. Cada requisição recebe um ID (X-Request-Id) e
+// registra trechos cronometrados, por categoria:
+//   fila          espera no Jetty até uma thread começar a atendê-la
+//   conexao       empréstimo de conexão dos pools (PoolConexoes.obter)
+//   banco         cada comando do JdbcExecutor e a espera por leituras agrupadas ou lotes
+//   serializacao  Gson, formato binário e gzip do cache
+// O total por categoria vai no cabeçalho Server-Timing. Uma amostra dos rastros
+// (-Drastreamento.amostragem, mais todos acima de -Drastreamento.lentoMs) é gravada em
+// -Drastreamento.arquivo no formato Trace Event (abre no chrome://tracing e no Perfetto).
+// Os trechos ficam numa ThreadLocal: trabalho feito em outras threads (ex: o agendador
+// do CarregadorLote) aparece como espera na thread da requisição.
+// Desative com -Drastreamento.ativo=false
+public final class Rastreamento {
+
+    public static final String FILA = "fila";
+    public static final String CONEXAO = "conexao";
+    public static final String BANCO = "banco";
+    public static final String SERIALIZACAO = "serializacao";
+
+    private static final String[] CATEGORIAS = { FILA, CONEXAO, BANCO, SERIALIZACAO };
+
+    public static final boolean ATIVO = Boolean.parseBoolean(System.getProperty("rastreamento.ativo", "true"));
+
+    private static final double AMOSTRAGEM = Double.parseDouble(System.getProperty("rastreamento.amostragem", "0.01"));
+    private static final long LENTO_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("rastreamento.lentoMs", 1000));
+
+    // Trechos guardados por requisição (os excedentes só entram no Server-Timing)
+    private static final int MAXIMO_TRECHOS = Integer.getInteger("rastreamento.maxTrechos", 256);
+
+    private static final int MAXIMO_NOME = 200;
+
+    private static final long PID = ProcessHandle.current().pid();
+
+    private static final ThreadLocal<Rastreamento> ATUAL = new ThreadLocal<>();
+
+    // null se desativado ou sem amostragem
+    private static final GravadorRastros gravador = ATIVO && (AMOSTRAGEM > 0 || LENTO_NANOS > 0)
+            ? new GravadorRastros(Paths.get(System.getProperty("rastreamento.arquivo", "rastros.json")),
+                    Long.getLong("rastreamento.maxBytesArquivo", 64L * 1024 * 1024))
+            : null;
+
+    // Trecho em andamento; close() registra o fim. Sem rastro na thread, é o NENHUM (não faz nada).
+    public static final class Trecho implements AutoCloseable {
+
+        private static final Trecho NENHUM = new Trecho(null, 0, null, 0);
+
+        private final Rastreamento rastreamento;
+        private final int categoria;
+        private final String nome;
+        private final long inicio;
+        private long fim;
+
+        private Trecho(Rastreamento rastreamento, int categoria, String nome, long inicio) {
+            this.rastreamento = rastreamento;
+            this.categoria = categoria;
+            this.nome = nome;
+            this.inicio = inicio;
+        }
+
+        @Override
+        public void close() {
+            if (rastreamento != null && fim == 0) {
+                fim = System.nanoTime();
+                rastreamento.registrar(this);
+            }
+        }
+    }
+
+    private final String id;
+    private final String descricao;
+    private final long inicioNanos;
+    private final long inicioEpochMicros;
+    private final Thread thread;
+
+    private final List<Trecho> trechos = new ArrayList<>();
+    private final long[] nanosPorCategoria = new long[CATEGORIAS.length];
+    private int descartados;
+
+    private Rastreamento(String id, String descricao, long inicioNanos) {
+        this.id = id;
+        this.descricao = descricao;
+        this.inicioNanos = inicioNanos;
+        this.inicioEpochMicros = System.currentTimeMillis() * 1000
+                - TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicioNanos);
+        this.thread = Thread.currentThread();
+    }
+
+    // ======================================//
+    // CICLO DE VIDA
+    // ======================================//
+
+    // Abre o rastro na thread atual. "filaMs" é a espera antes do atendimento: o rastro
+    // começa nela, registrada como o trecho "fila".
+    public static Rastreamento iniciar(String id, String metodo, String caminho, long filaMs) {
+
+        long agora = System.nanoTime();
+        long espera = TimeUnit.MILLISECONDS.toNanos(Math.max(0, filaMs));
+
+        Rastreamento rastreamento = new Rastreamento(id, metodo + " " + caminho, agora - espera);
+        if (espera > 0) {
+            Trecho fila = new Trecho(rastreamento, 0, "Fila do Jetty", agora - espera);
+            fila.fim = agora;
+            rastreamento.registrar(fila);
+        }
+        ATUAL.set(rastreamento);
+        return rastreamento;
+    }
+
+    // Rastro da thread atual ou null (fora de requisição ou desativado)
+    public static Rastreamento atual() {
+        return ATUAL.get();
+    }
+
+    // Fecha o rastro da thread e grava se for amostrado (ou lento)
+    public static void encerrar(int status) {
+
+        Rastreamento rastreamento = ATUAL.get();
+        if (rastreamento == null) {
+            return;
+        }
+        ATUAL.remove();
+
+        long duracao = System.nanoTime() - rastreamento.inicioNanos;
+        boolean lento = LENTO_NANOS > 0 && duracao >= LENTO_NANOS;
+        if (gravador != null && (lento || ThreadLocalRandom.current().nextDouble() < AMOSTRAGEM)) {
+            gravador.enfileirar(rastreamento.eventos(duracao, status));
+        }
+    }
+
+    // Grava os rastros ainda na fila (desligamento)
+    public static void fechar(long esperaMs) throws InterruptedException {
+        if (gravador != null) {
+            gravador.fechar(esperaMs);
+        }
+    }
+
+    // ======================================//
+    // TRECHOS
+    // ======================================//
+    public static Trecho trecho(String categoria, String nome) {
+        Rastreamento rastreamento = ATUAL.get();
+        return rastreamento == null
+                ? Trecho.NENHUM
+                : new Trecho(rastreamento, indice(categoria), nome, System.nanoTime());
+    }
+
+    // Trecho que já terminou agora, iniciado em "inicioNanos" (System.nanoTime)
+    public static void registrar(String categoria, String nome, long inicioNanos) {
+        Rastreamento rastreamento = ATUAL.get();
+        if (rastreamento != null) {
+            Trecho trecho = new Trecho(rastreamento, indice(categoria), nome, inicioNanos);
+            trecho.fim = System.nanoTime();
+            rastreamento.registrar(trecho);
+        }
+    }
+
+    private void registrar(Trecho trecho) {
+        nanosPorCategoria[trecho.categoria] += trecho.fim - trecho.inicio;
+        if (trechos.size() < MAXIMO_TRECHOS) {
+            trechos.add(trecho);
+        } else {
+            descartados++;
+        }
+    }
+
+    private static int indice(String categoria) {
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            if (CATEGORIAS[i].equals(categoria)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Categoria de rastreamento desconhecida: " + categoria);
+    }
+
+    // ======================================//
+    // SAÍDA
+    // ======================================//
+    public String getId() {
+        return id;
+    }
+
+    // "fila;dur=0.4, banco;dur=12.31, serializacao;dur=1.02, total;dur=14.90" (ms; só as categorias usadas)
+    public String serverTiming() {
+        StringBuilder valor = new StringBuilder();
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            if (nanosPorCategoria[i] > 0) {
+                valor.append(CATEGORIAS[i]).append(";dur=").append(milissegundos(nanosPorCategoria[i])).append(", ");
+            }
+        }
+        return valor.append("total;dur=").append(milissegundos(System.nanoTime() - inicioNanos)).toString();
+    }
+
+    // Escreve o Server-Timing do rastro da thread. Chamado antes de enviar a resposta:
+    // depois que ela sai, cabeçalhos não podem mais ser acrescentados.
+    public static void serverTiming(HttpServletResponse resposta) {
+        Rastreamento rastreamento = ATUAL.get();
+        if (rastreamento != null && !resposta.isCommitted()) {
+            resposta.setHeader("Server-Timing", rastreamento.serverTiming());
+        }
+    }
+
+    // "1a2b3c4d5e6f7a8b"
+    public static String novoId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    // X-Request-Id recebido é reaproveitado se for curto e sem caracteres estranhos (vai para logs e arquivo)
+    public static boolean idValido(String id) {
+        if (id == null || id.isEmpty() || id.length() > 64) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String milissegundos(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    // Eventos "X" (completos) do formato Trace Event, um por linha terminada em vírgula
+    private String eventos(long duracao, int status) {
+
+        StringBuilder linhas = new StringBuilder(256 + trechos.size() * 160);
+
+        JsonObject nomeThread = new JsonObject();
+        nomeThread.addProperty("name", "thread_name");
+        nomeThread.addProperty("ph", "M");
+        nomeThread.addProperty("pid", PID);
+        nomeThread.addProperty("tid", thread.getId());
+        JsonObject argsThread = new JsonObject();
+        argsThread.addProperty("name", thread.getName());
+        nomeThread.add("args", argsThread);
+        linhas.append(nomeThread).append(",\n");
+
+        JsonObject args = new JsonObject();
+        args.addProperty("requisicao", id);
+        args.addProperty("status", status);
+        if (descartados > 0) {
+            args.addProperty("trechosDescartados", descartados);
+        }
+        linhas.append(evento(descricao, "requisicao", inicioNanos, inicioNanos + duracao, args)).append(",\n");
+
+        JsonObject argsTrecho = new JsonObject();
+        argsTrecho.addProperty("requisicao", id);
+        for (Trecho trecho : trechos) {
+            linhas.append(evento(trecho.nome, CATEGORIAS[trecho.categoria], trecho.inicio, trecho.fim, argsTrecho))
+                    .append(",\n");
+        }
+        return linhas.toString();
+    }
+
+    private JsonObject evento(String nome, String categoria, long inicio, long fim, JsonObject args) {
+        JsonObject evento = new JsonObject();
+        // nomes dos trechos "banco" são o SQL inteiro
+        evento.addProperty("name", nome.length() > MAXIMO_NOME ? nome.substring(0, MAXIMO_NOME) + "..." : nome);
+        evento.addProperty("cat", categoria);
+        evento.addProperty("ph", "X");
+        evento.addProperty("ts", inicioEpochMicros + TimeUnit.NANOSECONDS.toMicros(inicio - inicioNanos));
+        evento.addProperty("dur", (fim - inicio) / 1000.0);
+        evento.addProperty("pid", PID);
+        evento.addProperty("tid", thread.getId());
+        evento.add("args", args);
+        return evento;
+    }
+}
@@ -0,0 +1,254 @@
+package trafego;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+// Captura do tráfego real da API para reprodução (ver ReprodutorTrafego).
+// Grava método, caminho, consulta, Accept, Content-Type, If-Match e corpo de cada requisição,
+// no formato compacto do RegistroTrafego, numa thread própria: a requisição só
+// enfileira (fila cheia descarta, nunca espera).
+// Dados pessoais não saem do servidor: os valores dos campos -Dcaptura.camposSensiveis
+// (no corpo JSON e na consulta) viram pseudônimos com o mesmo formato — mesmo tamanho,
+// dígito por dígito e letra por letra. O mesmo valor gera o mesmo pseudônimo durante a
+// captura (duplicidades continuam duplicidades), mas o sal é sorteado a cada subida.
+// Cabeçalhos de identificação (X-Operador, Authorization, cookies) não são gravados; o
+// If-Match é só a versão do registro e vai junto, senão todo PUT reproduzido daria 428.
+// Ative com -Dcaptura.ativo=true; o arquivo anterior vira <arquivo>.1.
+public final class CapturaTrafego {
+
+    public static final boolean ATIVO = Boolean.parseBoolean(System.getProperty("captura.ativo", "false"));
+
+    private static final int CAPACIDADE_FILA = 4096;
+
+    // Corpos maiores não são capturados (a requisição inteira fica de fora)
+    private static final int MAXIMO_BYTES_CORPO = Integer.getInteger("captura.maxBytesCorpo", 64 * 1024);
+
+    // Atingido o limite, a captura para (não há rotação: cada captura é um ensaio)
+    private static final long MAXIMO_BYTES_ARQUIVO = Long.getLong("captura.maxBytesArquivo", 256L * 1024 * 1024);
+
+    private static final Set<String> CAMPOS_SENSIVEIS = new HashSet<>(Arrays.asList(
+            System.getProperty("captura.camposSensiveis", "nome,telefone,q").split("\\s*,\\s*")));
+
+    private static final long INICIO_NANOS = System.nanoTime();
+
+    private static final byte[] SAL = new byte[16];
+
+    private static final BlockingQueue<RegistroTrafego> fila = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+    private static final AtomicLong descartados = new AtomicLong();
+    private static final AtomicLong gravados = new AtomicLong();
+
+    private static final Thread escritor;
+    private static volatile boolean ativo = ATIVO;
+
+    static {
+        new SecureRandom().nextBytes(SAL);
+        if (ATIVO) {
+            escritor = new Thread(CapturaTrafego::laco, "captura-trafego");
+            escritor.setDaemon(true);
+            escritor.start();
+        } else {
+            escritor = null;
+        }
+    }
+
+    private CapturaTrafego() {
+    }
+
+    // Chamado por um filtro "before" da ApiQuadra, na ordem de chegada
+    public static void registrar(String metodo, String caminho, String consulta,
+            String accept, String tipoConteudo, String ifMatch, byte[] corpo) {
+
+        if (!ativo || RegistroTrafego.codigoMetodo(metodo) < 0) {
+            return;
+        }
+        if (corpo != null && corpo.length > MAXIMO_BYTES_CORPO) {
+            descartar();
+            return;
+        }
+
+        long offset = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - INICIO_NANOS);
+        String alvo = consulta == null || consulta.isEmpty() ? caminho : caminho + "?" + pseudonimizarConsulta(consulta);
+
+        RegistroTrafego registro = new RegistroTrafego(offset, metodo, alvo, accept, tipoConteudo, ifMatch,
+                pseudonimizarCorpo(corpo));
+        if (!fila.offer(registro)) {
+            descartar();
+        }
+    }
+
+    // Grava o que ainda está na fila (desligamento)
+    public static void fechar(long esperaMs) throws InterruptedException {
+        if (escritor != null) {
+            ativo = false;
+            escritor.join(esperaMs);
+        }
+    }
+
+    private static void descartar() {
+        if (descartados.incrementAndGet() % 1000 == 1) {
+            System.err.println("Captura de tráfego: " + descartados.get() + " requisições descartadas (fila cheia ou corpo grande).");
+        }
+    }
+
+    // ======================================//
+    // GRAVAÇÃO
+    // ======================================//
+    private static void laco() {
+
+        Path arquivo = Paths.get(System.getProperty("captura.arquivo", "trafego.cap"));
+        List<RegistroTrafego> lote = new ArrayList<>();
+
+        try {
+            if (Files.exists(arquivo)) {
+                Files.move(arquivo, arquivo.resolveSibling(arquivo.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Captura de tráfego: não foi possível preservar " + arquivo + ": " + e.getMessage());
+            ativo = false;
+            return;
+        }
+
+        try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo), 64 * 1024))) {
+
+            long inicioEpochMs = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - INICIO_NANOS);
+            RegistroTrafego.escreverCabecalho(saida, inicioEpochMs);
+            System.out.println("Captura de tráfego em " + arquivo.toAbsolutePath() + ".");
+
+            while (ativo || !fila.isEmpty()) {
+                RegistroTrafego primeiro = fila.poll(200, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote);
+                for (RegistroTrafego registro : lote) {
+                    registro.escrever(saida);
+                }
+                gravados.addAndGet(lote.size());
+                lote.clear();
+                saida.flush();
+
+                if (saida.size() >= MAXIMO_BYTES_ARQUIVO) {
+                    System.err.println("Captura de tráfego: " + arquivo + " atingiu o limite; captura encerrada.");
+                    ativo = false;
+                    fila.clear();
+                }
+            }
+            System.out.println("Captura de tráfego: " + gravados.get() + " requisições gravadas, "
+                    + descartados.get() + " descartadas.");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Captura de tráfego: erro ao gravar " + arquivo + ": " + e.getMessage());
+            ativo = false;
+        }
+    }
+
+    // ======================================//
+    // PSEUDONIMIZAÇÃO
+    // ======================================//
+
+    // "q=Jo%C3%A3o&limite=10" -> "q=Xkrd&limite=10"
+    private static String pseudonimizarConsulta(String consulta) {
+        StringBuilder resultado = new StringBuilder(consulta.length());
+        for (String par : consulta.split("&")) {
+            if (resultado.length() > 0) {
+                resultado.append('&');
+            }
+            int igual = par.indexOf('=');
+            String nome = igual < 0 ? par : par.substring(0, igual);
+            if (igual < 0 || !CAMPOS_SENSIVEIS.contains(nome)) {
+                resultado.append(par);
+                continue;
+            }
+            try {
+                String valor = URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+                resultado.append(nome).append('=').append(URLEncoder.encode(pseudonimo(valor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                resultado.append(nome).append('=');
+            }
+        }
+        return resultado.toString();
+    }
+
+    // Corpo JSON com os campos sensíveis trocados; corpo que não é JSON não é gravado
+    private static byte[] pseudonimizarCorpo(byte[] corpo) {
+        if (corpo == null || corpo.length == 0) {
+            return null;
+        }
+        try {
+            JsonElement json = JsonParser.parseString(new String(corpo, StandardCharsets.UTF_8));
+            pseudonimizar(json);
+            return json.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void pseudonimizar(JsonElement json) {
+        if (json.isJsonArray()) {
+            json.getAsJsonArray().forEach(CapturaTrafego::pseudonimizar);
+        } else if (json.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> campo : json.getAsJsonObject().entrySet()) {
+                JsonElement valor = campo.getValue();
+                if (CAMPOS_SENSIVEIS.contains(campo.getKey()) && valor.isJsonPrimitive()
+                        && valor.getAsJsonPrimitive().isString()) {
+                    campo.setValue(new JsonPrimitive(pseudonimo(valor.getAsString())));
+                } else {
+                    pseudonimizar(valor);
+                }
+            }
+        }
+    }
+
+    // Mesmo formato do original: dígito vira dígito, letra vira letra (mesma caixa), o resto fica
+    static String pseudonimo(String valor) {
+
+        byte[] hash;
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(SAL);
+            hash = sha.digest(valor.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        char[] resultado = valor.toCharArray();
+        for (int i = 0; i < resultado.length; i++) {
+            int sorteio = (hash[i % hash.length] & 0xFF) ^ (i / hash.length * 31 & 0xFF);
+            char c = resultado[i];
+            if (Character.isDigit(c)) {
+                resultado[i] = (char) ('0' + sorteio % 10);
+            } else if (Character.isLetter(c)) {
+                resultado[i] = (char) ((Character.isUpperCase(c) ? 'A' : 'a') + sorteio % 26);
+            }
+        }
+        return new String(resultado);
+    }
+}
@@ -0,0 +1,170 @@
+package trafego;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Uma requisição capturada (ver CapturaTrafego) e o formato do arquivo de captura:
+//   cabeçalho:  "QTRF" | byte versão | long início da captura (epoch ms)
+//   registro:   varint µs desde o início | byte método | texto caminho?consulta
+//               | texto Accept | texto Content-Type | texto If-Match | varint tamanho + corpo
+// Textos são varint tamanho + UTF-8 (vazio quando o cabeçalho não veio).
+// Registros ficam na ordem de chegada; o último pode estar truncado (queda do processo).
+public final class RegistroTrafego {
+
+    static final byte[] MAGICO = { 'Q', 'T', 'R', 'F' };
+    static final int VERSAO = 1;
+
+    static final String[] METODOS = { "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD" };
+
+    private final long offsetMicros;
+    private final String metodo;
+    private final String caminho;
+    private final String accept;
+    private final String tipoConteudo;
+    private final String ifMatch;
+    private final byte[] corpo;
+
+    RegistroTrafego(long offsetMicros, String metodo, String caminho, String accept, String tipoConteudo,
+            String ifMatch, byte[] corpo) {
+        this.offsetMicros = offsetMicros;
+        this.metodo = metodo;
+        this.caminho = caminho;
+        this.accept = accept != null ? accept : "";
+        this.tipoConteudo = tipoConteudo != null ? tipoConteudo : "";
+        this.ifMatch = ifMatch != null ? ifMatch : "";
+        this.corpo = corpo != null ? corpo : new byte[0];
+    }
+
+    public long getOffsetMicros() {
+        return offsetMicros;
+    }
+
+    public String getMetodo() {
+        return metodo;
+    }
+
+    public String getCaminho() {
+        return caminho;
+    }
+
+    public String getAccept() {
+        return accept;
+    }
+
+    public String getTipoConteudo() {
+        return tipoConteudo;
+    }
+
+    public String getIfMatch() {
+        return ifMatch;
+    }
+
+    public byte[] getCorpo() {
+        return corpo;
+    }
+
+    static int codigoMetodo(String metodo) {
+        for (int i = 0; i < METODOS.length; i++) {
+            if (METODOS[i].equals(metodo)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ======================================//
+    // ESCRITA
+    // ======================================//
+    static void escreverCabecalho(DataOutputStream saida, long inicioEpochMs) throws IOException {
+        saida.write(MAGICO);
+        saida.writeByte(VERSAO);
+        saida.writeLong(inicioEpochMs);
+    }
+
+    void escrever(OutputStream saida) throws IOException {
+        varint(saida, offsetMicros);
+        saida.write(codigoMetodo(metodo));
+        texto(saida, caminho);
+        texto(saida, accept);
+        texto(saida, tipoConteudo);
+        texto(saida, ifMatch);
+        varint(saida, corpo.length);
+        saida.write(corpo);
+    }
+
+    private static void texto(OutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        varint(saida, bytes.length);
+        saida.write(bytes);
+    }
+
+    private static void varint(OutputStream saida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            saida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.write((int) valor);
+    }
+
+    // ======================================//
+    // LEITURA
+    // ======================================//
+
+    // Início da captura (epoch ms); falha se o arquivo não for uma captura
+    public static long lerCabecalho(DataInputStream entrada) throws IOException {
+        byte[] magico = new byte[MAGICO.length];
+        entrada.readFully(magico);
+        for (int i = 0; i < MAGICO.length; i++) {
+            if (magico[i] != MAGICO[i]) {
+                throw new IOException("Arquivo não é uma captura de tráfego.");
+            }
+        }
+        int versao = entrada.readUnsignedByte();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de captura não suportada: " + versao);
+        }
+        return entrada.readLong();
+    }
+
+    // Próximo registro ou null no fim do arquivo (inclusive registro truncado)
+    public static RegistroTrafego ler(DataInputStream entrada) throws IOException {
+        try {
+            long offset = varint(entrada);
+            int codigo = entrada.readUnsignedByte();
+            if (codigo >= METODOS.length) {
+                throw new IOException("Método desconhecido na captura: " + codigo);
+            }
+            String caminho = texto(entrada);
+            String accept = texto(entrada);
+            String tipoConteudo = texto(entrada);
+            String ifMatch = texto(entrada);
+            byte[] corpo = new byte[(int) varint(entrada)];
+            entrada.readFully(corpo);
+            return new RegistroTrafego(offset, METODOS[codigo], caminho, accept, tipoConteudo, ifMatch, corpo);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static String texto(DataInputStream entrada) throws IOException {
+        byte[] bytes = new byte[(int) varint(entrada)];
+        entrada.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long varint(DataInputStream entrada) throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            int b = entrada.readUnsignedByte();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint maior que 64 bits.");
+    }
+}
@@ -0,0 +1,245 @@
+package trafego;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import monitoramento.EventoRequisicao;
+import monitoramento.Histograma;
+
+// Reproduz uma captura (CapturaTrafego) contra uma ApiQuadra local e mostra os
+// percentis de latência por rota.
+// - Velocidade 1x, 10x, ...: laço aberto. Cada requisição tem um horário previsto
+//   (o da captura, comprimido pela velocidade) e sai nele, sem esperar as anteriores;
+//   a latência conta desde o horário previsto. Assim um servidor travado não "segura"
+//   o gerador e as esperas aparecem nos percentis (sem omissão coordenada).
+// - Velocidade max: o mais rápido possível, com no máximo <simultaneas> em voo; aí não
+//   há horário previsto e a latência conta do envio (mede vazão, não tempo de resposta).
+// IDs gerados durante a captura podem não existir no destino: para uma reprodução
+// fiel, suba a API com o snapshot em memória (-Dmemoria.arquivo) de antes da captura.
+//
+// Uso pela linha de comando:
+//   java trafego.ReprodutorTrafego <arquivo> [url] [1x|10x|max] [simultaneas]
+//   ex: java trafego.ReprodutorTrafego trafego.cap http://localhost:4567 10x
+public class ReprodutorTrafego {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final double[] PERCENTIS = { 0.50, 0.90, 0.99, 0.999 };
+
+    private static final class EstatisticaRota {
+        final LongAdder contagem = new LongAdder();
+        final LongAdder falhas = new LongAdder();
+        final AtomicLongArray porClasse = new AtomicLongArray(6); // 1xx..5xx
+        final LongAccumulator maximoMicros = new LongAccumulator(Math::max, 0);
+        final Histograma histograma = new Histograma();
+
+        void registrar(long micros, int status) {
+            contagem.increment();
+            maximoMicros.accumulate(micros);
+            histograma.registrar(micros);
+            if (status <= 0) {
+                falhas.increment();
+            } else {
+                porClasse.incrementAndGet(Math.min(status / 100, 5));
+            }
+        }
+    }
+
+    private final String url;
+    private final double velocidade;
+    private final Semaphore simultaneas;
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, EstatisticaRota> porRota = new ConcurrentHashMap<>();
+    private final EstatisticaRota geral = new EstatisticaRota();
+    private final Phaser emVoo = new Phaser(1);
+
+    // Quanto o gerador chegou a atrasar em relação ao horário previsto
+    private long atrasoMaximoNanos;
+
+    // velocidade <= 0: máxima
+    ReprodutorTrafego(String url, double velocidade, int simultaneas) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.velocidade = velocidade;
+        this.simultaneas = velocidade > 0 ? null : new Semaphore(simultaneas);
+    }
+
+    // ======================================//
+    // REPRODUÇÃO
+    // ======================================//
+    void reproduzir(DataInputStream entrada) throws IOException, InterruptedException {
+
+        RegistroTrafego.lerCabecalho(entrada);
+        aquecer();
+
+        long inicio = System.nanoTime();
+        long primeiroOffset = -1;
+        long enviadas = 0;
+
+        RegistroTrafego registro;
+        while ((registro = RegistroTrafego.ler(entrada)) != null) {
+
+            if (primeiroOffset < 0) {
+                primeiroOffset = registro.getOffsetMicros();
+            }
+
+            long previsto;
+            if (velocidade > 0) {
+                previsto = inicio + (long) (TimeUnit.MICROSECONDS.toNanos(registro.getOffsetMicros() - primeiroOffset) / velocidade);
+                esperarAte(previsto);
+                atrasoMaximoNanos = Math.max(atrasoMaximoNanos, System.nanoTime() - previsto);
+            } else {
+                simultaneas.acquire();
+                previsto = System.nanoTime();
+            }
+
+            enviar(registro, previsto, enviadas++);
+        }
+
+        emVoo.arriveAndAwaitAdvance();
+        relatorio(enviadas, System.nanoTime() - inicio);
+    }
+
+    // Uma chamada síncrona antes do relógio: a primeira do HttpClient (threads, classes,
+    // conexão) custa centenas de ms e atrasaria o início do agendamento
+    private void aquecer() throws IOException, InterruptedException {
+        HttpRequest saude = HttpRequest.newBuilder(URI.create(url + "/saude")).timeout(TIMEOUT).build();
+        try {
+            cliente.send(saude, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            throw new IOException("API inacessível em " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void enviar(RegistroTrafego registro, long previsto, long numero) {
+
+        HttpRequest.Builder pedido = HttpRequest.newBuilder(URI.create(url + registro.getCaminho()))
+                .timeout(TIMEOUT)
+                .header("X-Request-Id", "reproducao-" + numero)
+                .method(registro.getMetodo(), registro.getCorpo().length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(registro.getCorpo()));
+        if (!registro.getAccept().isEmpty()) {
+            pedido.header("Accept", registro.getAccept());
+        }
+        if (!registro.getTipoConteudo().isEmpty()) {
+            pedido.header("Content-Type", registro.getTipoConteudo());
+        }
+        if (!registro.getIfMatch().isEmpty()) {
+            pedido.header("If-Match", registro.getIfMatch());
+        }
+
+        String rota = registro.getMetodo() + " " + EventoRequisicao.rota(registro.getCaminho().split("\\?", 2)[0]);
+
+        emVoo.register();
+        cliente.sendAsync(pedido.build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((resposta, erro) -> {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - previsto);
+                    int status = erro == null ? resposta.statusCode() : 0;
+                    porRota.computeIfAbsent(rota, r -> new EstatisticaRota()).registrar(micros, status);
+                    geral.registrar(micros, status);
+                    if (simultaneas != null) {
+                        simultaneas.release();
+                    }
+                    emVoo.arriveAndDeregister();
+                });
+    }
+
+    // Espera ativa só no último trecho: parkNanos sozinho costuma passar do horário
+    private static void esperarAte(long previsto) {
+        long restante;
+        while ((restante = previsto - System.nanoTime()) > 0) {
+            if (restante > 100_000) {
+                LockSupport.parkNanos(restante - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // ======================================//
+    // RELATÓRIO
+    // ======================================//
+    private void relatorio(long enviadas, long duracaoNanos) {
+
+        double segundos = duracaoNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%d requisições em %.1f s (%.1f req/s), velocidade %s%n",
+                enviadas, segundos, enviadas / Math.max(segundos, 1e-9),
+                velocidade <= 0 ? "max" : velocidade == Math.rint(velocidade) ? (long) velocidade + "x" : velocidade + "x");
+        if (velocidade > 0) {
+            System.out.printf(Locale.ROOT, "Atraso máximo do gerador: %.1f ms%s%n", atrasoMaximoNanos / 1e6,
+                    atrasoMaximoNanos > TimeUnit.MILLISECONDS.toNanos(100)
+                            ? " (o gerador não acompanhou: as latências incluem esse atraso)" : "");
+        }
+        System.out.println();
+
+        System.out.printf(Locale.ROOT, "%-36s %8s %6s %6s %6s %6s %9s %9s %9s %9s %9s%n",
+                "rota (latência em ms)", "n", "2xx", "4xx", "5xx", "falhas", "p50", "p90", "p99", "p99.9", "max");
+
+        List<Map.Entry<String, EstatisticaRota>> rotas = new ArrayList<>(porRota.entrySet());
+        rotas.sort((a, b) -> Long.compare(b.getValue().contagem.sum(), a.getValue().contagem.sum()));
+        for (Map.Entry<String, EstatisticaRota> rota : rotas) {
+            linha(rota.getKey(), rota.getValue());
+        }
+        linha("(todas)", geral);
+    }
+
+    private static void linha(String rota, EstatisticaRota estatistica) {
+
+        long maximo = estatistica.maximoMicros.get();
+        StringBuilder percentis = new StringBuilder();
+        for (double quantil : PERCENTIS) {
+            // limite da faixa do histograma, sem passar do máximo observado
+            long micros = Math.min(estatistica.histograma.percentil(quantil), maximo);
+            percentis.append(String.format(Locale.ROOT, " %9.2f", micros / 1000.0));
+        }
+
+        System.out.printf(Locale.ROOT, "%-36s %8d %6d %6d %6d %6d%s %9.2f%n",
+                rota.length() > 36 ? rota.substring(0, 33) + "..." : rota,
+                estatistica.contagem.sum(), estatistica.porClasse.get(2), estatistica.porClasse.get(4),
+                estatistica.porClasse.get(5), estatistica.falhas.sum(), percentis, maximo / 1000.0);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 1) {
+            System.err.println("Uso: ReprodutorTrafego <arquivo> [url] [1x|10x|max] [simultaneas]");
+            System.exit(2);
+        }
+
+        String url = args.length > 1 ? args[1] : "http://localhost:4567";
+        String velocidade = args.length > 2 ? args[2].toLowerCase(Locale.ROOT) : "1x";
+        int simultaneas = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        double fator = "max".equals(velocidade) ? 0 : Double.parseDouble(velocidade.replaceFirst("x$", ""));
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Paths.get(args[0])), 64 * 1024))) {
+            new ReprodutorTrafego(url, fator, simultaneas).reproduzir(entrada);
+        }
+    }
+}
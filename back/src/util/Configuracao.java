@@ -0,0 +1,81 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Configuração externa da API. Todo o código lê System properties
+// (Integer.getInteger, System.getProperty...); aqui elas são preenchidas, na ordem
+// de prioridade:
+//   1. -Dchave=valor na linha de comando (nunca sobrescrito);
+//   2. variáveis de ambiente QUADRA_*: QUADRA_JETTY_THREADS_MAXIMO -> jetty.threads.maximo
+//      (minúsculas, "_" vira "."; se o arquivo tiver a chave com outra grafia,
+//      ex: db.pool.esperaMs, vale a grafia do arquivo);
+//   3. arquivo de propriedades: -Dconfig=caminho, QUADRA_CONFIG ou ./api.properties.
+// Deve ser chamado no início do main, antes de qualquer classe ler a configuração.
+public final class Configuracao {
+
+    private static final String PREFIXO_AMBIENTE = "QUADRA_";
+    private static final String ARQUIVO_PADRAO = "api.properties";
+
+    private Configuracao() {
+    }
+
+    public static void carregar() {
+
+        String caminho = System.getProperty("config", System.getenv(PREFIXO_AMBIENTE + "CONFIG"));
+        boolean explicito = caminho != null;
+        Path arquivo = Paths.get(explicito ? caminho : ARQUIVO_PADRAO);
+
+        Properties doArquivo = new Properties();
+        if (Files.isRegularFile(arquivo)) {
+            try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+                doArquivo.load(leitor);
+            } catch (IOException e) {
+                throw new IllegalStateException("Não foi possível ler a configuração " + arquivo.toAbsolutePath(), e);
+            }
+        } else if (explicito) {
+            throw new IllegalStateException("Arquivo de configuração não encontrado: " + arquivo.toAbsolutePath());
+        }
+
+        // Grafia das chaves do arquivo, para casar com as variáveis de ambiente
+        Map<String, String> grafia = new HashMap<>();
+        for (String chave : doArquivo.stringPropertyNames()) {
+            grafia.put(chave.toLowerCase(Locale.ROOT), chave);
+        }
+
+        int doAmbiente = 0;
+        for (Map.Entry<String, String> variavel : System.getenv().entrySet()) {
+            String nome = variavel.getKey();
+            if (!nome.startsWith(PREFIXO_AMBIENTE) || nome.equals(PREFIXO_AMBIENTE + "CONFIG")) {
+                continue;
+            }
+            String chave = nome.substring(PREFIXO_AMBIENTE.length()).toLowerCase(Locale.ROOT).replace('_', '.');
+            chave = grafia.getOrDefault(chave, chave);
+
+            if (System.getProperty(chave) == null) {
+                System.setProperty(chave, variavel.getValue());
+                doAmbiente++;
+            }
+        }
+
+        int doArquivoAplicadas = 0;
+        for (String chave : doArquivo.stringPropertyNames()) {
+            if (System.getProperty(chave) == null) {
+                System.setProperty(chave, doArquivo.getProperty(chave).trim());
+                doArquivoAplicadas++;
+            }
+        }
+
+        System.out.println("Configuração: " + doArquivoAplicadas + " chaves de "
+                + (Files.isRegularFile(arquivo) ? arquivo.toAbsolutePath() : "(sem arquivo)")
+                + ", " + doAmbiente + " de variáveis " + PREFIXO_AMBIENTE + "*.");
+    }
+}
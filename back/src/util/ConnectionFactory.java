@@ -1,36 +1,167 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// Fábrica de conexões com separação leitura/escrita.
+// - getConnection(): sempre o primário (escritas e leituras que precisam ver a própria escrita).
+// - getConnectionLeitura(): uma réplica saudável (round-robin) ou o primário se não houver.
+// Réplicas: -Ddb.replicas=jdbc:mysql://host2:3306/situacaodesafiadora,jdbc:mysql://host3:3306/...
 public class ConnectionFactory {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/situacaodesafiadora";
-    private static final String USER = "root";
-    private static final String PASS = "0901";
+    private static final String URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/situacaodesafiadora");
+    private static final String USER = System.getProperty("db.usuario", "root");
+    private static final String PASS = System.getProperty("db.senha", "0901");
     private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
 
-    public static Connection getConnection() {
+    private static final int POOL_MAXIMO = Integer.getInteger("db.pool.maximo", 10);
+    private static final long POOL_ESPERA_MS = Long.getLong("db.pool.esperaMs", 2000);
+    private static final long VERIFICACAO_REPLICAS_MS = Long.getLong("db.replicas.verificacaoMs", 5000);
+
+    private static final PoolConexoes primario;
+    private static final List<PoolConexoes> replicas;
+    private static final AtomicInteger proximaReplica = new AtomicInteger();
+
+    // Verificação periódica das réplicas (null sem réplicas)
+    private static ScheduledExecutorService verificacaoReplicas;
 
+    static {
         try {
             // carrega o Driver JDBC na memória
             Class.forName(DRIVER);
-            // tenta conectar ao banco usando as credenciais e URL
-            // o DriverManager procura o Driver carregado que corresponde à URL
-            System.out.println("Tentando conectar ao banco de dados...");
-            return DriverManager.getConnection(URL, USER, PASS);
         } catch (ClassNotFoundException e) {
             // exceção disparada se o JAR do Driver (mysql-connector-j) não estiver no
             // classpath
             System.err.println("Driver JDBC não encontrado. Verifique se o JAR está na pasta 'lib' e no classpath.");
             throw new RuntimeException("Erro: Driver JDBC ausente.", e);
+        }
+
+        primario = new PoolConexoes("primario", URL, USER, PASS, POOL_MAXIMO, POOL_ESPERA_MS);
+
+        List<PoolConexoes> lista = new ArrayList<>();
+        String usuarioReplica = System.getProperty("db.replicas.usuario", USER);
+        String senhaReplica = System.getProperty("db.replicas.senha", PASS);
+        int i = 1;
+        for (String url : System.getProperty("db.replicas", "").split(",")) {
+            if (!url.trim().isEmpty()) {
+                lista.add(new PoolConexoes("replica-" + i++, url.trim(), usuarioReplica, senhaReplica,
+                        POOL_MAXIMO, POOL_ESPERA_MS));
+            }
+        }
+        replicas = Collections.unmodifiableList(lista);
+
+        if (!replicas.isEmpty()) {
+            iniciarVerificacaoReplicas();
+        }
+    }
+
+    // ======================================//
+    // PRIMÁRIO (ESCRITA)
+    // ======================================//
+    public static Connection getConnection() {
+
+        // Não abre conexão para uma requisição cujo prazo já acabou
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+        if (contexto != null) {
+            contexto.verificarPrazo();
+        }
+
+        try {
+            return primario.obter();
         } catch (SQLException e) {
             // exceção disparada por erros de conexão (usuário/senha errados, URL errada,
-            // MySQL offline)
+            // MySQL offline) ou pool esgotado
             System.err.println("Erro ao conectar ao banco de dados. Verifique credenciais ou se o MySQL está ativo.");
             e.printStackTrace(); // para depuração
             throw new RuntimeException("Erro ao obter a conexão com o banco de dados.", e);
         }
     }
-}
\ No newline at end of file
+
+    // ======================================//
+    // RÉPLICA (LEITURA)
+    // Requisições que escrevem (POST/PUT/DELETE) ficam presas ao primário
+    // para enxergarem as próprias escritas.
+    // ======================================//
+    public static Connection getConnectionLeitura() {
+
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+        if (replicas.isEmpty() || (contexto != null && contexto.isFixadoNoPrimario())) {
+            return getConnection();
+        }
+
+        if (contexto != null) {
+            contexto.verificarPrazo();
+        }
+
+        int total = replicas.size();
+        int inicio = Math.floorMod(proximaReplica.getAndIncrement(), total);
+
+        for (int i = 0; i < total; i++) {
+            PoolConexoes replica = replicas.get((inicio + i) % total);
+            if (!replica.isSaudavel()) {
+                continue;
+            }
+            try {
+                return replica.obter();
+            } catch (PoolEsgotadoException e) {
+                // réplica ocupada, não quebrada: tenta a próxima sem tirá-la de circulação
+            } catch (SQLException e) {
+                // falha ao abrir ou validar a conexão física
+                System.err.println("Réplica " + replica.getNome() + " indisponível: " + e.getMessage());
+                replica.marcarIndisponivel();
+            }
+        }
+
+        // Nenhuma réplica saudável (ou todas sem vaga): a leitura vai para o primário
+        return getConnection();
+    }
+
+    public static PoolConexoes getPrimario() {
+        return primario;
+    }
+
+    public static List<PoolConexoes> getReplicas() {
+        return replicas;
+    }
+
+    // Desligamento: para a verificação das réplicas e fecha os pools.
+    // Conexões ainda emprestadas são fechadas quando devolvidas.
+    public static void fechar() {
+        if (verificacaoReplicas != null) {
+            verificacaoReplicas.shutdownNow();
+        }
+        primario.fechar();
+        for (PoolConexoes replica : replicas) {
+            replica.fechar();
+        }
+    }
+
+    // Devolve as réplicas marcadas como indisponíveis assim que voltarem a responder
+    private static void iniciarVerificacaoReplicas() {
+
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "verificacao-replicas");
+            t.setDaemon(true);
+            return t;
+        });
+
+        agendador.scheduleWithFixedDelay(() -> {
+            for (PoolConexoes replica : replicas) {
+                boolean estava = replica.isSaudavel();
+                boolean esta = replica.verificar(2);
+                if (estava != esta) {
+                    System.out.println("Réplica " + replica.getNome() + (esta ? " voltou a responder." : " ficou indisponível."));
+                }
+            }
+        }, VERIFICACAO_REPLICAS_MS, VERIFICACAO_REPLICAS_MS, TimeUnit.MILLISECONDS);
+
+        verificacaoReplicas = agendador;
+    }
+}
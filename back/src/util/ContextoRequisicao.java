@@ -0,0 +1,169 @@
+package util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Estado da requisição HTTP em andamento, associado à thread do Jetty que a atende.
+// Criado no before() da ApiQuadra e descartado no afterAfter().
+public final class ContextoRequisicao {
+
+    private static final ThreadLocal<ContextoRequisicao> ATUAL = new ThreadLocal<>();
+
+    // Orçamento padrão de cada requisição. -Dprazo.padraoMs=N
+    private static final long PRAZO_PADRAO_MS = Long.getLong("prazo.padraoMs", 5000);
+
+    // Orçamentos por rota: -Dprazo.rotas="GET /Aluguel/detalhado=15000,POST /Aluguel=3000"
+    // Vale o prefixo de caminho mais longo que casar com o método.
+    private static final Map<String, Long> PRAZO_POR_ROTA = lerPrazosPorRota(System.getProperty("prazo.rotas", ""));
+
+    // Instante (System.nanoTime) em que o prazo acaba
+    private final long prazoNanos;
+
+    // Requisições que escrevem leem do primário (read-your-writes)
+    private boolean fixadoNoPrimario;
+
+    // Quem fez a requisição ("X-Operador (IP)" ou só o IP), usado pela auditoria
+    private String operador;
+
+    // Buscas por ID já feitas nesta requisição (dao.CarregadorLote); criado no primeiro uso
+    private Map<Object, Object> memorizados;
+
+    private ContextoRequisicao(long orcamentoMs, boolean fixadoNoPrimario) {
+        this.prazoNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(orcamentoMs);
+        this.fixadoNoPrimario = fixadoNoPrimario;
+    }
+
+    // ======================================//
+    // CICLO DE VIDA
+    // ======================================//
+
+    // Abre o contexto da requisição. O cabeçalho X-Request-Timeout só pode encurtar
+    // o orçamento da rota, nunca aumentar.
+    public static ContextoRequisicao iniciar(String metodo, String caminho, String cabecalhoTimeout) {
+
+        long orcamento = orcamentoDaRota(metodo, caminho);
+
+        if (cabecalhoTimeout != null) {
+            try {
+                long pedido = Long.parseLong(cabecalhoTimeout.trim());
+                if (pedido > 0) {
+                    orcamento = Math.min(orcamento, pedido);
+                }
+            } catch (NumberFormatException e) {
+                // cabeçalho inválido: mantém o orçamento da rota
+            }
+        }
+
+        boolean leitura = "GET".equalsIgnoreCase(metodo) || "HEAD".equalsIgnoreCase(metodo);
+        ContextoRequisicao contexto = new ContextoRequisicao(orcamento, !leitura);
+        ATUAL.set(contexto);
+        return contexto;
+    }
+
+    // Contexto da thread atual ou null (ex: tarefas em segundo plano, inicialização)
+    public static ContextoRequisicao atual() {
+        return ATUAL.get();
+    }
+
+    public static void encerrar() {
+        ATUAL.remove();
+    }
+
+    public boolean isFixadoNoPrimario() {
+        return fixadoNoPrimario;
+    }
+
+    // Leituras seguintes desta requisição vão ao primário (ex: reposição do cache após escrita)
+    public void fixarNoPrimario() {
+        fixadoNoPrimario = true;
+    }
+
+    public String getOperador() {
+        return operador;
+    }
+
+    public void setOperador(String operador) {
+        this.operador = operador;
+    }
+
+    // Só a thread da requisição acessa: não precisa de sincronização
+    public Map<Object, Object> getMemorizados() {
+        if (memorizados == null) {
+            memorizados = new HashMap<>();
+        }
+        return memorizados;
+    }
+
+    // Chamado depois de uma escrita: as próximas buscas desta requisição voltam ao banco
+    public void limparMemorizados() {
+        if (memorizados != null) {
+            memorizados.clear();
+        }
+    }
+
+    // ======================================//
+    // PRAZO
+    // ======================================//
+
+    public long restanteMs() {
+        return TimeUnit.NANOSECONDS.toMillis(prazoNanos - System.nanoTime());
+    }
+
+    // Falha imediatamente se o prazo já acabou
+    public void verificarPrazo() {
+        if (System.nanoTime() - prazoNanos >= 0) {
+            throw new PrazoExcedidoException("Prazo da requisição esgotado.");
+        }
+    }
+
+    // Timeout em segundos (arredondado para cima) para o PreparedStatement.setQueryTimeout,
+    // limitado pelo teto informado (0 = sem teto). Fora de uma requisição vale só o teto.
+    public static int timeoutSegundosRestante(int tetoSegundos) {
+
+        ContextoRequisicao contexto = ATUAL.get();
+        if (contexto == null) {
+            return tetoSegundos;
+        }
+
+        contexto.verificarPrazo();
+        int restante = (int) Math.max(1, (contexto.restanteMs() + 999) / 1000);
+        return tetoSegundos > 0 ? Math.min(restante, tetoSegundos) : restante;
+    }
+
+    private static long orcamentoDaRota(String metodo, String caminho) {
+
+        long orcamento = PRAZO_PADRAO_MS;
+        int maiorPrefixo = -1;
+
+        for (Map.Entry<String, Long> entrada : PRAZO_POR_ROTA.entrySet()) {
+            String chave = entrada.getKey();
+            int espaco = chave.indexOf(' ');
+            String metodoRota = chave.substring(0, espaco);
+            String prefixo = chave.substring(espaco + 1);
+
+            if (metodoRota.equalsIgnoreCase(metodo) && caminho.startsWith(prefixo) && prefixo.length() > maiorPrefixo) {
+                orcamento = entrada.getValue();
+                maiorPrefixo = prefixo.length();
+            }
+        }
+        return orcamento;
+    }
+
+    private static Map<String, Long> lerPrazosPorRota(String configuracao) {
+
+        Map<String, Long> prazos = new LinkedHashMap<>();
+
+        for (String item : configuracao.split(",")) {
+            String texto = item.trim();
+            int igual = texto.lastIndexOf('=');
+            if (texto.isEmpty() || igual < 0 || texto.indexOf(' ') < 0) {
+                continue;
+            }
+            String rota = texto.substring(0, igual).trim().replaceAll("\\s+", " ");
+            prazos.put(rota, Long.parseLong(texto.substring(igual + 1).trim()));
+        }
+        return prazos;
+    }
+}
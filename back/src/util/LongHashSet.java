@@ -0,0 +1,172 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Conjunto de long com endereçamento aberto, sem boxing.
+// O valor 0 é guardado à parte (0 marca posição livre na tabela).
+// Não é thread-safe: quem usa protege com o próprio lock.
+public class LongHashSet {
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] tabela;
+    private int tamanho;
+    private int mascara;
+    private int limiteRedimensionar;
+    private boolean contemZero;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    public LongHashSet(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(4, (int) (capacidadeInicial / CARGA_MAXIMA)) - 1) << 1;
+        alocar(capacidade);
+    }
+
+    // Espalha os bits da chave (ids sequenciais cairiam todos no mesmo cluster)
+    static long misturar(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+
+    public boolean contains(long valor) {
+        if (valor == 0) {
+            return contemZero;
+        }
+        int i = indice(valor);
+        while (tabela[i] != 0) {
+            if (tabela[i] == valor) {
+                return true;
+            }
+            i = (i + 1) & mascara;
+        }
+        return false;
+    }
+
+    public boolean add(long valor) {
+
+        if (valor == 0) {
+            if (contemZero) {
+                return false;
+            }
+            contemZero = true;
+            tamanho++;
+            return true;
+        }
+
+        int i = indice(valor);
+        while (tabela[i] != 0) {
+            if (tabela[i] == valor) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        tabela[i] = valor;
+        if (++tamanho > limiteRedimensionar) {
+            redimensionar(tabela.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(long valor) {
+
+        if (valor == 0) {
+            if (!contemZero) {
+                return false;
+            }
+            contemZero = false;
+            tamanho--;
+            return true;
+        }
+
+        int i = indice(valor);
+        while (tabela[i] != 0) {
+            if (tabela[i] == valor) {
+                deslocar(i);
+                tamanho--;
+                return true;
+            }
+            i = (i + 1) & mascara;
+        }
+        return false;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(tabela, 0);
+        contemZero = false;
+        tamanho = 0;
+    }
+
+    public void forEach(LongConsumer consumidor) {
+        if (contemZero) {
+            consumidor.accept(0);
+        }
+        for (long valor : tabela) {
+            if (valor != 0) {
+                consumidor.accept(valor);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] resultado = new long[tamanho];
+        int[] n = { 0 };
+        forEach(v -> resultado[n[0]++] = v);
+        return resultado;
+    }
+
+    private void deslocar(int livre) {
+
+        int i = livre;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (tabela[i] == 0) {
+                break;
+            }
+            int ideal = indice(tabela[i]);
+            if (((i - ideal) & mascara) >= ((i - livre) & mascara)) {
+                tabela[livre] = tabela[i];
+                livre = i;
+            }
+        }
+        tabela[livre] = 0;
+    }
+
+    private int indice(long valor) {
+        return (int) misturar(valor) & mascara;
+    }
+
+    private void alocar(int capacidade) {
+        tabela = new long[capacidade];
+        mascara = capacidade - 1;
+        limiteRedimensionar = (int) (capacidade * CARGA_MAXIMA);
+    }
+
+    private void redimensionar(int novaCapacidade) {
+
+        long[] antiga = tabela;
+        alocar(novaCapacidade);
+
+        for (long valor : antiga) {
+            if (valor != 0) {
+                int i = indice(valor);
+                while (tabela[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                tabela[i] = valor;
+            }
+        }
+    }
+}
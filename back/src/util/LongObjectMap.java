@@ -0,0 +1,162 @@
+package util;
+
+import java.util.Arrays;
+
+// Mapa long -> objeto com endereçamento aberto (sondagem linear), sem boxing da chave.
+// Remoção por deslocamento para trás: não deixa "lápides" que degradam a busca.
+// Não é thread-safe: quem usa protege com o próprio lock.
+public class LongObjectMap<V> {
+
+    @FunctionalInterface
+    public interface Visitante<V> {
+        void visitar(long chave, V valor);
+    }
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] chaves;
+    private Object[] valores;
+    private int tamanho;
+    private int mascara;
+    private int limiteRedimensionar;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(4, (int) (capacidadeInicial / CARGA_MAXIMA)) - 1) << 1;
+        alocar(capacidade);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long chave) {
+        Object[] vs = valores;
+        int i = indice(chave);
+        while (vs[i] != null) {
+            if (chaves[i] == chave) {
+                return (V) vs[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long chave) {
+        return get(chave) != null;
+    }
+
+    // Valores nulos não são aceitos (null marca posição livre)
+    @SuppressWarnings("unchecked")
+    public V put(long chave, V valor) {
+
+        if (valor == null) {
+            throw new IllegalArgumentException("LongObjectMap não aceita valores nulos.");
+        }
+
+        int i = indice(chave);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho > limiteRedimensionar) {
+            redimensionar(valores.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long chave) {
+
+        int i = indice(chave);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                deslocar(i);
+                tamanho--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitante<? super V> visitante) {
+        for (int i = 0; i < valores.length; i++) {
+            if (valores[i] != null) {
+                visitante.visitar(chaves[i], (V) valores[i]);
+            }
+        }
+    }
+
+    // Fecha o buraco deixado em "livre" puxando para trás os elementos do mesmo cluster
+    private void deslocar(int livre) {
+
+        int i = livre;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (valores[i] == null) {
+                break;
+            }
+            int ideal = indice(chaves[i]);
+            // o elemento em i só pode ir para "livre" se "livre" estiver entre ideal e i (circular)
+            if (((i - ideal) & mascara) >= ((i - livre) & mascara)) {
+                chaves[livre] = chaves[i];
+                valores[livre] = valores[i];
+                livre = i;
+            }
+        }
+        valores[livre] = null;
+    }
+
+    private int indice(long chave) {
+        return (int) LongHashSet.misturar(chave) & mascara;
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        valores = new Object[capacidade];
+        mascara = capacidade - 1;
+        limiteRedimensionar = (int) (capacidade * CARGA_MAXIMA);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void redimensionar(int novaCapacidade) {
+
+        long[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        alocar(novaCapacidade);
+
+        for (int j = 0; j < valoresAntigos.length; j++) {
+            if (valoresAntigos[j] != null) {
+                int i = indice(chavesAntigas[j]);
+                while (valores[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                valores[i] = (V) valoresAntigos[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Executor de migrações versionadas do banco.
+// Os scripts ficam em db/migracao com o nome V<numero>__<descricao>.sql e são
+// aplicados em ordem, uma única vez, registrando cada versão em schema_versao.
+public class MigracaoBanco {
+
+    private static final String DIRETORIO_PADRAO = "db/migracao";
+    private static final Pattern NOME_SCRIPT = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    // "coluna <op> ?" e a tabela do FROM, para os valores do EXPLAIN
+    private static final Pattern PARAMETRO = Pattern.compile("(\\w+)\\s*(<=|>=|<|>|=)\\s*\\?");
+    private static final Pattern TABELA = Pattern.compile("\\bFROM\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    // Nome do lock do MySQL que impede duas instâncias de migrarem ao mesmo tempo
+    private static final String LOCK = "situacaodesafiadora_migracao";
+    private static final int ESPERA_LOCK_SEGUNDOS = 30;
+
+    // ======================================//
+    // APLICA AS MIGRAÇÕES PENDENTES
+    // Qualquer falha interrompe a inicialização da API.
+    // ======================================//
+    public static void executar() {
+
+        Path diretorio = Paths.get(System.getProperty("migracao.diretorio", DIRETORIO_PADRAO));
+        TreeMap<Integer, Path> scripts = listarScripts(diretorio);
+
+        try (Connection conn = ConnectionFactory.getConnection()) {
+
+            adquirirLock(conn);
+            try {
+                criarTabelaVersao(conn);
+                int versaoAtual = versaoAtual(conn);
+
+                for (Integer versao : scripts.tailMap(versaoAtual, false).keySet()) {
+                    aplicar(conn, versao, scripts.get(versao));
+                }
+
+                System.out.println("Esquema do banco na versão " + versaoAtual(conn) + ".");
+            } finally {
+                liberarLock(conn);
+            }
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao migrar o banco de dados: " + e.getMessage(), e);
+        }
+    }
+
+    // ======================================//
+    // VERIFICA O PLANO DAS CONSULTAS QUENTES
+    // Roda EXPLAIN em cada SQL e falha se alguma tabela for lida sem índice (key
+    // null) ou por varredura completa (type ALL), mesmo que exista índice possível.
+    // Os "?" recebem valores que existem na tabela (ver valoresRepresentativos): com 0,
+    // o otimizador resolve "id = 0" ou "v > 0 AND v <= 0" sem ler tabela nenhuma
+    // ("no matching row in const table", "Impossible WHERE") e não há plano para conferir.
+    // Linha do EXPLAIN sem tabela também é falha, a menos que a tabela esteja vazia
+    // (banco novo: só avisa). Tabelas pequenas que podem ser varridas de propósito:
+    // -Dmigracao.varreduraPermitida=tabela1,tabela2
+    // ======================================//
+    public static void verificarPlanos(List<String> consultas) {
+
+        List<String> falhas = new ArrayList<>();
+        Set<String> varreduraPermitida = new HashSet<>();
+        for (String tabela : System.getProperty("migracao.varreduraPermitida", "").split(",")) {
+            if (!tabela.isBlank()) {
+                varreduraPermitida.add(tabela.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        try (Connection conn = ConnectionFactory.getConnection()) {
+
+            for (String sql : consultas) {
+                try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+
+                    Object[] valores = valoresRepresentativos(conn, sql);
+                    for (int i = 0; i < valores.length; i++) {
+                        stmt.setObject(i + 1, valores[i]);
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String tabela = rs.getString("table");
+                            String tipo = rs.getString("type");
+                            String indice = rs.getString("key");
+
+                            // Sem tabela: o otimizador resolveu sem ler nada e o plano não foi visto
+                            if (tabela == null) {
+                                if (valores.length > 0 && valores[0] == null) {
+                                    System.err.println("Plano não verificado (tabela vazia): " + sql);
+                                } else {
+                                    falhas.add("sem plano (" + rs.getString("Extra") + ") -> " + sql);
+                                }
+                                continue;
+                            }
+                            if (varreduraPermitida.contains(tabela.toLowerCase(Locale.ROOT))) {
+                                continue;
+                            }
+                            if (indice == null || "ALL".equals(tipo)) {
+                                falhas.add(tabela + " (type " + tipo + ", key " + indice + ", possible_keys "
+                                        + rs.getString("possible_keys") + ") -> " + sql);
+                            }
+                        }
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao verificar o plano das consultas: " + e.getMessage(), e);
+        }
+
+        if (!falhas.isEmpty()) {
+            throw new IllegalStateException("Consultas quentes sem índice ou com varredura completa"
+                    + " (crie o índice ou inclua a tabela em migracao.varreduraPermitida):\n  "
+                    + String.join("\n  ", falhas));
+        }
+    }
+
+    // Um valor por "?", na ordem, a partir do MAX(coluna) da tabela do FROM:
+    //   coluna = ?  -> MAX          coluna > ?  -> MAX - 1     coluna >= ? -> MAX
+    //   coluna <= ? -> MAX          coluna < ?  -> MAX + 1
+    // (faixa estreita que existe: o otimizador escolhe o índice como na consulta real).
+    // Tabela vazia: todos null (não há valor que exista). Só entende "coluna op ?".
+    private static Object[] valoresRepresentativos(Connection conn, String sql) throws SQLException {
+
+        long total = sql.chars().filter(c -> c == '?').count();
+        List<Object> valores = new ArrayList<>();
+
+        Matcher tabela = TABELA.matcher(sql);
+        Matcher parametro = PARAMETRO.matcher(sql);
+        while (parametro.find()) {
+            if (!tabela.find(0)) {
+                break;
+            }
+            Object maximo;
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT MAX(" + parametro.group(1) + ") FROM " + tabela.group(1))) {
+                rs.next();
+                maximo = rs.getObject(1);
+            }
+            if (maximo instanceof Number) {
+                long valor = ((Number) maximo).longValue();
+                if (">".equals(parametro.group(2))) {
+                    valor--;
+                } else if ("<".equals(parametro.group(2))) {
+                    valor++;
+                }
+                maximo = valor;
+            }
+            valores.add(maximo);
+        }
+
+        if (valores.size() != total) {
+            throw new IllegalStateException("Não foi possível escolher valores para os parâmetros de: " + sql);
+        }
+        return valores.toArray();
+    }
+
+    private static TreeMap<Integer, Path> listarScripts(Path diretorio) {
+
+        TreeMap<Integer, Path> scripts = new TreeMap<>();
+
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.forEach(arquivo -> {
+                Matcher m = NOME_SCRIPT.matcher(arquivo.getFileName().toString());
+                if (m.matches()) {
+                    Path duplicado = scripts.put(Integer.parseInt(m.group(1)), arquivo);
+                    if (duplicado != null) {
+                        throw new IllegalStateException("Versão de migração duplicada: " + duplicado + " e " + arquivo);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Diretório de migrações não encontrado: " + diretorio.toAbsolutePath(), e);
+        }
+
+        return scripts;
+    }
+
+    private static void aplicar(Connection conn, int versao, Path script) throws SQLException {
+
+        String nome = script.getFileName().toString();
+        System.out.println("Aplicando migração " + nome + "...");
+
+        String conteudo;
+        try {
+            conteudo = new String(Files.readAllBytes(script), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Não foi possível ler a migração " + nome, e);
+        }
+
+        // Obs.: no MySQL os comandos DDL fazem commit implícito, por isso cada script
+        // deve ser pequeno e focado; se falhar no meio, a versão não é registrada.
+        try (Statement stmt = conn.createStatement()) {
+            for (String comando : separarComandos(conteudo)) {
+                stmt.execute(comando);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Erro na migração " + nome + ": " + e.getMessage(), e);
+        }
+
+        Matcher m = NOME_SCRIPT.matcher(nome);
+        m.matches();
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_versao (versao, descricao) VALUES (?, ?)")) {
+            stmt.setInt(1, versao);
+            stmt.setString(2, m.group(2).replace('_', ' '));
+            stmt.executeUpdate();
+        }
+    }
+
+    // Separa o script em comandos terminados por ";" ignorando linhas de comentário "--"
+    private static List<String> separarComandos(String conteudo) {
+
+        List<String> comandos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+
+        for (String linha : conteudo.split("\\R")) {
+            String semEspaco = linha.trim();
+            if (semEspaco.isEmpty() || semEspaco.startsWith("--")) {
+                continue;
+            }
+
+            atual.append(linha).append('\n');
+
+            if (semEspaco.endsWith(";")) {
+                String comando = atual.toString().trim();
+                comandos.add(comando.substring(0, comando.length() - 1));
+                atual.setLength(0);
+            }
+        }
+
+        if (atual.toString().trim().length() > 0) {
+            comandos.add(atual.toString().trim());
+        }
+        return comandos;
+    }
+
+    private static void criarTabelaVersao(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_versao ("
+                    + " versao INT NOT NULL PRIMARY KEY,"
+                    + " descricao VARCHAR(200) NOT NULL,"
+                    + " aplicada_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private static int versaoAtual(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(versao), 0) FROM schema_versao")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void adquirirLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK);
+            stmt.setInt(2, ESPERA_LOCK_SEGUNDOS);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Outra instância está migrando o banco; tempo de espera esgotado.");
+                }
+            }
+        }
+    }
+
+    private static void liberarLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK);
+            stmt.executeQuery().close();
+        }
+    }
+}
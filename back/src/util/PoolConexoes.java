@@ -0,0 +1,236 @@
+package util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import monitoramento.EventoConexao;
+import monitoramento.Rastreamento;
+
+// Pool simples de conexões JDBC para um único banco (primário ou réplica).
+// - No máximo "tamanhoMaximo" conexões emprestadas ao mesmo tempo (Semaphore).
+// - Conexões livres ficam numa pilha (a mais recente é reutilizada primeiro).
+// - O close() da conexão emprestada devolve a conexão física ao pool.
+public class PoolConexoes {
+
+    // Conexões paradas há mais tempo que isso são validadas antes de emprestar
+    private static final long VALIDAR_APOS_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final String nome;
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoMaximo;
+    private final long esperaMs;
+
+    private final Semaphore vagas;
+    private final ConcurrentLinkedDeque<ConexaoLivre> livres = new ConcurrentLinkedDeque<>();
+
+    // Atualizado pela verificação de saúde (ConnectionFactory)
+    private volatile boolean saudavel = true;
+    private volatile boolean fechado = false;
+
+    public PoolConexoes(String nome, String url, String usuario, String senha, int tamanhoMaximo, long esperaMs) {
+        this.nome = nome;
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.esperaMs = esperaMs;
+        this.vagas = new Semaphore(tamanhoMaximo, true);
+    }
+
+    // ======================================//
+    // EMPRÉSTIMO
+    // Espera por uma vaga no máximo "esperaMs" (ou o prazo restante da requisição).
+    // ======================================//
+    @SuppressWarnings("try") // o trecho só delimita o tempo medido
+    public Connection obter() throws SQLException {
+        // Tempo de espera por vaga + abertura/validação da conexão física (rastreamento e JFR)
+        EventoConexao evento = new EventoConexao();
+        evento.begin();
+        boolean obtida = false;
+        try (Rastreamento.Trecho trecho = Rastreamento.trecho(Rastreamento.CONEXAO, nome)) {
+            Connection conexao = reservar();
+            obtida = true;
+            return conexao;
+        } finally {
+            evento.encerrar(nome, obtida, getEmprestadas());
+        }
+    }
+
+    private Connection reservar() throws SQLException {
+
+        if (fechado) {
+            throw new PoolEsgotadoException("Pool " + nome + " está fechado.");
+        }
+
+        long espera = esperaMs;
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+        if (contexto != null) {
+            contexto.verificarPrazo();
+            espera = Math.min(espera, contexto.restanteMs());
+        }
+
+        try {
+            if (!vagas.tryAcquire(Math.max(0, espera), TimeUnit.MILLISECONDS)) {
+                throw new PoolEsgotadoException("Tempo esgotado aguardando conexão do pool " + nome + ".");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PoolEsgotadoException("Interrompido aguardando conexão do pool " + nome + ".", e);
+        }
+
+        try {
+            return emprestar(fisicaValida());
+        } catch (SQLException | RuntimeException e) {
+            vagas.release();
+            throw e;
+        }
+    }
+
+    // Abre conexões até ter "quantidade" livres (aquecimento)
+    public void preencher(int quantidade) throws SQLException {
+        while (livres.size() < Math.min(quantidade, tamanhoMaximo)) {
+            livres.push(new ConexaoLivre(abrir()));
+        }
+    }
+
+    // Testa o banco com uma conexão do pool; usado pela verificação de saúde.
+    // Pool sem vaga não muda o estado: todas as conexões estão em uso, não quebradas.
+    public boolean verificar(int timeoutSegundos) {
+        try (Connection conn = obter()) {
+            saudavel = conn.isValid(timeoutSegundos);
+        } catch (PoolEsgotadoException e) {
+            // mantém o estado anterior
+        } catch (SQLException | RuntimeException e) {
+            saudavel = false;
+        }
+        return saudavel;
+    }
+
+    public void fechar() {
+        fechado = true;
+        ConexaoLivre livre;
+        while ((livre = livres.poll()) != null) {
+            fecharSilenciosamente(livre.fisica);
+        }
+    }
+
+    public boolean isSaudavel() {
+        return saudavel;
+    }
+
+    public void marcarIndisponivel() {
+        saudavel = false;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public int getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+
+    public int getLivres() {
+        return livres.size();
+    }
+
+    public int getEmprestadas() {
+        return tamanhoMaximo - vagas.availablePermits();
+    }
+
+    private Connection fisicaValida() throws SQLException {
+
+        ConexaoLivre livre;
+        while ((livre = livres.poll()) != null) {
+            boolean recente = System.nanoTime() - livre.devolvidaEm < VALIDAR_APOS_NANOS;
+            if (recente || livre.fisica.isValid(1)) {
+                return livre.fisica;
+            }
+            fecharSilenciosamente(livre.fisica);
+        }
+        return abrir();
+    }
+
+    private Connection abrir() throws SQLException {
+        System.out.println("Abrindo nova conexão com o banco (" + nome + ")...");
+        return DriverManager.getConnection(url, usuario, senha);
+    }
+
+    // Conexão entregue ao DAO: o close() devolve ao pool em vez de fechar
+    private Connection emprestar(Connection fisica) {
+
+        boolean[] devolvida = { false };
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "close":
+                            if (!devolvida[0]) {
+                                devolvida[0] = true;
+                                devolver(fisica);
+                            }
+                            return null;
+                        case "isClosed":
+                            return devolvida[0] || fisica.isClosed();
+                        case "unwrap":
+                        case "isWrapperFor":
+                            break;
+                        default:
+                            if (devolvida[0]) {
+                                throw new SQLException("Conexão já devolvida ao pool " + nome + ".");
+                            }
+                    }
+                    try {
+                        return metodo.invoke(fisica, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void devolver(Connection fisica) {
+        try {
+            if (fechado || fisica.isClosed() || livres.size() >= tamanhoMaximo) {
+                fecharSilenciosamente(fisica);
+                return;
+            }
+            // Deixa a conexão como nova para o próximo DAO
+            if (!fisica.getAutoCommit()) {
+                fisica.rollback();
+                fisica.setAutoCommit(true);
+            }
+            livres.push(new ConexaoLivre(fisica));
+        } catch (SQLException e) {
+            fecharSilenciosamente(fisica);
+        } finally {
+            vagas.release();
+        }
+    }
+
+    private static void fecharSilenciosamente(Connection fisica) {
+        try {
+            fisica.close();
+        } catch (SQLException e) {
+            // conexão já estava quebrada
+        }
+    }
+
+    private static final class ConexaoLivre {
+        final Connection fisica;
+        final long devolvidaEm = System.nanoTime();
+
+        ConexaoLivre(Connection fisica) {
+            this.fisica = fisica;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package util;
+
+import java.sql.SQLException;
+
+// Lançada pelo PoolConexoes quando não há vaga no tempo de espera (pool ocupado,
+// fechado ou espera interrompida). Não indica falha do banco: a ConnectionFactory
+// não tira a réplica de circulação por causa dela.
+public class PoolEsgotadoException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PoolEsgotadoException(String mensagem) {
+        super(mensagem);
+    }
+
+    public PoolEsgotadoException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
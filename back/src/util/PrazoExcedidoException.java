@@ -0,0 +1,16 @@
+package util;
+
+// Lançada quando o prazo da requisição acaba antes (ou durante) um comando no banco.
+// A API converte em 504 Gateway Timeout.
+public class PrazoExcedidoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PrazoExcedidoException(String mensagem) {
+        super(mensagem);
+    }
+
+    public PrazoExcedidoException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
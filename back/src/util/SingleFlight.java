@@ -0,0 +1,106 @@
+package util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Agrupa chamadas idênticas simultâneas ("single flight"): a primeira thread com
+// uma chave executa o trabalho; as que chegam enquanto ele está em andamento
+// esperam e recebem o mesmo resultado, ou a mesma exceção.
+// A chave sai do mapa assim que o trabalho termina: nada fica guardado depois
+// (não é cache), e a próxima chamada com a mesma chave executa de novo.
+// Exceção: se quem executou estourou o próprio prazo (PrazoExcedidoException, que vem
+// do X-Request-Timeout de outro cliente), quem espera e ainda tem prazo executa de
+// novo (ou espera um novo executor) em vez de receber o 504 dele.
+public final class SingleFlight<K, V> {
+
+    // Trabalho agrupado; E é a exceção verificada que ele pode lançar (ex: SQLException)
+    @FunctionalInterface
+    public interface Chamada<V, E extends Exception> {
+        V executar() throws E;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+    // Quem espera respeita o prazo da própria requisição (PrazoExcedidoException ao esgotar)
+    public <E extends Exception> V executar(K chave, Chamada<V, E> chamada) throws E {
+
+        CompletableFuture<V> novo = new CompletableFuture<>();
+        CompletableFuture<V> existente;
+
+        while ((existente = emAndamento.putIfAbsent(chave, novo)) != null) {
+            try {
+                return aguardar(existente);
+            } catch (PrazoExcedidoException e) {
+                if (!temPrazo() || !falhouPorPrazo(existente)) {
+                    throw e; // o prazo esgotado foi o desta requisição
+                }
+                emAndamento.remove(chave, existente);
+            }
+        }
+
+        try {
+            V resultado = chamada.executar();
+            novo.complete(resultado);
+            return resultado;
+        } catch (Exception | Error e) {
+            novo.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, novo);
+        }
+    }
+
+    // Chamadas em andamento agora (diagnóstico)
+    public int getEmAndamento() {
+        return emAndamento.size();
+    }
+
+    private static boolean temPrazo() {
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+        return contexto == null || contexto.restanteMs() > 0;
+    }
+
+    // O trabalho terminou com o prazo de quem executou esgotado
+    private static boolean falhouPorPrazo(CompletableFuture<?> futuro) {
+        try {
+            futuro.getNow(null);
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof PrazoExcedidoException;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V aguardar(CompletableFuture<V> futuro) throws E {
+
+        ContextoRequisicao contexto = ContextoRequisicao.atual();
+
+        try {
+            return contexto != null
+                    ? futuro.get(Math.max(0, contexto.restanteMs()), TimeUnit.MILLISECONDS)
+                    : futuro.get();
+
+        } catch (ExecutionException e) {
+            // Mesma exceção (mesmo tipo) lançada para quem executou
+            Throwable causa = e.getCause();
+            if (causa instanceof Error) {
+                throw (Error) causa;
+            }
+            throw (E) causa;
+
+        } catch (TimeoutException e) {
+            throw new PrazoExcedidoException("Prazo da requisição esgotado aguardando consulta idêntica.", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PrazoExcedidoException("Interrompido aguardando consulta idêntica.", e);
+        }
+    }
+}
@@ -171,7 +171,10 @@ function Alugueis() {
     try {
       if (editingAluguel) {
         const id = editingAluguel.id_locacao; 
-        await api.put(`/Aluguel/${id}`, payload);
+        // If-Match com a versão lida: se outra pessoa alterou antes, a API responde 412
+        await api.put(`/Aluguel/${id}`, payload, {
+          headers: { 'If-Match': `"${editingAluguel.versaoAlteracao}"` }
+        });
         alert(`Reserva ${id} atualizada com sucesso!`);
       } else {
         await api.post('/Aluguel', payload);